@@ -0,0 +1,216 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.RecipeDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This benchmark compares the cold start read of the recipe list and one full recipe from a
+ * {@link CatalogSnapshot} against the same reads from a freshly opened database, and logs the
+ * results for each.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogSnapshotBenchmarkTest {
+
+    private static final String TAG = CatalogSnapshotBenchmarkTest.class.getSimpleName();
+
+    private static final int CATALOG_SIZE = 2000;
+    private static final int ITERATIONS = 20;
+
+    private static final long MAX_SNAPSHOT_READ_MILLIS = 10;
+
+    private Context context;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getTargetContext();
+        snapshotFile = File.createTempFile("catalog", ".snapshot", context.getCacheDir());
+    }
+
+    @After
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void snapshot_coldReadIsFasterThanDatabase() throws IOException {
+        List<Recipe> catalog = SyntheticCatalog.create(CATALOG_SIZE);
+        int recipeId = catalog.get(CATALOG_SIZE / 2).getId();
+
+        CatalogSnapshot.write(snapshotFile, catalog);
+
+        // The database is filled in a temporary file, so the app's own catalog is left alone
+        File databaseFile = new File(context.getCacheDir(), "benchmark.db");
+        SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+        try {
+            copySchema(database);
+            assertTrue(RecipeBulkWriter.writeRecipes(database, catalog, "", null));
+        } finally {
+            database.close();
+        }
+
+        try {
+            long snapshotNanos = Long.MAX_VALUE;
+            long databaseNanos = Long.MAX_VALUE;
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                snapshotNanos = Math.min(snapshotNanos, timeSnapshotRead(recipeId));
+                databaseNanos = Math.min(databaseNanos, timeDatabaseRead(databaseFile, recipeId));
+            }
+
+            Log.i(TAG, "Cold read of " + CATALOG_SIZE + " recipes took "
+                    + snapshotNanos / 1000 + " us from the snapshot and "
+                    + databaseNanos / 1000 + " us from the database");
+
+            assertTrue(snapshotNanos < MAX_SNAPSHOT_READ_MILLIS * 1000000);
+            assertTrue(snapshotNanos < databaseNanos);
+        } finally {
+            SQLiteDatabase.deleteDatabase(databaseFile);
+        }
+    }
+
+    /**
+     * Creates the app database's tables and indexes in the given database.
+     */
+    private void copySchema(SQLiteDatabase database) {
+        SQLiteDatabase appDatabase = com.example.android.baking.provider.generated
+                .RecipeDatabase.getInstance(context).getWritableDatabase();
+
+        // The full-text search table creates its own shadow tables
+        Cursor cursor = appDatabase.rawQuery("SELECT sql FROM sqlite_master WHERE sql NOT NULL"
+                + " AND name NOT LIKE 'sqlite_%' AND name NOT LIKE 'android_%'"
+                + " AND name NOT LIKE '" + RecipeDatabase.RECIPE_SEARCH + "_%'"
+                + " ORDER BY type DESC", null);
+        try {
+            while (cursor.moveToNext()) {
+                database.execSQL(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Maps the snapshot, reads the name of every recipe in the list and loads one full recipe.
+     */
+    private long timeSnapshotRead(int recipeId) {
+        long startTime = SystemClock.elapsedRealtimeNanos();
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(snapshotFile);
+        assertNotNull(snapshot);
+
+        for (int i = 0; i < snapshot.getRecipeCount(); i++) {
+            assertNotNull(snapshot.getRecipeName(i));
+        }
+
+        Recipe recipe = snapshot.getRecipe(recipeId);
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startTime;
+
+        assertNotNull(recipe);
+        assertEquals(recipeId, recipe.getId());
+        return elapsedNanos;
+    }
+
+    /**
+     * Opens the database, reads the name of every recipe in the list and loads one full recipe.
+     */
+    private long timeDatabaseRead(File databaseFile, int recipeId) {
+        long startTime = SystemClock.elapsedRealtimeNanos();
+
+        SQLiteDatabase database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            Cursor cursor = database.query(RecipeDatabase.RECIPE,
+                    RecipeListLoader.RECIPE_LIST_PROJECTION, null, null, null, null,
+                    RecipeColumns.RECIPE_ID + " ASC");
+            try {
+                while (cursor.moveToNext()) {
+                    assertNotNull(cursor.getString(RecipeListLoader.INDEX_RECIPE_NAME));
+                }
+            } finally {
+                cursor.close();
+            }
+
+            String[] selectionArgs = {String.valueOf(recipeId)};
+            for (String table : new String[]{RecipeDatabase.RECIPE, RecipeDatabase.INGREDIENT,
+                    RecipeDatabase.STEP}) {
+                Cursor graphCursor = database.query(table, null,
+                        RecipeColumns.RECIPE_ID + " = ?", selectionArgs, null, null, null);
+                try {
+                    while (graphCursor.moveToNext()) {
+                        graphCursor.getString(0);
+                    }
+                } finally {
+                    graphCursor.close();
+                }
+            }
+        } finally {
+            database.close();
+        }
+
+        return SystemClock.elapsedRealtimeNanos() - startTime;
+    }
+
+}
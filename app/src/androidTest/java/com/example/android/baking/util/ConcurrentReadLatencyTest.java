@@ -0,0 +1,217 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.RecipeContentProvider;
+import com.example.android.baking.provider.RecipeDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures the recipe list can be read while a sync is being written, seeing the
+ * last committed catalog rather than waiting for the sync. It also logs the p99 latency of those
+ * reads during a full sync, with the rollback journal and with the write-ahead log, without
+ * asserting on them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentReadLatencyTest {
+
+    private static final String TAG = ConcurrentReadLatencyTest.class.getSimpleName();
+
+    private static final int CATALOG_SIZE = 2000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public final SyntheticCatalog.Fixture fixture = new SyntheticCatalog.Fixture();
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setUp() {
+        database = fixture.getDatabase();
+    }
+
+    /**
+     * Restores the write-ahead log, which the latency report turns off for part of its run.
+     */
+    @After
+    public void tearDown() {
+        database.enableWriteAheadLogging();
+    }
+
+    @Test
+    public void writeAheadLog_readerSeesCommittedCatalogWhileWriteIsOpen()
+            throws InterruptedException {
+        assertTrue(database.isWriteAheadLoggingEnabled());
+        fixture.replaceCatalog(10);
+
+        final CountDownLatch writeOpened = new CountDownLatch(1);
+        final CountDownLatch readFinished = new CountDownLatch(1);
+
+        Thread writeThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                database.beginTransactionNonExclusive();
+                try {
+                    database.delete(RecipeDatabase.RECIPE, null, null);
+                    writeOpened.countDown();
+
+                    readFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    database.setTransactionSuccessful();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    database.endTransaction();
+                }
+            }
+
+        });
+
+        writeThread.start();
+        assertTrue(writeOpened.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The write transaction is still open, so the reader sees the last committed catalog
+        int recipeCountDuringWrite = queryRecipeCount();
+        readFinished.countDown();
+        writeThread.join();
+
+        assertEquals(10, recipeCountDuringWrite);
+        assertEquals(0, queryRecipeCount());
+    }
+
+    @Test
+    public void readLatencyDuringFullSync_isReported() throws InterruptedException {
+        database.disableWriteAheadLogging();
+        long rollbackJournalP99 = measureP99ReadLatencyDuringSync();
+
+        database.enableWriteAheadLogging();
+        long writeAheadLogP99 = measureP99ReadLatencyDuringSync();
+
+        Log.i(TAG, "p99 read latency during a sync of " + CATALOG_SIZE + " recipes: "
+                + rollbackJournalP99 / 1000 + " us with the rollback journal, "
+                + writeAheadLogP99 / 1000 + " us with the write-ahead log");
+    }
+
+    /**
+     * Writes a full sync of the synthetic catalog into an empty database on a background thread,
+     * while repeatedly reading the recipe list on the calling thread until the sync completes.
+     *
+     * @return The p99 latency of the reads, in nanoseconds
+     */
+    private long measureP99ReadLatencyDuringSync() throws InterruptedException {
+        fixture.clearCatalog();
+
+        final RecipeDiff diff = RecipeDiff.compute(Collections.<Recipe>emptyList(),
+                SyntheticCatalog.create(CATALOG_SIZE));
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final AtomicBoolean isSyncing = new AtomicBoolean(true);
+
+        Thread syncThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                syncStarted.countDown();
+                DatabaseQueryUtil.applyRecipeDiff(fixture.getContentResolver(), diff);
+                isSyncing.set(false);
+            }
+
+        });
+
+        List<Long> latencies = new ArrayList<>();
+
+        syncThread.start();
+        syncStarted.await();
+
+        do {
+            long startTime = SystemClock.elapsedRealtimeNanos();
+            queryRecipeCount();
+            latencies.add(SystemClock.elapsedRealtimeNanos() - startTime);
+        } while (isSyncing.get());
+
+        syncThread.join();
+
+        Collections.sort(latencies);
+        return latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+    }
+
+    /**
+     * Reads the recipe list through the content provider, as the list screen does.
+     *
+     * @return The number of recipes read
+     */
+    private int queryRecipeCount() {
+        Cursor cursor = fixture.getContentResolver().query(
+                RecipeContentProvider.Recipes.RECIPE_LIST, RecipeListLoader.RECIPE_LIST_PROJECTION,
+                null, null, RecipeColumns.RECIPE_ID + " ASC");
+
+        try {
+            return cursor == null ? 0 : cursor.getCount();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+}
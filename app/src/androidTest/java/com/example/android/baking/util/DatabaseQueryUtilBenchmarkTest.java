@@ -0,0 +1,134 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.baking.model.Recipe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This benchmark verifies that loading the recipe graph through {@link DatabaseQueryUtil} costs
+ * a constant number of provider queries as the catalog grows, and logs the load time for each
+ * catalog size.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseQueryUtilBenchmarkTest {
+
+    private static final String TAG = DatabaseQueryUtilBenchmarkTest.class.getSimpleName();
+
+    private static final int[] CATALOG_SIZES = {10, 100, 1000, 2000};
+    private static final int EXPECTED_QUERY_COUNT = 3;
+
+    private final CountingRecipeContentProvider provider = new CountingRecipeContentProvider();
+
+    @Rule
+    public final SyntheticCatalog.Fixture fixture = new SyntheticCatalog.Fixture(provider);
+
+    @Test
+    public void retrieveRecipes_usesConstantQueryCountAsCatalogGrows() {
+        for (int catalogSize : CATALOG_SIZES) {
+            List<Recipe> catalog = fixture.replaceCatalog(catalogSize);
+
+            provider.resetQueryCount();
+            long startTime = SystemClock.elapsedRealtimeNanos();
+            List<Recipe> recipes = DatabaseQueryUtil.retrieveRecipes(fixture.getContentResolver());
+            long elapsedMillis = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000000;
+
+            Log.i(TAG, "Loaded " + catalogSize + " recipes using " + provider.getQueryCount()
+                    + " queries in " + elapsedMillis + " ms");
+
+            assertEquals(catalog, recipes);
+            assertEquals(EXPECTED_QUERY_COUNT, provider.getQueryCount());
+        }
+    }
+
+    @Test
+    public void retrieveRecipe_loadsSingleRecipeGraph() {
+        List<Recipe> catalog = fixture.replaceCatalog(CATALOG_SIZES[0]);
+
+        provider.resetQueryCount();
+        Recipe recipe = DatabaseQueryUtil.retrieveRecipe(fixture.getContentResolver(), 5);
+
+        assertEquals(catalog.get(4), recipe);
+        assertEquals(EXPECTED_QUERY_COUNT, provider.getQueryCount());
+    }
+
+    /**
+     * A generated recipe content provider that counts the number of queries it receives.
+     */
+    private static class CountingRecipeContentProvider
+            extends com.example.android.baking.provider.generated.RecipeContentProvider {
+
+        private int queryCount;
+
+        @Override
+        public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+                            @Nullable String selection, @Nullable String[] selectionArgs,
+                            @Nullable String sortOrder) {
+            queryCount++;
+            return super.query(uri, projection, selection, selectionArgs, sortOrder);
+        }
+
+        int getQueryCount() {
+            return queryCount;
+        }
+
+        void resetQueryCount() {
+            queryCount = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.mock.MockContentResolver;
+import android.util.Log;
+
+import com.example.android.baking.model.Recipe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This benchmark compares the allocations and throughput of inserting a catalog through
+ * {@link RecipeBulkWriter} against inserting it through the content provider with
+ * {@link DatabaseQueryUtil#insertRecipes}, and logs the results for each.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RecipeBulkWriterBenchmarkTest {
+
+    private static final String TAG = RecipeBulkWriterBenchmarkTest.class.getSimpleName();
+
+    private static final int CATALOG_SIZE = 2000;
+
+    @Rule
+    public final SyntheticCatalog.Fixture fixture = new SyntheticCatalog.Fixture();
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void bulkWriter_allocatesLessThanProviderInserts() {
+        List<Recipe> catalog = SyntheticCatalog.create(CATALOG_SIZE);
+        MockContentResolver contentResolver = fixture.getContentResolver();
+
+        Debug.startAllocCounting();
+        try {
+            fixture.clearCatalog();
+            Debug.resetThreadAllocCount();
+            long startTime = SystemClock.elapsedRealtimeNanos();
+            DatabaseQueryUtil.insertRecipes(contentResolver, catalog);
+            long providerMillis = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000000;
+            int providerAllocations = Debug.getThreadAllocCount();
+
+            assertEquals(catalog, DatabaseQueryUtil.retrieveRecipes(contentResolver));
+
+            fixture.clearCatalog();
+            Debug.resetThreadAllocCount();
+            startTime = SystemClock.elapsedRealtimeNanos();
+            boolean isInserted = RecipeBulkWriter.insertRecipes(fixture.getContext(), catalog);
+            long bulkWriterMillis = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000000;
+            int bulkWriterAllocations = Debug.getThreadAllocCount();
+
+            assertTrue(isInserted);
+            assertEquals(catalog, DatabaseQueryUtil.retrieveRecipes(contentResolver));
+
+            Log.i(TAG, "Inserted " + CATALOG_SIZE + " recipes through the provider in "
+                    + providerMillis + " ms with " + providerAllocations + " allocations, and "
+                    + "through the bulk writer in " + bulkWriterMillis + " ms with "
+                    + bulkWriterAllocations + " allocations");
+
+            assertTrue(bulkWriterAllocations < providerAllocations);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    @Test
+    public void bulkWriter_indexesInsertedRecipesForSearch() {
+        List<Recipe> catalog = SyntheticCatalog.create(10);
+
+        fixture.clearCatalog();
+        assertTrue(RecipeBulkWriter.insertRecipes(fixture.getContext(), catalog));
+
+        String name = catalog.get(3).getName();
+        assertTrue(DatabaseQueryUtil.searchRecipes(fixture.getContentResolver(), name, 10, 0)
+                .contains(catalog.get(3).getId()));
+    }
+
+}
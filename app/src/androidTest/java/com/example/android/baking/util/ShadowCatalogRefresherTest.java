@@ -0,0 +1,128 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures {@link ShadowCatalogRefresher} swaps in complete catalogs, including
+ * repeated refreshes, keeps the foreign keys of the swapped tables on the recipe table, and leaves
+ * the live catalog untouched when the new one is rejected.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShadowCatalogRefresherTest {
+
+    @Rule
+    public final SyntheticCatalog.Fixture fixture = new SyntheticCatalog.Fixture();
+
+    private Context context;
+    private ContentResolver contentResolver;
+
+    @Before
+    public void setUp() {
+        context = fixture.getContext();
+        contentResolver = fixture.getContentResolver();
+    }
+
+    @Test
+    public void refreshCatalog_swapsInNewCatalogEachTime() {
+        for (int catalogSize : new int[]{10, 25, 5}) {
+            List<Recipe> catalog = SyntheticCatalog.create(catalogSize);
+
+            assertTrue(ShadowCatalogRefresher.refreshCatalog(context, catalog));
+            assertEquals(catalog, DatabaseQueryUtil.retrieveRecipes(contentResolver));
+            assertEquals(Collections.singletonList(catalogSize), DatabaseQueryUtil.searchRecipes(
+                    contentResolver, catalog.get(catalogSize - 1).getName(), 1, 0));
+        }
+    }
+
+    @Test
+    public void refreshCatalog_keepsForeignKeysOnRecipeTable() {
+        // The second refresh copies its shadow tables from the tables the first one swapped in
+        assertTrue(ShadowCatalogRefresher.refreshCatalog(context, SyntheticCatalog.create(10)));
+        assertTrue(ShadowCatalogRefresher.refreshCatalog(context, SyntheticCatalog.create(5)));
+
+        SQLiteDatabase db = com.example.android.baking.provider.generated.RecipeDatabase
+                .getInstance(context).getReadableDatabase();
+        for (String table : new String[]{RecipeDatabase.INGREDIENT, RecipeDatabase.STEP}) {
+            String createSql = DatabaseUtils.stringForQuery(db,
+                    "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+                    new String[]{table});
+
+            assertTrue(createSql, createSql.matches(
+                    "(?is).*\\bREFERENCES\\s+\"?" + RecipeDatabase.RECIPE + "\"?\\s*\\(.*"));
+        }
+    }
+
+    @Test
+    public void refreshCatalog_keepsLiveCatalogWhenNewOneIsRejected() {
+        List<Recipe> catalog = SyntheticCatalog.create(10);
+        assertTrue(ShadowCatalogRefresher.refreshCatalog(context, catalog));
+
+        // Duplicate recipe IDs violate the unique recipe ID index
+        List<Recipe> invalidCatalog = new ArrayList<>(SyntheticCatalog.create(3));
+        invalidCatalog.add(SyntheticCatalog.createRecipe(1));
+
+        assertFalse(ShadowCatalogRefresher.refreshCatalog(context, invalidCatalog));
+        assertEquals(catalog, DatabaseQueryUtil.retrieveRecipes(contentResolver));
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.ContentProvider;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.test.mock.MockContentResolver;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.RecipeContentProvider;
+
+import org.junit.rules.ExternalResource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class generates synthetic recipe catalogs shaped like the recipe API feed, for use in
+ * tests and benchmarks that need catalogs larger than the one served by the API.
+ * <p>
+ * Tests that write catalogs to the app's database use the {@link Fixture} rule, which restores
+ * the catalog they replaced once they complete.
+ */
+public class SyntheticCatalog {
+
+    private static final int INGREDIENTS_PER_RECIPE = 9;
+    private static final int STEPS_PER_RECIPE = 7;
+
+    /**
+     * Creates a catalog with the given number of recipes, using recipe IDs starting at 1.
+     *
+     * @param recipeCount The number of recipes to generate
+     * @return The generated list of recipes
+     */
+    public static List<Recipe> create(int recipeCount) {
+        List<Recipe> recipes = new ArrayList<>(recipeCount);
+
+        for (int recipeId = 1; recipeId <= recipeCount; recipeId++) {
+            recipes.add(createRecipe(recipeId));
+        }
+
+        return recipes;
+    }
+
+    /**
+     * Creates a single synthetic recipe for the given ID.
+     *
+     * @param recipeId The ID of the recipe to generate
+     * @return The generated recipe
+     */
+    public static Recipe createRecipe(int recipeId) {
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        recipe.setName("Recipe " + recipeId);
+        recipe.setServings(1 + recipeId % 12);
+        recipe.setImage("");
+
+        List<Ingredient> ingredients = new ArrayList<>(INGREDIENTS_PER_RECIPE);
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setQuantity(1 + i);
+            ingredient.setMeasure("CUP");
+            ingredient.setIngredient("ingredient " + ((recipeId + i) % 250));
+            ingredients.add(ingredient);
+        }
+        recipe.setIngredients(ingredients);
+
+        List<Step> steps = new ArrayList<>(STEPS_PER_RECIPE);
+        for (int i = 0; i < STEPS_PER_RECIPE; i++) {
+            Step step = new Step();
+            step.setId(i);
+            step.setShortDescription("Step " + i + " of recipe " + recipeId);
+            step.setDescription(i + ". Long description for step " + i + " of recipe " + recipeId
+                    + ", with enough text to resemble the descriptions served by the API.");
+            step.setVideoUrl("");
+            step.setThumbnailUrl("");
+            steps.add(step);
+        }
+        recipe.setSteps(steps);
+
+        return recipe;
+    }
+
+    /**
+     * This rule routes the provider calls of a test through a fresh provider instance, and keeps
+     * a copy of the catalog stored before the test so it can be restored once the test completes.
+     */
+    public static class Fixture extends ExternalResource {
+
+        private final ContentProvider provider;
+
+        private Context context;
+        private MockContentResolver contentResolver;
+        private List<Recipe> originalRecipes;
+
+        public Fixture() {
+            this(new com.example.android.baking.provider.generated.RecipeContentProvider());
+        }
+
+        /**
+         * Creates a fixture that routes provider calls through the given provider, which must be
+         * a generated recipe content provider that hasn't been attached yet.
+         *
+         * @param provider The provider to route calls through
+         */
+        public Fixture(@NonNull ContentProvider provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        protected void before() {
+            context = InstrumentationRegistry.getTargetContext();
+            provider.attachInfo(context, null);
+
+            contentResolver = new MockContentResolver(context);
+            contentResolver.addProvider(RecipeContentProvider.AUTHORITY, provider);
+
+            originalRecipes = DatabaseQueryUtil.retrieveRecipes(contentResolver);
+        }
+
+        @Override
+        protected void after() {
+            clearCatalog();
+            DatabaseQueryUtil.insertRecipes(contentResolver, originalRecipes);
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public MockContentResolver getContentResolver() {
+            return contentResolver;
+        }
+
+        public SQLiteDatabase getDatabase() {
+            return com.example.android.baking.provider.generated.RecipeDatabase
+                    .getInstance(context).getWritableDatabase();
+        }
+
+        /**
+         * Replaces the stored catalog with a synthetic catalog of the given number of recipes,
+         * inserted through the content provider.
+         *
+         * @param recipeCount The number of recipes to generate
+         * @return The generated list of recipes
+         */
+        public List<Recipe> replaceCatalog(int recipeCount) {
+            List<Recipe> catalog = create(recipeCount);
+
+            clearCatalog();
+            DatabaseQueryUtil.insertRecipes(contentResolver, catalog);
+
+            return catalog;
+        }
+
+        /**
+         * Deletes every recipe, ingredient and step stored in the database.
+         */
+        public void clearCatalog() {
+            DatabaseQueryUtil.deleteRecipes(contentResolver);
+            DatabaseQueryUtil.deleteIngredients(contentResolver);
+            DatabaseQueryUtil.deleteSteps(contentResolver);
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.model;
+
+import java.util.List;
+
+/**
+ * This class is the Java representation of a set of changes to the recipe catalog, as returned
+ * by the delta feed for the catalog version a client last synced.
+ */
+public class RecipeChanges {
+
+    private String version;
+    private List<Recipe> changed;
+    private List<Integer> deleted;
+
+    public RecipeChanges() {
+        // Default constructor used by Jackson to convert API JSON into Java object
+    }
+
+    /**
+     * Retrieves the catalog version these changes bring the client up to, which is sent as the
+     * starting point of the next delta request.
+     *
+     * @return The new catalog version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Retrieves the recipes that were added or modified since the requested version, in full.
+     *
+     * @return The added and modified recipes
+     */
+    public List<Recipe> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<Recipe> changed) {
+        this.changed = changed;
+    }
+
+    /**
+     * Retrieves the IDs of the recipes that were deleted since the requested version.
+     *
+     * @return The IDs of the deleted recipes
+     */
+    public List<Integer> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Integer> deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeChanges{" +
+                "version='" + version + '\'' +
+                ", changed=" + (changed == null ? 0 : changed.size()) +
+                ", deleted=" + (deleted == null ? 0 : deleted.size()) +
+                '}';
+    }
+
+}
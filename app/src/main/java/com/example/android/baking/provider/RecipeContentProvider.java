@@ -40,38 +40,113 @@
 
 package com.example.android.baking.provider;
 
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import net.simonvt.schematic.annotation.ContentProvider;
 import net.simonvt.schematic.annotation.ContentUri;
 import net.simonvt.schematic.annotation.InexactContentUri;
+import net.simonvt.schematic.annotation.NotifyDelete;
+import net.simonvt.schematic.annotation.NotifyInsert;
+import net.simonvt.schematic.annotation.NotifyUpdate;
 import net.simonvt.schematic.annotation.TableEndpoint;
 
+import java.util.Collection;
+import java.util.List;
+
 @ContentProvider(authority = RecipeContentProvider.AUTHORITY, database = RecipeDatabase.class)
 public class RecipeContentProvider {
 
     public static final String AUTHORITY =
             "com.example.android.baking.provider.RecipeContentProvider";
 
-    static final Uri BASE_CONTENT_URI = Uri.parse("content://" + AUTHORITY);
+    public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + AUTHORITY);
 
     private static final String RECIPES_PATH = "recipes";
     private static final String INGREDIENTS_PATH = "ingredients";
     private static final String STEPS_PATH = "setps";
+    private static final String SEARCH_PATH = "search";
+    private static final String SYNC_HISTORY_PATH = "sync_history";
+
+    private static final Uri[] NO_NOTIFY_URIS = new Uri[0];
+
+    /**
+     * The most change notifications sent at the end of a batch. Past this, observers are better
+     * off reloading once than being woken up once per changed row.
+     */
+    private static final int MAX_BATCH_NOTIFY_URIS = 32;
+
+    /**
+     * Whether change notifications are being held back on the calling thread until the current
+     * batch of operations completes. Batches are applied on the calling thread, since the
+     * provider runs in the same process as the sync.
+     */
+    private static final ThreadLocal<Boolean> isBatchInProgress = new ThreadLocal<Boolean>() {
+
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+
+    };
 
     @TableEndpoint(table = RecipeDatabase.RECIPE)
     public static class Recipes {
 
+        public static final int NO_RECIPE_ID = -1;
+
         @ContentUri(path = RECIPES_PATH, type = "vnd.android.cursor.dir/recipes",
                 defaultSort = RecipeColumns.RECIPE_ID + " ASC")
         public static final Uri RECIPE_LIST = buildUri(RECIPES_PATH);
 
         @InexactContentUri(path = RECIPES_PATH + "/#", type = "vnd.android.cursor.item/recipes",
-                name = RecipeColumns.ID, whereColumn = RecipeColumns.ID, pathSegment = 1)
+                name = RecipeColumns.RECIPE_ID, whereColumn = RecipeColumns.RECIPE_ID,
+                pathSegment = 1)
         public static Uri withId(int id) {
             return buildUri(RECIPES_PATH, String.valueOf(id));
         }
 
+        /**
+         * Retrieves the recipe ID from the given recipe {@link Uri}, as built by
+         * {@link #withId(int)}.
+         *
+         * @param uri The Uri to retrieve the recipe ID from
+         * @return The recipe ID, or {@link #NO_RECIPE_ID} if the Uri doesn't refer to one recipe
+         */
+        public static int getRecipeId(Uri uri) {
+            if (uri == null) return NO_RECIPE_ID;
+
+            List<String> pathSegments = uri.getPathSegments();
+            if (pathSegments.size() != 2 || !RECIPES_PATH.equals(pathSegments.get(0))) {
+                return NO_RECIPE_ID;
+            }
+
+            try {
+                return Integer.parseInt(pathSegments.get(1));
+            } catch (NumberFormatException e) {
+                return NO_RECIPE_ID;
+            }
+        }
+
+        @NotifyInsert(paths = RECIPES_PATH)
+        public static Uri[] onInsert(ContentValues values) {
+            return notifyUris(RECIPE_LIST);
+        }
+
+        @NotifyUpdate(paths = RECIPES_PATH)
+        public static Uri[] onUpdate(Context context, Uri uri, String where, String[] whereArgs) {
+            return notifyUris(uri);
+        }
+
+        @NotifyDelete(paths = RECIPES_PATH)
+        public static Uri[] onDelete(Context context, Uri uri) {
+            return notifyUris(uri);
+        }
+
     }
 
     @TableEndpoint(table = RecipeDatabase.INGREDIENT)
@@ -88,6 +163,21 @@ public class RecipeContentProvider {
             return buildUri(INGREDIENTS_PATH, String.valueOf(id));
         }
 
+        @NotifyInsert(paths = INGREDIENTS_PATH)
+        public static Uri[] onInsert(ContentValues values) {
+            return notifyUris(INGREDIENT_LIST);
+        }
+
+        @NotifyUpdate(paths = INGREDIENTS_PATH)
+        public static Uri[] onUpdate(Context context, Uri uri, String where, String[] whereArgs) {
+            return notifyUris(uri);
+        }
+
+        @NotifyDelete(paths = INGREDIENTS_PATH)
+        public static Uri[] onDelete(Context context, Uri uri) {
+            return notifyUris(uri);
+        }
+
     }
 
     @TableEndpoint(table = RecipeDatabase.STEP)
@@ -102,6 +192,139 @@ public class RecipeContentProvider {
             return buildUri(STEPS_PATH, String.valueOf(id));
         }
 
+        @NotifyInsert(paths = STEPS_PATH)
+        public static Uri[] onInsert(ContentValues values) {
+            return notifyUris(STEP_LIST);
+        }
+
+        @NotifyUpdate(paths = STEPS_PATH)
+        public static Uri[] onUpdate(Context context, Uri uri, String where, String[] whereArgs) {
+            return notifyUris(uri);
+        }
+
+        @NotifyDelete(paths = STEPS_PATH)
+        public static Uri[] onDelete(Context context, Uri uri) {
+            return notifyUris(uri);
+        }
+
+    }
+
+    @TableEndpoint(table = RecipeDatabase.RECIPE_SEARCH)
+    public static class Search {
+
+        /**
+         * The full-text search index. Queries should select on
+         * {@link RecipeDatabase#RECIPE_SEARCH} MATCH the search terms.
+         */
+        @ContentUri(path = SEARCH_PATH, type = "vnd.android.cursor.dir/search")
+        public static final Uri SEARCH = buildUri(SEARCH_PATH);
+
+        @NotifyInsert(paths = SEARCH_PATH)
+        public static Uri[] onInsert(ContentValues values) {
+            return notifyUris(SEARCH);
+        }
+
+        @NotifyDelete(paths = SEARCH_PATH)
+        public static Uri[] onDelete(Context context, Uri uri) {
+            return notifyUris(uri);
+        }
+
+    }
+
+    @TableEndpoint(table = RecipeDatabase.SYNC_HISTORY)
+    public static class SyncHistory {
+
+        /**
+         * The metrics of the most recent syncs, newest first. The provider is exported, so the
+         * manifest guards this Uri with a signature permission: only this app can read or write
+         * it. For debugging, a debuggable build can dump it with
+         * {@code adb shell run-as com.example.android.baking content query --uri} followed by
+         * this Uri.
+         */
+        @ContentUri(path = SYNC_HISTORY_PATH, type = "vnd.android.cursor.dir/sync_history",
+                defaultSort = SyncHistoryColumns.ID + " DESC")
+        public static final Uri SYNC_HISTORY = buildUri(SYNC_HISTORY_PATH);
+
+        /**
+         * Nothing observes the sync history, and a notification under the base Uri would wake
+         * every observer of the recipe catalog, so recording a sync notifies no Uri.
+         */
+        @NotifyInsert(paths = SYNC_HISTORY_PATH)
+        public static Uri[] onInsert(ContentValues values) {
+            return NO_NOTIFY_URIS;
+        }
+
+        @NotifyDelete(paths = SYNC_HISTORY_PATH)
+        public static Uri[] onDelete(Context context, Uri uri) {
+            return NO_NOTIFY_URIS;
+        }
+
+    }
+
+    /**
+     * Determines whether a change notified for the given {@link Uri} may have changed the recipe
+     * catalog, which is the case for the recipe, ingredient and step tables, and for the base
+     * Uri notified at the end of a large batch.
+     *
+     * @param uri The notified Uri, or null if it is unknown
+     * @return True if recipes may have changed, false if the Uri refers to another table
+     */
+    public static boolean isCatalogUri(@Nullable Uri uri) {
+        if (uri == null) return true;
+
+        List<String> pathSegments = uri.getPathSegments();
+        if (pathSegments.isEmpty()) return true;
+
+        String path = pathSegments.get(0);
+        return RECIPES_PATH.equals(path) || INGREDIENTS_PATH.equals(path)
+                || STEPS_PATH.equals(path);
+    }
+
+    /**
+     * Holds back the change notifications of every insert and delete made on the calling thread
+     * until {@link #endBatch(ContentResolver, Collection)} is called. This allows a batch of
+     * operations to be applied with a single notification at the end, rather than one per row.
+     */
+    public static void beginBatch() {
+        isBatchInProgress.set(true);
+    }
+
+    /**
+     * Ends the batch started on the calling thread by {@link #beginBatch()}, and notifies
+     * observers of each of the given Uris that the batch changed. If the batch changed more Uris
+     * than is worth notifying individually, a single notification for all of the provider's
+     * content is sent instead.
+     *
+     * @param contentResolver The {@link ContentResolver} used to send the notifications
+     * @param changedUris     The Uris whose content the batch changed, empty if nothing changed
+     */
+    public static void endBatch(@NonNull ContentResolver contentResolver,
+                                @NonNull Collection<Uri> changedUris) {
+        isBatchInProgress.set(false);
+
+        if (changedUris.size() > MAX_BATCH_NOTIFY_URIS) {
+            contentResolver.notifyChange(BASE_CONTENT_URI, null);
+            return;
+        }
+
+        for (Uri uri : changedUris) {
+            contentResolver.notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Helper method that returns the given {@link Uri} to notify of a change, unless a batch is in
+     * progress on the calling thread, in which case no Uri is notified.
+     *
+     * @param uri The {@link Uri} that was changed
+     * @return The Uris to notify of the change
+     */
+    private static Uri[] notifyUris(Uri uri) {
+        if (isBatchInProgress.get()) {
+            return NO_NOTIFY_URIS;
+        }
+
+        return new Uri[]{uri};
     }
 
     /**
@@ -40,7 +40,13 @@
 
 package com.example.android.baking.provider;
 
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
 import net.simonvt.schematic.annotation.Database;
+import net.simonvt.schematic.annotation.ExecOnCreate;
+import net.simonvt.schematic.annotation.OnConfigure;
+import net.simonvt.schematic.annotation.OnUpgrade;
 import net.simonvt.schematic.annotation.Table;
 
 /**
@@ -50,7 +56,7 @@ import net.simonvt.schematic.annotation.Table;
 @Database(version = RecipeDatabase.VERSION)
 public class RecipeDatabase {
 
-    public static final int VERSION = 1;
+    public static final int VERSION = 4;
 
     @Table(RecipeColumns.class)
     public static final String RECIPE = "recipe";
@@ -61,4 +67,78 @@ public class RecipeDatabase {
     @Table(StepColumns.class)
     public static final String STEP = "step";
 
+    public static final String RECIPE_SEARCH = "recipe_search";
+
+    public static final String SYNC_HISTORY = "sync_history";
+
+    /**
+     * Recipes are identified by their API recipe ID, so it must be unique.
+     */
+    @ExecOnCreate
+    public static final String CREATE_RECIPE_ID_INDEX = "CREATE UNIQUE INDEX IF NOT EXISTS "
+            + "recipe_recipe_id_idx ON " + RECIPE + " (" + RecipeColumns.RECIPE_ID + ")";
+
+    /**
+     * Ingredients are looked up and ordered by their recipe ID, then by insertion order.
+     */
+    @ExecOnCreate
+    public static final String CREATE_INGREDIENT_RECIPE_ID_INDEX = "CREATE INDEX IF NOT EXISTS "
+            + "ingredient_recipe_id_idx ON " + INGREDIENT + " (" + IngredientColumns.RECIPE_ID
+            + ", " + IngredientColumns.ID + ")";
+
+    /**
+     * Steps are looked up and ordered by their recipe ID, then by their step ID.
+     */
+    @ExecOnCreate
+    public static final String CREATE_STEP_RECIPE_ID_INDEX = "CREATE INDEX IF NOT EXISTS "
+            + "step_recipe_id_idx ON " + STEP + " (" + StepColumns.RECIPE_ID + ", "
+            + StepColumns.STEP_ID + ")";
+
+    /**
+     * The full-text index over recipe names, ingredient names and step descriptions. Prefix
+     * indexes are kept for short prefixes so that search-as-you-type queries stay fast.
+     */
+    @ExecOnCreate
+    public static final String CREATE_RECIPE_SEARCH_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS "
+            + RECIPE_SEARCH + " USING fts4(" + RecipeSearchColumns.NAME + ", "
+            + RecipeSearchColumns.INGREDIENTS + ", " + RecipeSearchColumns.STEPS + ", "
+            + "prefix=\"2,3\")";
+
+    /**
+     * The metrics of the most recent syncs. The table isn't part of the recipe catalog, so it is
+     * kept out of the schematic tables that catalog refreshes rebuild.
+     */
+    @ExecOnCreate
+    public static final String CREATE_SYNC_HISTORY_TABLE = "CREATE TABLE IF NOT EXISTS "
+            + SYNC_HISTORY + " (" + SyncHistoryColumns.ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + SyncHistoryColumns.STARTED_AT + " INTEGER NOT NULL, "
+            + SyncHistoryColumns.MODE + " TEXT NOT NULL, "
+            + SyncHistoryColumns.SUCCEEDED + " INTEGER NOT NULL, "
+            + SyncHistoryColumns.TOTAL_MILLIS + " INTEGER, "
+            + SyncHistoryColumns.DNS_MILLIS + " INTEGER, "
+            + SyncHistoryColumns.CONNECT_MILLIS + " INTEGER, "
+            + SyncHistoryColumns.DOWNLOAD_MILLIS + " INTEGER, "
+            + SyncHistoryColumns.BYTES_DOWNLOADED + " INTEGER, "
+            + SyncHistoryColumns.PARSE_MILLIS + " INTEGER, "
+            + SyncHistoryColumns.ROWS_INSERTED + " INTEGER, "
+            + SyncHistoryColumns.ROWS_UPDATED + " INTEGER, "
+            + SyncHistoryColumns.ROWS_DELETED + " INTEGER, "
+            + SyncHistoryColumns.TRANSACTION_MILLIS + " INTEGER)";
+
+    /**
+     * Opens the database in write-ahead-log mode. Readers then get their own pooled connections
+     * and keep seeing the last committed snapshot while a sync transaction is being written,
+     * instead of waiting for it to commit.
+     */
+    @OnConfigure
+    public static void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+    }
+
+    @OnUpgrade
+    public static void onUpgrade(Context context, SQLiteDatabase db, int oldVersion,
+                                 int newVersion) {
+        RecipeDatabaseMigrations.migrate(db, oldVersion, newVersion);
+    }
+
 }
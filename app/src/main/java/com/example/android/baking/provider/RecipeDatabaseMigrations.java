@@ -0,0 +1,188 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.provider;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import timber.log.Timber;
+
+/**
+ * This class holds the incremental migrations of the {@link RecipeDatabase} schema. Each
+ * migration upgrades the schema by exactly one version in place, so a database of any older
+ * version is upgraded by applying each of the migrations after it in order, without dropping the
+ * data already stored.
+ * <p>
+ * To change the schema, bump {@link RecipeDatabase#VERSION} and add a migration to
+ * {@link #MIGRATIONS} that upgrades the previous version to the new one.
+ */
+public class RecipeDatabaseMigrations {
+
+    private static final Migration[] MIGRATIONS = {
+
+            new Migration(2) {
+
+                /**
+                 * Adds the recipe ID indexes, removing any duplicate recipes left behind by
+                 * overlapping syncs first so the unique index can be created.
+                 * <p>
+                 * Ingredients and steps are keyed by recipe ID rather than by recipe row, so each
+                 * duplicate recipe also left a second copy of its ingredients and steps behind.
+                 * Those are removed in the same way, keeping the row of the latest insert for
+                 * each step ID and for each distinct ingredient. If the duplicates were inserted
+                 * from different versions of a recipe, the next sync replaces any ingredient left
+                 * over from the older one, since the diff compares the whole ingredient list.
+                 */
+                @Override
+                void apply(@NonNull SQLiteDatabase db) {
+                    db.execSQL("DELETE FROM " + RecipeDatabase.RECIPE
+                            + " WHERE " + RecipeColumns.ID + " NOT IN (SELECT MAX("
+                            + RecipeColumns.ID + ") FROM " + RecipeDatabase.RECIPE
+                            + " GROUP BY " + RecipeColumns.RECIPE_ID + ")");
+
+                    db.execSQL("DELETE FROM " + RecipeDatabase.INGREDIENT
+                            + " WHERE " + IngredientColumns.ID + " NOT IN (SELECT MAX("
+                            + IngredientColumns.ID + ") FROM " + RecipeDatabase.INGREDIENT
+                            + " GROUP BY " + IngredientColumns.RECIPE_ID + ", "
+                            + IngredientColumns.NAME + ", " + IngredientColumns.MEASURE + ", "
+                            + IngredientColumns.QUANTITY + ")");
+
+                    db.execSQL("DELETE FROM " + RecipeDatabase.STEP
+                            + " WHERE " + StepColumns.ID + " NOT IN (SELECT MAX("
+                            + StepColumns.ID + ") FROM " + RecipeDatabase.STEP
+                            + " GROUP BY " + StepColumns.RECIPE_ID + ", " + StepColumns.STEP_ID
+                            + ")");
+
+                    db.execSQL(RecipeDatabase.CREATE_RECIPE_ID_INDEX);
+                    db.execSQL(RecipeDatabase.CREATE_INGREDIENT_RECIPE_ID_INDEX);
+                    db.execSQL(RecipeDatabase.CREATE_STEP_RECIPE_ID_INDEX);
+                }
+
+            },
+
+            new Migration(3) {
+
+                /**
+                 * Adds the full-text search index and fills it from the recipes already stored.
+                 */
+                @Override
+                void apply(@NonNull SQLiteDatabase db) {
+                    db.execSQL(RecipeDatabase.CREATE_RECIPE_SEARCH_TABLE);
+
+                    db.execSQL("INSERT INTO " + RecipeDatabase.RECIPE_SEARCH + " ("
+                            + RecipeSearchColumns.DOC_ID + ", " + RecipeSearchColumns.NAME + ", "
+                            + RecipeSearchColumns.INGREDIENTS + ", " + RecipeSearchColumns.STEPS
+                            + ") SELECT r." + RecipeColumns.RECIPE_ID + ", r." + RecipeColumns.NAME
+                            + ", (SELECT group_concat(i." + IngredientColumns.NAME + ", ' ') FROM "
+                            + RecipeDatabase.INGREDIENT + " i WHERE i."
+                            + IngredientColumns.RECIPE_ID + " = r." + RecipeColumns.RECIPE_ID + ")"
+                            + ", (SELECT group_concat(ifnull(s." + StepColumns.SHORT_DESCRIPTION
+                            + ", '') || ' ' || ifnull(s." + StepColumns.DESCRIPTION + ", ''), ' ')"
+                            + " FROM " + RecipeDatabase.STEP + " s WHERE s." + StepColumns.RECIPE_ID
+                            + " = r." + RecipeColumns.RECIPE_ID + ")"
+                            + " FROM " + RecipeDatabase.RECIPE + " r");
+                }
+
+            },
+
+            new Migration(4) {
+
+                /**
+                 * Adds the sync history, which starts out empty.
+                 */
+                @Override
+                void apply(@NonNull SQLiteDatabase db) {
+                    db.execSQL(RecipeDatabase.CREATE_SYNC_HISTORY_TABLE);
+                }
+
+            }
+
+    };
+
+    /**
+     * Upgrades the given database from the old version to the new version by applying each of
+     * the migrations in between, in order. This is called within the upgrade transaction, so a
+     * failed migration leaves the database at its old version.
+     *
+     * @param db         The database to upgrade
+     * @param oldVersion The version the database is currently at
+     * @param newVersion The version to upgrade the database to
+     */
+    static void migrate(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        int version = oldVersion;
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.toVersion <= oldVersion || migration.toVersion > newVersion) continue;
+
+            if (migration.toVersion != version + 1) {
+                throw new IllegalStateException("Missing database migration from version "
+                        + version + " to " + (version + 1));
+            }
+
+            Timber.d("Migrating database from version " + version + " to "
+                    + migration.toVersion);
+            migration.apply(db);
+            version = migration.toVersion;
+        }
+
+        if (version != newVersion) {
+            throw new IllegalStateException("Missing database migration from version "
+                    + version + " to " + newVersion);
+        }
+    }
+
+    /**
+     * This class represents a single migration that upgrades the schema to the given version from
+     * the version before it.
+     */
+    abstract static class Migration {
+
+        final int toVersion;
+
+        Migration(int toVersion) {
+            this.toVersion = toVersion;
+        }
+
+        abstract void apply(@NonNull SQLiteDatabase db);
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.service;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.util.AppPreferences;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * This interceptor stops a recipe feed response from being parsed when the server confirmed that
+ * the feed hasn't changed since the stored catalog was synced from it.
+ * <p>
+ * The HTTP cache revalidates the feed with a conditional request, and on a 304 Not Modified
+ * response it hands back the cached feed as a 200 response. If the validator of that feed is the
+ * one the stored catalog was synced from, this interceptor replaces it with a bodiless 304
+ * response, which Retrofit reports without running the converter. If the stored catalog came
+ * from an older feed, for instance because the last sync failed to write it, the cached feed is
+ * passed through to be applied as usual.
+ */
+public class NotModifiedInterceptor implements Interceptor {
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    private final Context context;
+
+    NotModifiedInterceptor(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        Response networkResponse = response.networkResponse();
+        if (networkResponse == null
+                || networkResponse.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return response;
+        }
+
+        String validator = getValidator(response.headers());
+        if (validator == null || !validator.equals(AppPreferences.getCatalogValidator(context))) {
+            return response;
+        }
+
+        response.close();
+        return response.newBuilder()
+                .code(HttpURLConnection.HTTP_NOT_MODIFIED)
+                .message("Not Modified")
+                .body(ResponseBody.create(null, new byte[0]))
+                .build();
+    }
+
+    /**
+     * Retrieves the validator identifying the version of a response's content, preferring its
+     * ETag over its Last-Modified date.
+     *
+     * @param headers The headers of the response
+     * @return The validator, or null if the response has neither header
+     */
+    @Nullable
+    public static String getValidator(@NonNull Headers headers) {
+        String etag = headers.get(HEADER_ETAG);
+        if (etag != null) return etag;
+
+        return headers.get(HEADER_LAST_MODIFIED);
+    }
+
+    /**
+     * Retrieves the number of body bytes that crossed the network for the given response, or that
+     * were saved by revalidating the cached response instead of downloading it again.
+     *
+     * @param response The raw response returned by the client
+     * @return The number of bytes, or -1 if the length is unknown
+     */
+    public static long getTransferLength(@NonNull Response response) {
+        Response sourceResponse = response.networkResponse();
+        if (sourceResponse == null
+                || sourceResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            sourceResponse = response.cacheResponse();
+        }
+
+        if (sourceResponse == null) return -1;
+
+        String contentLength = sourceResponse.header(HEADER_CONTENT_LENGTH);
+        if (contentLength == null) return -1;
+
+        try {
+            return Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+            Timber.w("Invalid content length " + contentLength);
+            return -1;
+        }
+    }
+
+}
@@ -41,11 +41,17 @@
 package com.example.android.baking.service;
 
 import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.RecipeChanges;
 
 import java.util.List;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 /**
  * This is a Retrofit service interface that fetches various network resources such as the list
@@ -53,12 +59,58 @@ import retrofit2.http.GET;
  */
 public interface RecipeService {
 
+    String RECIPES_PATH = "/topher/2017/May/59121517_baking/baking.json";
+
+    String RECIPE_CHANGES_PATH = "/topher/2017/May/59121517_baking/changes";
+
+    /**
+     * The response header through which a server that supports the delta feed reports the
+     * version of the catalog it returned.
+     */
+    String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+
     /**
-     * Retrieves the list of recipes from the defined endpoint.
+     * Retrieves the list of recipes from the defined endpoint. The cached list is always
+     * revalidated with the server, so a sync never misses an update.
      *
      * @return A list of recipes
      */
-    @GET("/topher/2017/May/59121517_baking/baking.json")
+    @Headers("Cache-Control: no-cache")
+    @GET(RECIPES_PATH)
     Call<List<Recipe>> getRecipes();
 
+    /**
+     * Retrieves the list of recipes from the feed at the given URL, such as one of the additional
+     * feeds that are merged with the main one.
+     *
+     * @param feedUrl The full URL of the feed
+     * @return A list of recipes
+     */
+    @Headers("Cache-Control: no-cache")
+    @GET
+    Call<List<Recipe>> getRecipes(@Url String feedUrl);
+
+    /**
+     * Retrieves the list of recipes from the same endpoint as {@link #getRecipes()}, without
+     * buffering or converting the response, so that it can be parsed as it is downloaded.
+     *
+     * @return The raw response body of the list of recipes
+     */
+    @Headers("Cache-Control: no-cache")
+    @Streaming
+    @GET(RECIPES_PATH)
+    Call<ResponseBody> streamRecipes();
+
+    /**
+     * Retrieves the recipes that were changed or deleted since the given catalog version. Servers
+     * that don't support the delta feed respond with an error status, in which case the full
+     * list of recipes must be fetched instead.
+     *
+     * @param since The catalog version the stored catalog was last synced to
+     * @return The changes made since the given version
+     */
+    @Headers("Cache-Control: no-cache")
+    @GET(RECIPE_CHANGES_PATH)
+    Call<RecipeChanges> getRecipeChanges(@Query("since") String since);
+
 }
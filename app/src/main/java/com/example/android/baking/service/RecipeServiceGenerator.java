@@ -40,36 +40,209 @@
 
 package com.example.android.baking.service;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.example.android.baking.R;
+import com.example.android.baking.util.SyncMetrics;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 
 /**
  * This class is a Retrofit service generator that is responsible for isolating the service
  * creation logic to a single place inside the application.
+ * <p>
+ * Every service shares one {@link OkHttpClient} backed by a disk cache, so repeated requests are
+ * revalidated with the server rather than downloaded again. The client's connection pool is also
+ * shared, so feeds fetched at the same time reuse each other's connections.
+ * <p>
+ * Images loaded by Picasso and media played by ExoPlayer go through the same client, so the whole
+ * app shares one connection pool, dispatcher and cache budget. Connections opened for the recipe
+ * feed are reused for the thumbnails and videos on the same host, and HTTP/2 multiplexes them over
+ * a single TLS session where the server supports it.
  */
 public class RecipeServiceGenerator {
 
     private static final String BASE_URL = "https://d17h27t6h515a5.cloudfront.net/";
 
-    private static Retrofit.Builder builder = new Retrofit.Builder()
-            .baseUrl(BASE_URL)
-            .addConverterFactory(JacksonConverterFactory.create());
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+    private static final long HTTP_CACHE_SIZE_BYTES = 20 * 1024 * 1024;
+
+    /**
+     * Videos are streamed with range requests and would evict everything else from the shared
+     * cache, so their responses are never stored in it.
+     */
+    private static final CacheControl MEDIA_CACHE_CONTROL = new CacheControl.Builder()
+            .noStore()
+            .build();
+
+    private static String baseUrl = BASE_URL;
 
-    private static Retrofit retrofit = builder.build();
+    private static OkHttpClient httpClient;
+    private static OkHttpClient serviceClient;
+    private static Retrofit retrofit;
+    private static Picasso picasso;
 
-    private static OkHttpClient.Builder httpClient
-            = new OkHttpClient.Builder();
+    /**
+     * Retrieves the process-wide HTTP client, creating it on first use. Clients for other uses
+     * should be derived from it with {@link OkHttpClient#newBuilder()}, so that they share its
+     * connection pool and cache.
+     *
+     * @param context The {@link Context} used to locate the cache directory
+     * @return The shared HTTP client
+     */
+    public static synchronized OkHttpClient getHttpClient(@NonNull Context context) {
+        if (httpClient == null) {
+            File cacheDirectory = new File(context.getApplicationContext().getCacheDir(),
+                    HTTP_CACHE_DIRECTORY);
+
+            httpClient = new OkHttpClient.Builder()
+                    .cache(new Cache(cacheDirectory, HTTP_CACHE_SIZE_BYTES))
+                    .build();
+        }
+
+        return httpClient;
+    }
 
     /**
      * Returns an implementation of the specified Retrofit service class.
      *
+     * @param context      The {@link Context} used to set up the shared HTTP client
      * @param serviceClass The service class of type T
      * @param <T>          The class type
      * @return An implementation of the service class
      */
-    public static <T> T createService(Class<T> serviceClass) {
+    public static synchronized <T> T createService(@NonNull Context context,
+                                                   Class<T> serviceClass) {
+        if (retrofit == null) {
+            retrofit = new Retrofit.Builder()
+                    .baseUrl(baseUrl)
+                    .client(getServiceClient(context))
+                    .addConverterFactory(JacksonConverterFactory.create())
+                    .build();
+        }
+
         return retrofit.create(serviceClass);
     }
 
+    /**
+     * Returns an implementation of the specified Retrofit service class whose calls add their
+     * network timings to the given sync metrics. The metrics are attached to each request as its
+     * tag, so calls that outlive the sync never count towards another one.
+     *
+     * @param context      The {@link Context} used to set up the shared HTTP client
+     * @param serviceClass The service class of type T
+     * @param metrics      The metrics of the sync making the calls
+     * @param <T>          The class type
+     * @return An implementation of the service class
+     */
+    public static synchronized <T> T createService(@NonNull Context context,
+                                                   Class<T> serviceClass,
+                                                   @NonNull final SyncMetrics metrics) {
+        final OkHttpClient serviceClient = getServiceClient(context);
+
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .callFactory(new Call.Factory() {
+
+                    @Override
+                    public Call newCall(@NonNull Request request) {
+                        return serviceClient.newCall(request.newBuilder().tag(metrics).build());
+                    }
+
+                })
+                .addConverterFactory(JacksonConverterFactory.create())
+                .build()
+                .create(serviceClass);
+    }
+
+    /**
+     * Helper method that retrieves the HTTP client of the recipe services, which is derived from
+     * the shared client.
+     */
+    private static OkHttpClient getServiceClient(@NonNull Context context) {
+        if (serviceClient == null) {
+            serviceClient = getHttpClient(context).newBuilder()
+                    .addInterceptor(new NotModifiedInterceptor(context))
+                    .eventListenerFactory(SyncMetricsListener.FACTORY)
+                    .build();
+        }
+
+        return serviceClient;
+    }
+
+    /**
+     * Points the services created from now on at the given base URL rather than the API, e.g. at
+     * a local server in tests. Services created earlier keep using the URL they were created with.
+     *
+     * @param baseUrl The base URL of the services, or null to use the API again
+     */
+    @VisibleForTesting
+    public static synchronized void setBaseUrl(@Nullable String baseUrl) {
+        RecipeServiceGenerator.baseUrl = baseUrl != null ? baseUrl : BASE_URL;
+        retrofit = null;
+    }
+
+    /**
+     * Retrieves the process-wide Picasso instance, creating it on first use. Its images are
+     * downloaded and cached through the shared HTTP client.
+     *
+     * @param context The {@link Context} used to set up Picasso and the shared HTTP client
+     * @return The shared Picasso instance
+     */
+    public static synchronized Picasso getPicasso(@NonNull Context context) {
+        if (picasso == null) {
+            picasso = new Picasso.Builder(context.getApplicationContext())
+                    .downloader(new OkHttp3Downloader(getHttpClient(context)))
+                    .build();
+        }
+
+        return picasso;
+    }
+
+    /**
+     * Creates a factory of ExoPlayer data sources that stream over the shared HTTP client. Local
+     * URIs are still read directly.
+     *
+     * @param context   The {@link Context} used to set up the shared HTTP client
+     * @param userAgent The user agent sent with every media request
+     * @return A new data source factory
+     */
+    public static DataSource.Factory createMediaDataSourceFactory(@NonNull Context context,
+                                                                  @NonNull String userAgent) {
+        OkHttpDataSourceFactory httpDataSourceFactory = new OkHttpDataSourceFactory(
+                getHttpClient(context), userAgent, null, MEDIA_CACHE_CONTROL);
+
+        return new DefaultDataSourceFactory(context, null, httpDataSourceFactory);
+    }
+
+    /**
+     * Retrieves the URLs of the recipe feeds to fetch and merge with the main feed, in order of
+     * precedence.
+     *
+     * @param context The {@link Context} used to access the app resources
+     * @return The URLs of the additional feeds, which is empty if only the main feed is used
+     */
+    public static List<String> getAdditionalFeedUrls(@NonNull Context context) {
+        return Arrays.asList(context.getResources()
+                .getStringArray(R.array.additional_recipe_feed_urls));
+    }
+
 }
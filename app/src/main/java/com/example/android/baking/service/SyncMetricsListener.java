@@ -0,0 +1,135 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.util.SyncMetrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+/**
+ * This event listener adds the DNS, connect and download timings of each call made by the recipe
+ * services to the metrics of the sync that made it, if any.
+ * <p>
+ * A listener is created for every call whose request is tagged with {@link SyncMetrics}, as done
+ * by {@link RecipeServiceGenerator#createService(android.content.Context, Class, SyncMetrics)}.
+ * Calls that outlive their sync therefore never count towards another one.
+ */
+public class SyncMetricsListener extends EventListener {
+
+    public static final EventListener.Factory FACTORY = new EventListener.Factory() {
+
+        @Override
+        public EventListener create(@NonNull Call call) {
+            Object tag = call.request().tag();
+            return tag instanceof SyncMetrics
+                    ? new SyncMetricsListener((SyncMetrics) tag) : EventListener.NONE;
+        }
+
+    };
+
+    private final SyncMetrics metrics;
+
+    private long dnsStartNanos;
+    private long connectStartNanos;
+    private long responseBodyStartNanos;
+
+    private SyncMetricsListener(@NonNull SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        metrics.addDnsMillis(millisSince(dnsStartNanos));
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        metrics.addConnectMillis(millisSince(connectStartNanos));
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                              @NonNull Proxy proxy, @Nullable Protocol protocol,
+                              @NonNull IOException ioe) {
+        metrics.addConnectMillis(millisSince(connectStartNanos));
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        responseBodyStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        metrics.addDownloadMillis(millisSince(responseBodyStartNanos));
+        metrics.addBytesDownloaded(byteCount);
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+}
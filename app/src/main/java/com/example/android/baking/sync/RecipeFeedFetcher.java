@@ -0,0 +1,217 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.service.NotModifiedInterceptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Call;
+import retrofit2.Response;
+import timber.log.Timber;
+
+/**
+ * This class fetches several recipe feeds at once and merges them into a single catalog.
+ * <p>
+ * Every feed is fetched on a thread of its own through the shared HTTP client, so the feeds share
+ * its connection pool and fetching them takes about as long as the slowest feed rather than the
+ * sum of all of them. When more than one feed holds a recipe with the same ID, the recipe of the
+ * feed listed first wins, so the merged catalog depends on the order of the feeds but never on
+ * the order their responses arrive in.
+ */
+public class RecipeFeedFetcher {
+
+    private static final int MAX_CONCURRENT_FEEDS = 8;
+
+    /**
+     * Fetches the given feeds at once, blocking until all of them have been fetched or one of them
+     * has failed. The first failure cancels the feeds still being fetched.
+     *
+     * @param calls              The calls for each feed, in order of precedence
+     * @param cancellationSignal The signal that cancels every call if canceled, or null
+     * @return The recipes of each feed in the order of the given calls, or null if any feed
+     * couldn't be fetched
+     */
+    @Nullable
+    public static List<List<Recipe>> fetchFeeds(@NonNull final List<Call<List<Recipe>>> calls,
+                                                @Nullable CancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+
+                @Override
+                public void onCancel() {
+                    cancelAll(calls);
+                }
+
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(calls.size(), MAX_CONCURRENT_FEEDS)), new ThreadFactory() {
+
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable,
+                                "RecipeFeedFetcher-" + threadCount.incrementAndGet());
+                    }
+
+                });
+
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        final List<List<Recipe>> feeds = new ArrayList<>(calls.size());
+
+        try {
+            for (int i = 0; i < calls.size(); i++) {
+                feeds.add(null);
+
+                final int feedIndex = i;
+                completionService.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws IOException {
+                        List<Recipe> recipes = fetchFeed(calls.get(feedIndex));
+                        synchronized (feeds) {
+                            feeds.set(feedIndex, recipes);
+                        }
+                        return null;
+                    }
+
+                });
+            }
+
+            // The feeds are awaited in the order they finish, so a failure is noticed at once
+            for (int i = 0; i < calls.size(); i++) {
+                completionService.take().get();
+            }
+        } catch (ExecutionException e) {
+            Timber.e(e.getCause(), "Failed to fetch recipe feeds");
+            cancelAll(calls);
+            return null;
+        } catch (InterruptedException e) {
+            cancelAll(calls);
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            executor.shutdownNow();
+
+            // The signal goes on to cancel the write of the merged catalog
+            if (cancellationSignal != null) cancellationSignal.setOnCancelListener(null);
+        }
+
+        synchronized (feeds) {
+            return feeds;
+        }
+    }
+
+    /**
+     * Merges the given feeds into a single catalog. A recipe whose ID was already taken by an
+     * earlier feed, or earlier in the same feed, is dropped.
+     *
+     * @param feeds The recipes of each feed, in order of precedence
+     * @return The merged recipes, in the order they were first found
+     */
+    public static List<Recipe> mergeFeeds(@NonNull List<List<Recipe>> feeds) {
+        Map<Integer, Recipe> recipesById = new LinkedHashMap<>();
+        int conflictCount = 0;
+
+        for (List<Recipe> feed : feeds) {
+            for (Recipe recipe : feed) {
+                if (recipesById.containsKey(recipe.getId())) {
+                    conflictCount++;
+                } else {
+                    recipesById.put(recipe.getId(), recipe);
+                }
+            }
+        }
+
+        Timber.d("Merged " + feeds.size() + " feeds into " + recipesById.size() + " recipes, "
+                + "dropping " + conflictCount + " conflicting recipes");
+        return new ArrayList<>(recipesById.values());
+    }
+
+    /**
+     * Helper method that executes the given call for a single feed.
+     *
+     * @param call The call for the feed
+     * @return The recipes of the feed
+     * @throws IOException If the feed couldn't be fetched
+     */
+    private static List<Recipe> fetchFeed(@NonNull Call<List<Recipe>> call) throws IOException {
+        Response<List<Recipe>> response = call.execute();
+
+        List<Recipe> recipes = response.body();
+        if (recipes == null) {
+            throw new IOException("Recipe feed " + call.request().url() + " failed with status "
+                    + response.code());
+        }
+
+        Timber.d("Downloaded recipe feed " + call.request().url() + " of "
+                + NotModifiedInterceptor.getTransferLength(response.raw()) + " bytes");
+        return recipes;
+    }
+
+    private static void cancelAll(@NonNull List<Call<List<Recipe>>> calls) {
+        for (Call<List<Recipe>> call : calls) {
+            call.cancel();
+        }
+    }
+
+}
@@ -40,24 +40,60 @@
 
 package com.example.android.baking.sync;
 
-import android.content.Context;
-
 import com.firebase.jobdispatcher.JobParameters;
 import com.firebase.jobdispatcher.JobService;
 
+/**
+ * This service runs the periodic recipe sync scheduled by {@link RecipeServiceSyncUtil}. The job
+ * is kept running until the sync it requested finishes, and the sync is canceled if the job is
+ * stopped early.
+ */
 public class RecipeFirebaseJobService extends JobService {
 
+    private SyncCoordinator.OnSyncFinishedListener syncFinishedListener;
+
+    /**
+     * Requests a sync and keeps the job running until the sync attempt finishes, at which point
+     * the job is rescheduled if the sync failed. The job scheduler then owns the retry and its
+     * backoff, so {@link SyncCoordinator} doesn't retry the attempt itself, and the job holds its
+     * wake budget for as long as any attempt runs.
+     *
+     * @param job The parameters of the job
+     * @return True, since the sync is still running when this returns
+     */
     @Override
-    public boolean onStartJob(JobParameters job) {
-        Context context = getApplicationContext();
-        RecipeSyncTask.syncRecipes(context);
-        jobFinished(job, false);
+    public boolean onStartJob(final JobParameters job) {
+        syncFinishedListener = new SyncCoordinator.OnSyncFinishedListener() {
+
+            @Override
+            public void onSyncFinished(boolean isSuccessful) {
+                jobFinished(job, !isSuccessful);
+            }
+
+        };
+
+        SyncCoordinator.getInstance(this).requestSync(syncFinishedListener, true);
         return true;
     }
 
+    /**
+     * Stops waiting on the sync requested by the job, which has been stopped before the sync
+     * finished. The sync is canceled unless another caller is still waiting on it.
+     *
+     * @param job The parameters of the job
+     * @return True if the sync was canceled, so that the job is retried, false if the sync keeps
+     * running for the other callers
+     */
     @Override
     public boolean onStopJob(JobParameters job) {
-        return true;
+        boolean isCanceled = false;
+
+        if (syncFinishedListener != null) {
+            isCanceled = SyncCoordinator.getInstance(this).cancelSync(syncFinishedListener);
+            syncFinishedListener = null;
+        }
+
+        return isCanceled;
     }
 
 }
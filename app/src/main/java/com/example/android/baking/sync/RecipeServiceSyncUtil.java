@@ -41,7 +41,6 @@
 package com.example.android.baking.sync;
 
 import android.content.Context;
-import android.content.Intent;
 import android.support.annotation.NonNull;
 
 import com.example.android.baking.util.DatabaseQueryUtil;
@@ -75,7 +74,9 @@ public class RecipeServiceSyncUtil {
 
         scheduleFirebaseJobDispatcherSync(context);
 
-        // Check to see if we already have data - if not, immediately sync with the API.
+        // Check to see if we already have data - if not, immediately sync with the API. The sync
+        // installs the bundled seed catalog first, so recipes can be shown without waiting for
+        // the network, then only applies whatever changed since the seed catalog was built.
         new Thread(new Runnable() {
 
             @Override
@@ -92,14 +93,13 @@ public class RecipeServiceSyncUtil {
     }
 
     /**
-     * Helper method to perform a sync immediately using an IntentService for asynchronous
-     * execution.
+     * Helper method to request a sync immediately through the {@link SyncCoordinator}, which
+     * joins any sync already in progress.
      *
-     * @param context The {@link Context} used to start the IntentService for the sync.
+     * @param context The {@link Context} used for the sync.
      */
     public static void startImmediateSync(@NonNull final Context context) {
-        Intent intentToSyncImmediately = new Intent(context, RecipeSyncIntentService.class);
-        context.startService(intentToSyncImmediately);
+        SyncCoordinator.getInstance(context).requestSync(null);
     }
 
     static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context) {
@@ -55,7 +55,7 @@ public class RecipeSyncIntentService extends IntentService {
 
     @Override
     protected void onHandleIntent(@Nullable Intent intent) {
-        RecipeSyncTask.syncRecipes(this);
+        SyncCoordinator.getInstance(this).requestSync(null);
     }
 
 }
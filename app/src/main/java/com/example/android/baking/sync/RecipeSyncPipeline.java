@@ -0,0 +1,574 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.util.RecipeBulkWriter;
+import com.example.android.baking.util.RecipeStreamReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * This class streams the recipe feed into the database through three stages, each running on an
+ * executor of its own:
+ * <ol>
+ * <li>fetch, which reads the feed from the network in chunks of bytes,</li>
+ * <li>parse, which turns those bytes into recipes, and</li>
+ * <li>write, which inserts the recipes into the database in chunked transactions.</li>
+ * </ol>
+ * The stages are connected by bounded queues. A stage that gets ahead of the next one blocks once
+ * the queue between them is full, so only a bounded part of the feed is held in memory whatever
+ * its size, while the next recipe is parsed as the previous ones are written.
+ * <p>
+ * If any stage fails, the other stages are interrupted and the pipeline fails as a whole.
+ */
+public class RecipeSyncPipeline {
+
+    static final int BYTE_CHUNK_SIZE = 16 * 1024;
+    static final int BYTE_QUEUE_CAPACITY = 16;
+    static final int RECIPE_QUEUE_CAPACITY = 256;
+
+    /**
+     * The longest time to wait for the stages to stop once the pipeline is finished.
+     */
+    private static final long STAGE_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private static final byte[] END_OF_BYTES = new byte[0];
+    private static final Recipe END_OF_RECIPES = new Recipe();
+
+    private final InputStream feedStream;
+    private final RecipeSink sink;
+
+    private final BlockingQueue<byte[]> byteQueue = new ArrayBlockingQueue<>(BYTE_QUEUE_CAPACITY);
+    private final BlockingQueue<Recipe> recipeQueue =
+            new ArrayBlockingQueue<>(RECIPE_QUEUE_CAPACITY);
+
+    private final StageStats fetchStats = new StageStats("fetch", "bytes", null);
+    private final StageStats parseStats = new StageStats("parse", "recipes", byteQueue);
+    private final StageStats writeStats = new StageStats("write", "recipes", recipeQueue);
+
+    private final ExecutorService fetchExecutor = createStageExecutor("fetch");
+    private final ExecutorService parseExecutor = createStageExecutor("parse");
+    private final ExecutorService writeExecutor = createStageExecutor("write");
+
+    private final List<Future<?>> stageFutures = new CopyOnWriteArrayList<>();
+
+    /**
+     * This interface is the write stage of the pipeline, which consumes the parsed recipes.
+     */
+    public interface RecipeSink {
+
+        /**
+         * Writes every recipe read from the given source, until it returns null or throws.
+         *
+         * @param source The source of the parsed recipes, in feed order
+         * @return True if every recipe was written, false otherwise
+         */
+        boolean write(@NonNull RecipeBulkWriter.RecipeSource source);
+
+    }
+
+    /**
+     * Creates a pipeline that streams the given feed into the given sink. A pipeline can only be
+     * run once.
+     *
+     * @param feedStream The stream of the JSON array of recipes, which is closed if the pipeline
+     *                   fails
+     * @param sink       The sink that writes the parsed recipes
+     */
+    RecipeSyncPipeline(@NonNull InputStream feedStream, @NonNull RecipeSink sink) {
+        this.feedStream = feedStream;
+        this.sink = sink;
+    }
+
+    /**
+     * Runs the pipeline on its stage executors, blocking until every stage has finished.
+     *
+     * @return True if every recipe of the feed was written, false otherwise
+     */
+    boolean run() {
+        Future<Void> fetchResult = submitStage(fetchExecutor, new Callable<Void>() {
+
+            @Override
+            public Void call() throws IOException, InterruptedException {
+                fetch();
+                return null;
+            }
+
+        });
+
+        Future<Void> parseResult = submitStage(parseExecutor, new Callable<Void>() {
+
+            @Override
+            public Void call() throws IOException, InterruptedException {
+                parse();
+                return null;
+            }
+
+        });
+
+        Future<Boolean> writeResult = submitStage(writeExecutor, new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                boolean isWritten = write();
+
+                // The upstream stages may be blocked on a full queue that will never drain
+                if (!isWritten) abort();
+                return isWritten;
+            }
+
+        });
+
+        boolean isWritten = false;
+        try {
+            isWritten = writeResult.get();
+            fetchResult.get();
+            parseResult.get();
+        } catch (InterruptedException e) {
+            abort();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The failure was already logged by the stage that failed
+            isWritten = false;
+        } catch (CancellationException e) {
+            // A stage was stopped because another stage had already failed
+            isWritten = false;
+        } finally {
+            awaitStages();
+        }
+
+        for (StageStats stageStats : getStageStats()) {
+            Timber.d(stageStats.toString());
+        }
+
+        return isWritten;
+    }
+
+    /**
+     * Retrieves the statistics of each stage, in pipeline order. The statistics are updated as the
+     * pipeline runs.
+     *
+     * @return The statistics of the fetch, parse and write stages
+     */
+    public List<StageStats> getStageStats() {
+        return Arrays.asList(fetchStats, parseStats, writeStats);
+    }
+
+    StageStats getParseStats() {
+        return parseStats;
+    }
+
+    StageStats getWriteStats() {
+        return writeStats;
+    }
+
+    /**
+     * The fetch stage, which copies the feed into the byte queue in chunks.
+     */
+    private void fetch() throws IOException, InterruptedException {
+        fetchStats.start();
+        try {
+            byte[] buffer = new byte[BYTE_CHUNK_SIZE];
+            int length;
+            while ((length = feedStream.read(buffer)) != -1) {
+                if (length == 0) continue;
+
+                byteQueue.put(Arrays.copyOf(buffer, length));
+                fetchStats.addItems(length);
+                parseStats.recordQueueDepth();
+            }
+
+            byteQueue.put(END_OF_BYTES);
+        } finally {
+            fetchStats.finish();
+        }
+    }
+
+    /**
+     * The parse stage, which reads the recipes out of the byte queue into the recipe queue.
+     */
+    private void parse() throws IOException, InterruptedException {
+        parseStats.start();
+
+        ByteQueueInputStream inputStream = new ByteQueueInputStream();
+        RecipeStreamReader reader = null;
+        try {
+            reader = new RecipeStreamReader(inputStream);
+
+            Recipe recipe;
+            while ((recipe = reader.read()) != null) {
+                recipeQueue.put(recipe);
+                parseStats.addItems(1);
+                writeStats.recordQueueDepth();
+            }
+
+            // Anything after the array is skipped, so that the fetch stage is never left blocked
+            inputStream.drain();
+            recipeQueue.put(END_OF_RECIPES);
+        } finally {
+            if (reader != null) reader.close();
+            parseStats.finish();
+        }
+    }
+
+    /**
+     * The write stage, which hands the recipe queue to the sink.
+     */
+    private boolean write() {
+        writeStats.start();
+        try {
+            return sink.write(new RecipeBulkWriter.RecipeSource() {
+
+                private boolean isFinished;
+
+                @Nullable
+                @Override
+                public Recipe read() throws IOException {
+                    if (isFinished) return null;
+
+                    Recipe recipe;
+                    try {
+                        recipe = recipeQueue.take();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("Recipe sync pipeline was stopped");
+                    }
+
+                    if (recipe == END_OF_RECIPES) {
+                        isFinished = true;
+                        return null;
+                    }
+
+                    writeStats.addItems(1);
+                    return recipe;
+                }
+
+            });
+        } finally {
+            writeStats.finish();
+        }
+    }
+
+    /**
+     * Helper method that submits a stage to its executor, stopping the whole pipeline if the stage
+     * fails.
+     */
+    private <T> Future<T> submitStage(ExecutorService executor, final Callable<T> stage) {
+        FutureTask<T> stageFuture = new FutureTask<>(new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                try {
+                    return stage.call();
+                } catch (Exception e) {
+                    Timber.e(e, "Recipe sync pipeline failed");
+                    abort();
+                    throw e;
+                }
+            }
+
+        });
+        stageFutures.add(stageFuture);
+
+        try {
+            executor.execute(stageFuture);
+        } catch (RejectedExecutionException e) {
+            // An earlier stage has already failed and shut the executors down
+            stageFuture.cancel(false);
+        }
+
+        return stageFuture;
+    }
+
+    /**
+     * Stops every stage, interrupting those blocked on a queue and closing the feed under the
+     * fetch stage.
+     */
+    private void abort() {
+        // Stages that haven't started yet are cancelled, so that waiting on them won't hang
+        for (Future<?> stageFuture : stageFutures) {
+            stageFuture.cancel(false);
+        }
+
+        // Stages that are running are interrupted, in case they are blocked on a queue
+        for (ExecutorService executor : Arrays.asList(fetchExecutor, parseExecutor,
+                writeExecutor)) {
+            executor.shutdownNow();
+        }
+
+        try {
+            feedStream.close();
+        } catch (IOException e) {
+            Timber.w(e, "Failed to close recipe feed");
+        }
+    }
+
+    /**
+     * Waits for every stage to stop, so that the write stage has ended its last transaction by
+     * the time the pipeline returns.
+     */
+    private void awaitStages() {
+        for (ExecutorService executor : Arrays.asList(fetchExecutor, parseExecutor,
+                writeExecutor)) {
+            executor.shutdown();
+
+            try {
+                if (!executor.awaitTermination(STAGE_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    Timber.w("Recipe sync pipeline stage didn't stop in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static ExecutorService createStageExecutor(final String stageName) {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, "RecipeSyncPipeline-" + stageName);
+            }
+
+        });
+    }
+
+    /**
+     * This class is an input stream over the chunks of bytes in the byte queue, which the parse
+     * stage reads from.
+     */
+    private class ByteQueueInputStream extends InputStream {
+
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean isFinished;
+
+        @Override
+        public int read() throws IOException {
+            if (!fillChunk()) return -1;
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!fillChunk()) return -1;
+
+            int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Skips every remaining byte up to the end of the feed.
+         */
+        void drain() throws IOException {
+            while (fillChunk()) {
+                position = chunk.length;
+            }
+        }
+
+        /**
+         * Helper method that takes the next chunk off the byte queue once the current one is used
+         * up.
+         *
+         * @return True if there are bytes left to read, false at the end of the feed
+         */
+        private boolean fillChunk() throws IOException {
+            while (!isFinished && position == chunk.length) {
+                try {
+                    chunk = byteQueue.take();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Recipe sync pipeline was stopped");
+                }
+
+                position = 0;
+                if (chunk == END_OF_BYTES) isFinished = true;
+            }
+
+            return !isFinished;
+        }
+
+    }
+
+    /**
+     * This class holds the throughput and queue depth of a single stage of the pipeline. The queue
+     * depth of a stage is the number of items waiting for it in the queue it reads from.
+     */
+    public static class StageStats {
+
+        private final String name;
+        private final String unit;
+        private final BlockingQueue<?> inputQueue;
+
+        private final AtomicLong itemCount = new AtomicLong();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        private volatile boolean isStarted;
+        private volatile boolean isFinished;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        StageStats(@NonNull String name, @NonNull String unit,
+                   @Nullable BlockingQueue<?> inputQueue) {
+            this.name = name;
+            this.unit = unit;
+            this.inputQueue = inputQueue;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retrieves the number of items the stage has produced so far, in the unit of the stage.
+         *
+         * @return The number of bytes or recipes produced
+         */
+        public long getItemCount() {
+            return itemCount.get();
+        }
+
+        /**
+         * Retrieves the time the stage has been running, up to when it finished.
+         *
+         * @return The running time of the stage in milliseconds
+         */
+        public long getElapsedMillis() {
+            if (!isStarted) return 0;
+
+            long endNanos = isFinished ? this.endNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+        }
+
+        /**
+         * Retrieves the average throughput of the stage while it has been running.
+         *
+         * @return The number of items produced per second
+         */
+        public double getThroughput() {
+            long elapsedMillis = getElapsedMillis();
+            if (elapsedMillis == 0) return 0;
+
+            return itemCount.get() * 1000.0 / elapsedMillis;
+        }
+
+        /**
+         * Retrieves the number of items currently waiting for the stage.
+         *
+         * @return The current depth of the stage's input queue, or 0 for the first stage
+         */
+        public int getQueueDepth() {
+            if (inputQueue == null) return 0;
+            return inputQueue.size();
+        }
+
+        /**
+         * Retrieves the largest number of items that have been waiting for the stage at once.
+         *
+         * @return The maximum depth of the stage's input queue, or 0 for the first stage
+         */
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        // The monotonic clock of the JVM is used, so the pipeline can run in host tests
+        void start() {
+            startNanos = System.nanoTime();
+            isStarted = true;
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+            isFinished = true;
+        }
+
+        void addItems(long count) {
+            itemCount.addAndGet(count);
+        }
+
+        void recordQueueDepth() {
+            int queueDepth = getQueueDepth();
+
+            int currentMax;
+            do {
+                currentMax = maxQueueDepth.get();
+            } while (queueDepth > currentMax
+                    && !maxQueueDepth.compareAndSet(currentMax, queueDepth));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "Stage %s produced %d %s in %d ms (%.0f %s/s), "
+                            + "max queue depth %d", name, getItemCount(), unit,
+                    getElapsedMillis(), getThroughput(), unit, getMaxQueueDepth());
+        }
+
+    }
+
+}
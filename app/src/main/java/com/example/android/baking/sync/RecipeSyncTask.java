@@ -44,66 +44,555 @@ import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.ContentResolver;
 import android.content.Context;
-import android.content.Intent;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.RecipeChanges;
+import com.example.android.baking.service.NotModifiedInterceptor;
 import com.example.android.baking.service.RecipeService;
 import com.example.android.baking.service.RecipeServiceGenerator;
+import com.example.android.baking.util.AppPreferences;
+import com.example.android.baking.util.CatalogSnapshot;
 import com.example.android.baking.util.DatabaseQueryUtil;
+import com.example.android.baking.util.IngredientIndex;
+import com.example.android.baking.util.RecipeBulkWriter;
+import com.example.android.baking.util.RecipeDiff;
+import com.example.android.baking.util.ShadowCatalogRefresher;
+import com.example.android.baking.util.SyncMetrics;
 import com.example.android.baking.widget.RecipeIngredientListWidgetProvider;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 import timber.log.Timber;
 
+/**
+ * This class performs a single sync of the stored recipe catalog with the API. Syncs should be
+ * requested through {@link SyncCoordinator}, which runs them one at a time and retries them when
+ * they fail.
+ */
 public class RecipeSyncTask {
 
-    public static final String DB_UPDATE_COMPLETE_ACTION =
-            "com.example.android.baking.DB_UPDATE_COMPLETE";
+    /**
+     * The number of recipes written in each transaction when the feed is streamed into an empty
+     * database.
+     */
+    private static final int STREAM_CHUNK_SIZE = 64;
 
-    synchronized public static void syncRecipes(final Context context) {
-        RecipeService recipeService = RecipeServiceGenerator.createService(RecipeService.class);
-        Call<List<Recipe>> asyncRecipeCall = recipeService.getRecipes();
+    /**
+     * Syncs the stored recipe catalog with the API on the calling thread, which must not be the
+     * main thread. The metrics of the sync are recorded in the sync history once it finishes.
+     *
+     * @param context            The {@link Context} used to access the API and the database
+     * @param cancellationSignal The signal that stops the sync if canceled, cancelling its
+     *                           network call and rolling back its current transaction
+     * @return True if the stored catalog is up to date with the API, false if the sync failed or
+     * was canceled
+     */
+    synchronized static boolean syncRecipes(final Context context,
+                                            CancellationSignal cancellationSignal) {
+        SyncMetrics metrics = new SyncMetrics();
 
-        asyncRecipeCall.enqueue(new Callback<List<Recipe>>() {
+        boolean isSynced = syncRecipes(context, metrics, cancellationSignal);
 
-            @Override
-            public void onResponse(@NonNull Call<List<Recipe>> call,
-                                   @NonNull Response<List<Recipe>> response) {
-                List<Recipe> recipes = response.body();
-                ContentResolver contentResolver = context.getContentResolver();
-
-                if (recipes != null) {
-                    // TODO: Temporary - see about only updating the existing ones if needed
-                    DatabaseQueryUtil.deleteRecipes(contentResolver);
-                    DatabaseQueryUtil.deleteIngredients(contentResolver);
-                    DatabaseQueryUtil.deleteSteps(contentResolver);
-
-                    DatabaseQueryUtil.insertRecipes(contentResolver, recipes);
-
-                    // Update the widgets to reflect the new data
-                    AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-                    int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context,
-                            RecipeIngredientListWidgetProvider.class));
-                    RecipeIngredientListWidgetProvider.updateAppWidgets(context, appWidgetManager,
-                            appWidgetIds);
-
-                    Intent intent = new Intent(DB_UPDATE_COMPLETE_ACTION);
-                    context.sendBroadcast(intent);
-                }
+        metrics.finish(isSynced);
+        DatabaseQueryUtil.insertSyncMetrics(context.getContentResolver(), metrics);
+
+        return isSynced;
+    }
+
+    /**
+     * Syncs the stored recipe catalog with whichever feed fits its current state.
+     *
+     * @param context            The {@link Context} used to access the API and the database
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the sync if canceled
+     * @return True if the stored catalog is up to date with the API, false otherwise
+     */
+    private static boolean syncRecipes(Context context, SyncMetrics metrics,
+                                       CancellationSignal cancellationSignal) {
+        RecipeService recipeService = RecipeServiceGenerator.createService(context,
+                RecipeService.class, metrics);
+
+        List<String> additionalFeedUrls = RecipeServiceGenerator.getAdditionalFeedUrls(context);
+
+        // An empty database has nothing to diff the feed against, so the bundled seed catalog is
+        // installed first. If there is none and only the main feed is used, the feed is written
+        // as it is parsed rather than held in memory in full.
+        if (DatabaseQueryUtil.retrieveRecipeIds(context.getContentResolver()).isEmpty()) {
+            // Changes since the version of an earlier catalog don't apply to an empty one
+            AppPreferences.setCatalogVersion(context, null);
+
+            if (!SeedCatalogInstaller.install(context) && additionalFeedUrls.isEmpty()) {
+                return streamRecipes(context, recipeService.streamRecipes(), metrics,
+                        cancellationSignal);
+            }
+        }
+
+        // Neither the delta feed nor the validator of the main feed describes a merged catalog
+        if (!additionalFeedUrls.isEmpty()) {
+            return syncMergedFeeds(context, recipeService, additionalFeedUrls, metrics,
+                    cancellationSignal);
+        }
+
+        // A catalog version is only known if the server reported one along with the full feed,
+        // which means it also serves the delta feed
+        String catalogVersion = AppPreferences.getCatalogVersion(context);
+        if (catalogVersion != null) {
+            return syncRecipeChanges(context, recipeService, catalogVersion, metrics,
+                    cancellationSignal);
+        }
+
+        return syncAllRecipes(context, recipeService, metrics, cancellationSignal);
+    }
+
+    /**
+     * Syncs the stored recipe catalog with the full recipe feed, writing only the rows that
+     * differ from it.
+     *
+     * @param context            The {@link Context} used to access the database
+     * @param recipeService      The service used to fetch the feed
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the sync if canceled
+     * @return True if the stored catalog is up to date with the feed, false otherwise
+     */
+    private static boolean syncAllRecipes(Context context, RecipeService recipeService,
+                                          SyncMetrics metrics,
+                                          CancellationSignal cancellationSignal) {
+        metrics.setMode(SyncMetrics.Mode.FULL);
+
+        Call<List<Recipe>> call = recipeService.getRecipes();
+        cancelOnSignal(call, cancellationSignal);
+
+        Response<List<Recipe>> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            Timber.e(e, "Failed to fetch recipe feed");
+            return false;
+        }
+
+        long transferLength = NotModifiedInterceptor.getTransferLength(response.raw());
+
+        // The stored catalog is already up to date with the feed, so there is nothing to parse or
+        // write
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            Timber.d("Recipe feed not modified, saved " + transferLength + " bytes");
+            metrics.setRowCounts(0, 0, 0);
+            return true;
+        }
+
+        List<Recipe> recipes = response.body();
+
+        if (recipes == null) {
+            Timber.w("Recipe feed request failed with status " + response.code());
+            return false;
+        }
+
+        Timber.d("Downloaded recipe feed of " + transferLength + " bytes");
+
+        return writeCatalog(context, recipes,
+                NotModifiedInterceptor.getValidator(response.headers()),
+                response.headers().get(RecipeService.CATALOG_VERSION_HEADER), metrics,
+                cancellationSignal);
+    }
+
+    /**
+     * Syncs the stored recipe catalog with the main feed merged with the given additional feeds,
+     * which are all fetched at once. The merged catalog is written as a whole, as a catalog
+     * fetched from a single feed is.
+     *
+     * @param context            The {@link Context} used to access the database
+     * @param recipeService      The service used to fetch the feeds
+     * @param additionalFeedUrls The URLs of the feeds to merge with the main feed, in order of
+     *                           precedence
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the sync if canceled
+     * @return True if the stored catalog is up to date with the merged feeds, false otherwise
+     */
+    private static boolean syncMergedFeeds(Context context, RecipeService recipeService,
+                                           List<String> additionalFeedUrls, SyncMetrics metrics,
+                                           CancellationSignal cancellationSignal) {
+        metrics.setMode(SyncMetrics.Mode.MERGED);
+
+        // A merged catalog is described by neither the validator nor the version of a single
+        // feed. A stale validator would also turn the main feed's revalidated response into one
+        // without a body.
+        AppPreferences.setCatalogValidator(context, null);
+        AppPreferences.setCatalogVersion(context, null);
+
+        List<Call<List<Recipe>>> calls = new ArrayList<>();
+        calls.add(recipeService.getRecipes());
+        for (String feedUrl : additionalFeedUrls) {
+            calls.add(recipeService.getRecipes(feedUrl));
+        }
+
+        long startNanos = System.nanoTime();
+        List<List<Recipe>> feeds = RecipeFeedFetcher.fetchFeeds(calls, cancellationSignal);
+        if (feeds == null) return false;
+
+        Timber.d("Fetched " + feeds.size() + " recipe feeds in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+
+        return writeCatalog(context, RecipeFeedFetcher.mergeFeeds(feeds), null, null, metrics,
+                cancellationSignal);
+    }
+
+    /**
+     * Writes the differences between the stored recipe catalog and the given complete catalog to
+     * the database, in a single transaction.
+     *
+     * @param context            The {@link Context} used to access the database
+     * @param recipes            The complete catalog fetched from the API
+     * @param validator          The HTTP validator of the feed the catalog was fetched from, or
+     *                           null if there is none
+     * @param catalogVersion     The catalog version reported by the feed, or null if there is none
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the write if canceled
+     * @return True if the stored catalog matches the given catalog, false otherwise
+     */
+    private static boolean writeCatalog(Context context, List<Recipe> recipes,
+                                        @Nullable String validator,
+                                        @Nullable String catalogVersion, SyncMetrics metrics,
+                                        CancellationSignal cancellationSignal) {
+        ContentResolver contentResolver = context.getContentResolver();
+
+        List<Recipe> storedRecipes = DatabaseQueryUtil.retrieveRecipes(contentResolver);
+        RecipeDiff diff = RecipeDiff.compute(storedRecipes, recipes);
+        Timber.d("Computed " + diff + " for " + recipes.size() + " fetched recipes");
+
+        if (cancellationSignal.isCanceled()) return false;
 
+        if (diff.isEmpty()) {
+            // The catalog may have been installed without a snapshot, e.g. from the seed
+            if (CatalogSnapshot.getInstance(context) == null) {
+                CatalogSnapshot.update(context, recipes);
             }
+            AppPreferences.setCatalogValidator(context, validator);
+            AppPreferences.setCatalogVersion(context, catalogVersion);
+            metrics.setRowCounts(0, 0, 0);
+            return true;
+        }
+
+        // The snapshot is removed before the database changes, so readers reloading on the
+        // provider's notifications fall back to the database rather than stale data
+        CatalogSnapshot.delete(context);
+
+        // An empty catalog has nothing to diff against, so it is written through the bulk writer
+        // instead of one provider operation per row. When most of the catalog changed, it is
+        // cheaper to rebuild it in shadow tables and swap them in than to apply the changes row
+        // by row.
+        long startNanos = System.nanoTime();
+        boolean isWritten;
+        if (storedRecipes.isEmpty()) {
+            isWritten = RecipeBulkWriter.insertRecipes(context, diff.getInsertedRecipes(),
+                    cancellationSignal);
+        } else if (diff.getChangedRecipeIds().size() * 2 > recipes.size()) {
+            isWritten = ShadowCatalogRefresher.refreshCatalog(context, recipes,
+                    cancellationSignal);
+        } else {
+            // The changes are few, so they are applied in one batch that isn't interrupted
+            isWritten = DatabaseQueryUtil.applyRecipeDiff(contentResolver, diff);
+        }
+
+        metrics.setTransactionMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        if (isWritten) {
+            recordRowCounts(metrics, diff);
+            AppPreferences.setCatalogValidator(context, validator);
+            AppPreferences.setCatalogVersion(context, catalogVersion);
+            CatalogSnapshot.update(context, recipes);
+            onCatalogChanged(context, diff);
+        }
+
+        return isWritten;
+    }
+
+    /**
+     * Syncs the stored recipe catalog with the delta feed, which only returns the recipes that
+     * changed since the given catalog version. Only those recipes are read from the database and
+     * compared, so the cost of the sync depends on the size of the change rather than on the
+     * size of the catalog.
+     * <p>
+     * Falls back to the full feed if the server doesn't serve the delta feed or no longer knows
+     * the given version.
+     *
+     * @param context            The {@link Context} used to access the database
+     * @param recipeService      The service used to fetch the feed
+     * @param catalogVersion     The catalog version the stored catalog was last synced to
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the sync if canceled
+     * @return True if the stored catalog is up to date with the API, false otherwise
+     */
+    private static boolean syncRecipeChanges(Context context, RecipeService recipeService,
+                                             String catalogVersion, SyncMetrics metrics,
+                                             CancellationSignal cancellationSignal) {
+        metrics.setMode(SyncMetrics.Mode.DELTA);
+
+        Call<RecipeChanges> call = recipeService.getRecipeChanges(catalogVersion);
+        cancelOnSignal(call, cancellationSignal);
+
+        Response<RecipeChanges> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            Timber.e(e, "Failed to fetch recipe changes since version " + catalogVersion);
+            return false;
+        }
+
+        if (isDeltaFeedUnavailable(response.code())) {
+            Timber.d("Recipe changes since version " + catalogVersion + " unavailable with "
+                    + "status " + response.code() + ", fetching full feed");
+            AppPreferences.setCatalogVersion(context, null);
+            return syncAllRecipes(context, recipeService, metrics, cancellationSignal);
+        }
+
+        RecipeChanges changes = response.body();
+        if (changes == null) {
+            Timber.w("Recipe changes request failed with status " + response.code());
+            return false;
+        }
+
+        Timber.d("Downloaded " + changes + " of "
+                + NotModifiedInterceptor.getTransferLength(response.raw()) + " bytes");
+
+        List<Recipe> changedRecipes = nonNull(changes.getChanged());
+        List<Integer> deletedRecipeIds = nonNull(changes.getDeleted());
+
+        Set<Integer> affectedRecipeIds = new TreeSet<>(deletedRecipeIds);
+        for (Recipe changedRecipe : changedRecipes) {
+            affectedRecipeIds.add(changedRecipe.getId());
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        List<Recipe> storedRecipes = DatabaseQueryUtil.retrieveRecipes(contentResolver,
+                affectedRecipeIds);
+        RecipeDiff diff = RecipeDiff.computeChanges(storedRecipes, changedRecipes,
+                deletedRecipeIds);
+        Timber.d("Computed " + diff + " for " + affectedRecipeIds.size() + " changed recipes");
+
+        if (cancellationSignal.isCanceled()) return false;
+
+        if (diff.isEmpty()) {
+            AppPreferences.setCatalogVersion(context, changes.getVersion());
+            metrics.setRowCounts(0, 0, 0);
+            return true;
+        }
+
+        // The snapshot holds the whole catalog, so it is patched with the changes rather than
+        // rebuilt from the database. It is still removed while the database changes.
+        CatalogSnapshot snapshot = CatalogSnapshot.getInstance(context);
+        List<Recipe> snapshotRecipes = snapshot != null ? snapshot.getRecipes() : null;
+        CatalogSnapshot.delete(context);
+
+        // The changes are applied in one batch that isn't interrupted
+        long startNanos = System.nanoTime();
+        boolean isWritten = DatabaseQueryUtil.applyRecipeDiff(contentResolver, diff);
+        metrics.setTransactionMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        if (isWritten) {
+            recordRowCounts(metrics, diff);
+            // The stored catalog no longer matches any cached copy of the full feed
+            AppPreferences.setCatalogValidator(context, null);
+            AppPreferences.setCatalogVersion(context, changes.getVersion());
+            if (snapshotRecipes != null) {
+                CatalogSnapshot.update(context, diff.applyTo(snapshotRecipes));
+            }
+            onCatalogChanged(context, diff);
+        }
+
+        return isWritten;
+    }
+
+    /**
+     * Streams the recipe feed into the empty database, writing the recipes in chunks as they are
+     * parsed.
+     *
+     * @param context            The {@link Context} used to access the database
+     * @param call               The call for the raw recipe feed
+     * @param metrics            The metrics of the sync
+     * @param cancellationSignal The signal that stops the download and write if canceled
+     * @return True if the whole feed was written, false otherwise
+     */
+    private static boolean streamRecipes(final Context context, Call<ResponseBody> call,
+                                         SyncMetrics metrics,
+                                         final CancellationSignal cancellationSignal) {
+        metrics.setMode(SyncMetrics.Mode.STREAM);
+
+        // The stored catalog is empty, so it can't be up to date with any cached feed
+        AppPreferences.setCatalogValidator(context, null);
+        cancelOnSignal(call, cancellationSignal);
+
+        Response<ResponseBody> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            Timber.e(e, "Failed to fetch recipe feed");
+            return false;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            Timber.w("Recipe feed request failed with status " + response.code());
+            return false;
+        }
+
+        Timber.d("Streaming recipe feed of "
+                + NotModifiedInterceptor.getTransferLength(response.raw()) + " bytes");
+
+        CatalogSnapshot.delete(context);
+
+        // The feed is downloaded, parsed and written on separate threads, so each recipe is
+        // written while the following ones are still being downloaded and parsed
+        final AtomicLong rowsRead = new AtomicLong();
+        RecipeSyncPipeline pipeline = new RecipeSyncPipeline(body.byteStream(),
+                new RecipeSyncPipeline.RecipeSink() {
+
+                    @Override
+                    public boolean write(@NonNull final RecipeBulkWriter.RecipeSource source) {
+                        return RecipeBulkWriter.insertRecipes(context,
+                                new RecipeBulkWriter.RecipeSource() {
+
+                                    @Override
+                                    public Recipe read() throws IOException {
+                                        Recipe recipe = source.read();
+                                        if (recipe != null) {
+                                            rowsRead.addAndGet(countRows(recipe));
+                                        }
+                                        return recipe;
+                                    }
+
+                                }, STREAM_CHUNK_SIZE, cancellationSignal);
+                    }
+
+                });
+
+        boolean isWritten;
+        try {
+            isWritten = pipeline.run();
+        } finally {
+            body.close();
+        }
+
+        // The parse stage includes the time spent waiting for the download, and the write stage
+        // the time spent waiting for the parse, as neither can run ahead of the stage before it
+        metrics.setParseMillis(pipeline.getParseStats().getElapsedMillis());
+        metrics.setTransactionMillis(pipeline.getWriteStats().getElapsedMillis());
+
+        // Part of the feed may have been written even if the rest failed
+        IngredientIndex.invalidate();
+
+        if (isWritten) {
+            metrics.setRowCounts(rowsRead.get(), 0, 0);
+            AppPreferences.setCatalogValidator(context,
+                    NotModifiedInterceptor.getValidator(response.headers()));
+            AppPreferences.setCatalogVersion(context,
+                    response.headers().get(RecipeService.CATALOG_VERSION_HEADER));
+            if (AppPreferences.getPinnedRecipeId(context) != -1) updateAppWidgets(context);
+        }
+
+        return isWritten;
+    }
+
+    /**
+     * Updates the ingredient index and, if their pinned recipe changed, the widgets, once the
+     * given diff has been written to the database.
+     *
+     * @param context The {@link Context} used to access the index and the widgets
+     * @param diff    The diff that was written
+     */
+    private static void onCatalogChanged(Context context, RecipeDiff diff) {
+        IngredientIndex.getInstance(context).update(diff);
+
+        // Observers are notified of the changed recipes by the content provider, so the widgets
+        // only need to be updated if their pinned recipe changed
+        int pinnedRecipeId = AppPreferences.getPinnedRecipeId(context);
+        if (diff.getChangedRecipeIds().contains(pinnedRecipeId)) {
+            updateAppWidgets(context);
+        }
+    }
+
+    /**
+     * Records the number of rows the given diff wrote in the given metrics. When the whole catalog
+     * is rebuilt, only the rows that changed are counted.
+     *
+     * @param metrics The metrics of the sync
+     * @param diff    The diff that was written
+     */
+    private static void recordRowCounts(SyncMetrics metrics, RecipeDiff diff) {
+        metrics.setRowCounts(diff.getRowsInserted(), diff.getRowsUpdated(),
+                diff.getRowsDeleted());
+    }
+
+    /**
+     * Counts the recipe, ingredient and step rows the given recipe is stored as.
+     *
+     * @param recipe The recipe to count the rows of
+     * @return The number of rows
+     */
+    private static int countRows(Recipe recipe) {
+        return 1 + nonNull(recipe.getIngredients()).size() + nonNull(recipe.getSteps()).size();
+    }
+
+    /**
+     * Whether the given status of a delta feed response means the changes can't be served, e.g.
+     * because the server doesn't support the delta feed or has expired the requested version.
+     *
+     * @param statusCode The HTTP status code of the response
+     * @return True if the full feed must be fetched instead
+     */
+    private static boolean isDeltaFeedUnavailable(int statusCode) {
+        return statusCode == HttpURLConnection.HTTP_NOT_FOUND
+                || statusCode == HttpURLConnection.HTTP_GONE
+                || statusCode == HttpURLConnection.HTTP_NOT_IMPLEMENTED;
+    }
+
+    /**
+     * Cancels the given call once the given signal is canceled, which fails the call with an
+     * {@link IOException} if it is in progress.
+     *
+     * @param call               The call to cancel
+     * @param cancellationSignal The signal to cancel it on
+     */
+    private static void cancelOnSignal(final Call<?> call, CancellationSignal cancellationSignal) {
+        cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
 
             @Override
-            public void onFailure(@NonNull Call<List<Recipe>> call, Throwable t) {
-                Timber.e(t);
+            public void onCancel() {
+                call.cancel();
             }
 
         });
     }
 
+    /**
+     * Updates every recipe widget to show the current state of its pinned recipe.
+     *
+     * @param context The {@link Context} used to access the widgets
+     */
+    private static void updateAppWidgets(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context,
+                RecipeIngredientListWidgetProvider.class));
+        RecipeIngredientListWidgetProvider.updateAppWidgets(context, appWidgetManager,
+                appWidgetIds);
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        if (list == null) return Collections.emptyList();
+        return list;
+    }
+
 }
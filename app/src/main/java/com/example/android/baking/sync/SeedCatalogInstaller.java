@@ -0,0 +1,144 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.util.RecipeBulkWriter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import timber.log.Timber;
+
+/**
+ * This class installs the seed catalog bundled in the APK assets into an empty database, so that
+ * recipes can be shown on first launch without waiting for the network. Later syncs then only
+ * apply the differences between the seed catalog and the API.
+ * <p>
+ * The seed catalog is a gzipped snapshot of the API's recipe JSON rather than a prebuilt
+ * database file, so it stays valid across database schema versions. It is committed under the
+ * app module's assets and refreshed with its updateSeedCatalog Gradle task.
+ */
+public class SeedCatalogInstaller {
+
+    static final String SEED_CATALOG_ASSET = "seed/recipes.json.gz";
+
+    private static volatile boolean isEnabled = true;
+
+    /**
+     * Installs the bundled seed catalog into the database. This must only be called when the
+     * database holds no recipes, and not on the main thread.
+     *
+     * @param context The {@link Context} used to read the assets and write the database
+     * @return True if the seed catalog was installed, false if there is none or it is unreadable
+     */
+    public static boolean install(@NonNull Context context) {
+        if (!isEnabled) return false;
+
+        long startNanos = System.nanoTime();
+
+        List<Recipe> recipes = readSeedCatalog(context);
+        if (recipes == null || recipes.isEmpty()) return false;
+
+        boolean isInstalled = RecipeBulkWriter.insertRecipes(context, recipes);
+
+        if (isInstalled) {
+            Timber.d("Installed seed catalog of " + recipes.size() + " recipes in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+        }
+
+        return isInstalled;
+    }
+
+    /**
+     * Enables or disables installing the seed catalog, so that tests can sync an empty database
+     * straight from the feed.
+     *
+     * @param isEnabled False to install nothing, as if no seed catalog were bundled
+     */
+    @VisibleForTesting
+    static void setEnabled(boolean isEnabled) {
+        SeedCatalogInstaller.isEnabled = isEnabled;
+    }
+
+    /**
+     * Reads the recipes of the seed catalog bundled in the assets.
+     *
+     * @param context The {@link Context} used to read the assets
+     * @return The recipes of the seed catalog, or null if there is none or it is unreadable
+     */
+    @Nullable
+    static List<Recipe> readSeedCatalog(@NonNull Context context) {
+        InputStream inputStream = null;
+
+        try {
+            inputStream = new GZIPInputStream(context.getAssets().open(SEED_CATALOG_ASSET));
+            return new ObjectMapper().readValue(inputStream, new TypeReference<List<Recipe>>() {
+            });
+        } catch (FileNotFoundException e) {
+            Timber.d("No seed catalog bundled in assets");
+            return null;
+        } catch (IOException e) {
+            Timber.e(e, "Failed to read seed catalog");
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Timber.w(e, "Failed to close seed catalog");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * This class runs every recipe sync in the process, one at a time, on a single background thread.
+ * <p>
+ * A sync requested while another is pending or running joins that run rather than starting a
+ * second one, so overlapping triggers never interleave their writes. A failed sync is retried
+ * with capped exponential backoff and random jitter, up to a fixed number of attempts, unless a
+ * caller waiting on it reschedules failed syncs itself, as the job scheduler does. The
+ * current {@link State} of the sync can be observed, so the UI can report it.
+ * <p>
+ * A caller waiting on a sync can stop waiting on it, for instance when the job scheduler stops
+ * the job that requested it. The sync itself is only canceled once every caller that joined it
+ * has stopped waiting, and a canceled sync isn't retried.
+ */
+public class SyncCoordinator {
+
+    /**
+     * The states a sync can be in.
+     */
+    public enum State {
+        /** No sync is pending or running, and the last sync succeeded. */
+        IDLE,
+        /** A sync is pending or running. */
+        SYNCING,
+        /** The last sync failed, and another attempt is scheduled. */
+        WAITING_TO_RETRY,
+        /** The last sync failed for good, and the coordinator has no other attempt scheduled. */
+        FAILED
+    }
+
+    /**
+     * The work done by a single sync attempt.
+     */
+    public interface SyncAction {
+
+        /**
+         * Runs a sync attempt on the coordinator's thread.
+         *
+         * @param cancellationSignal The signal that is canceled if the attempt should stop early
+         * @return True if the sync succeeded, false if it failed or was canceled
+         */
+        boolean sync(@NonNull CancellationSignal cancellationSignal);
+
+    }
+
+    public interface OnSyncFinishedListener {
+        void onSyncFinished(boolean isSuccessful);
+    }
+
+    public interface OnSyncStateChangedListener {
+        void onSyncStateChanged(@NonNull State state);
+    }
+
+    static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    static final int MAX_ATTEMPTS = 6;
+
+    private static SyncCoordinator instance;
+
+    private final SyncAction syncAction;
+    private final ScheduledExecutorService executor;
+    private final Random random;
+
+    private final List<OnSyncFinishedListener> pendingListeners = new ArrayList<>();
+    private final CopyOnWriteArraySet<OnSyncStateChangedListener> stateListeners =
+            new CopyOnWriteArraySet<>();
+
+    private State state = State.IDLE;
+    private int joinedCallerCount;
+    private boolean isRetriedByCaller;
+    private int failedAttempts;
+    private ScheduledFuture<?> scheduledRetry;
+    private CancellationSignal cancellationSignal;
+
+    private final Runnable syncRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            runSync();
+        }
+
+    };
+
+    private final Runnable retryRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            requestSync(null);
+        }
+
+    };
+
+    @VisibleForTesting
+    SyncCoordinator(@NonNull SyncAction syncAction, @NonNull ScheduledExecutorService executor,
+                    @NonNull Random random) {
+        this.syncAction = syncAction;
+        this.executor = executor;
+        this.random = random;
+    }
+
+    /**
+     * Retrieves the process-wide coordinator, which syncs the recipes with
+     * {@link RecipeSyncTask#syncRecipes(Context, CancellationSignal)}.
+     *
+     * @param context The {@link Context} used to sync the recipes
+     * @return The process-wide coordinator
+     */
+    public static synchronized SyncCoordinator getInstance(@NonNull Context context) {
+        if (instance == null) {
+            final Context applicationContext = context.getApplicationContext();
+
+            instance = new SyncCoordinator(new SyncAction() {
+
+                @Override
+                public boolean sync(@NonNull CancellationSignal cancellationSignal) {
+                    return RecipeSyncTask.syncRecipes(applicationContext, cancellationSignal);
+                }
+
+            }, Executors.newSingleThreadScheduledExecutor(), new Random());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Requests a sync. If a sync is already pending or running, the request joins it. If a retry
+     * is scheduled, it is run now instead.
+     *
+     * @param listener The listener to notify once the sync attempt serving this request finishes,
+     *                 or null if the caller doesn't need to know
+     */
+    public void requestSync(@Nullable OnSyncFinishedListener listener) {
+        requestSync(listener, false);
+    }
+
+    /**
+     * Requests a sync as {@link #requestSync(OnSyncFinishedListener)} does, for a caller that may
+     * reschedule the sync itself if it fails.
+     *
+     * @param listener          The listener to notify once the sync attempt serving this request
+     *                          finishes, or null if the caller doesn't need to know
+     * @param isRetriedByCaller True if the caller reschedules the sync if it fails, in which case
+     *                          the coordinator doesn't retry the attempt serving this request
+     */
+    public void requestSync(@Nullable OnSyncFinishedListener listener,
+                            boolean isRetriedByCaller) {
+        synchronized (this) {
+            if (listener != null) pendingListeners.add(listener);
+            joinedCallerCount++;
+            this.isRetriedByCaller |= isRetriedByCaller;
+
+            if (state == State.SYNCING) {
+                Timber.d("Joined the sync already in progress");
+                return;
+            }
+
+            if (scheduledRetry != null) {
+                scheduledRetry.cancel(false);
+                scheduledRetry = null;
+            }
+
+            cancellationSignal = new CancellationSignal();
+            executor.execute(syncRunnable);
+            state = State.SYNCING;
+        }
+
+        notifyStateChanged(State.SYNCING);
+    }
+
+    /**
+     * Stops waiting on the sync that the given listener is waiting on, without notifying the
+     * listener. If no other caller is waiting on the sync, it is canceled: any network call or
+     * transaction of the sync is stopped, and the database is left as it was before the
+     * transaction.
+     *
+     * @param listener The listener passed to {@link #requestSync(OnSyncFinishedListener)}
+     * @return True if the sync was canceled, false if other callers are still waiting on it or
+     * the listener wasn't waiting on a sync
+     */
+    public boolean cancelSync(@NonNull OnSyncFinishedListener listener) {
+        CancellationSignal signal;
+
+        synchronized (this) {
+            if (!pendingListeners.remove(listener)) return false;
+
+            if (--joinedCallerCount > 0) {
+                Timber.d("Stopped waiting on sync, which other callers are still waiting on");
+                return false;
+            }
+
+            // Whoever requests a sync from now on is waiting on a fresh run, not the canceled one
+            isRetriedByCaller = false;
+            signal = cancellationSignal;
+        }
+
+        // Canceling runs the signal's listeners, which must not be called holding the lock
+        Timber.d("Canceling sync");
+        signal.cancel();
+        return true;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public void addOnSyncStateChangedListener(@NonNull OnSyncStateChangedListener listener) {
+        stateListeners.add(listener);
+    }
+
+    public void removeOnSyncStateChangedListener(@NonNull OnSyncStateChangedListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    /**
+     * Calculates how long to wait before retrying after the given number of failed attempts. The
+     * delay doubles with each failure up to a cap, and a random half of it is jittered so that
+     * many devices failing at once don't all retry at the same moment.
+     *
+     * @param failedAttempts The number of consecutive failed attempts, at least 1
+     * @param random         The source of the jitter
+     * @return The delay in milliseconds
+     */
+    static long calculateBackoffMillis(int failedAttempts, @NonNull Random random) {
+        int doublings = Math.min(failedAttempts - 1, 30);
+        long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << doublings);
+
+        long halfBackoffMillis = backoffMillis / 2;
+        return halfBackoffMillis + (long) (random.nextDouble() * halfBackoffMillis);
+    }
+
+    /**
+     * Runs one sync attempt, then notifies the listeners waiting on it and either settles the
+     * state or schedules a retry.
+     */
+    private void runSync() {
+        CancellationSignal signal;
+        synchronized (this) {
+            signal = cancellationSignal;
+        }
+
+        boolean isSuccessful = false;
+        try {
+            if (!signal.isCanceled()) isSuccessful = syncAction.sync(signal);
+        } catch (RuntimeException e) {
+            Timber.e(e, "Sync failed unexpectedly");
+        }
+
+        List<OnSyncFinishedListener> finishedListeners;
+        State finishedState;
+        synchronized (this) {
+            if (signal.isCanceled() && joinedCallerCount > 0) {
+                // Callers that joined after the cancel are served by a fresh run instead
+                Timber.d("Sync canceled, restarting it for the callers that joined since");
+                cancellationSignal = new CancellationSignal();
+                executor.execute(syncRunnable);
+                return;
+            }
+
+            finishedListeners = new ArrayList<>(pendingListeners);
+            pendingListeners.clear();
+            joinedCallerCount = 0;
+
+            boolean isRetriedByCaller = this.isRetriedByCaller;
+            this.isRetriedByCaller = false;
+
+            if (signal.isCanceled()) {
+                // The caller that canceled will request the sync again when it can run
+                Timber.d("Sync canceled");
+                state = State.IDLE;
+            } else if (isSuccessful) {
+                failedAttempts = 0;
+                state = State.IDLE;
+            } else if (isRetriedByCaller) {
+                // Retrying here as well would run every failed sync twice
+                Timber.d("Sync failed, leaving the retry to the caller");
+                failedAttempts = 0;
+                state = State.FAILED;
+            } else if (++failedAttempts >= MAX_ATTEMPTS) {
+                Timber.w("Giving up on sync after " + failedAttempts + " attempts");
+                failedAttempts = 0;
+                state = State.FAILED;
+            } else {
+                long backoffMillis = calculateBackoffMillis(failedAttempts, random);
+                Timber.d("Sync attempt " + failedAttempts + " failed, retrying in "
+                        + backoffMillis + " ms");
+
+                scheduledRetry = executor.schedule(retryRunnable, backoffMillis,
+                        TimeUnit.MILLISECONDS);
+                state = State.WAITING_TO_RETRY;
+            }
+
+            finishedState = state;
+        }
+
+        notifyStateChanged(finishedState);
+        for (OnSyncFinishedListener listener : finishedListeners) {
+            listener.onSyncFinished(isSuccessful);
+        }
+    }
+
+    /**
+     * Helper method that notifies the state listeners of the given state. It must not be called
+     * holding the lock, since a listener may call back into the coordinator.
+     */
+    private void notifyStateChanged(@NonNull State state) {
+        // The set is copied on write, so listeners may be added or removed while it is iterated
+        for (OnSyncStateChangedListener listener : stateListeners) {
+            listener.onSyncStateChanged(state);
+        }
+    }
+
+}
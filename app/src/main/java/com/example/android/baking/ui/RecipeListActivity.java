@@ -40,32 +40,44 @@
 
 package com.example.android.baking.ui;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Configuration;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.Loader;
+import android.support.v7.app.ActionBar;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.ProgressBar;
 
 import com.example.android.baking.R;
 import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeContentProvider;
 import com.example.android.baking.sync.RecipeServiceSyncUtil;
-import com.example.android.baking.sync.RecipeSyncTask;
+import com.example.android.baking.sync.SyncCoordinator;
+import com.example.android.baking.util.DatabaseQueryUtil;
+import com.example.android.baking.util.IngredientIndex;
+import com.example.android.baking.util.RecipeCache;
 import com.example.android.baking.util.RecipeListLoader;
 import com.example.android.baking.util.SimpleIdlingResource;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -75,11 +87,13 @@ import timber.log.Timber;
  * This activity is responsible for displaying the list of recipes a user can select to view.
  */
 public class RecipeListActivity extends AppCompatActivity
-        implements LoaderManager.LoaderCallbacks<List<Recipe>>, RecipeListAdapter.OnClickHandler {
+        implements LoaderManager.LoaderCallbacks<Cursor>, RecipeListAdapter.OnClickHandler,
+        SyncCoordinator.OnSyncStateChangedListener {
 
-    private static final String RECIPE_LIST_EXTRAS = "recipe_list";
     private static final int ID_RECIPE_LOADER = 1;
 
+    private static final String INGREDIENT_NAMES_EXTRAS = "ingredient_names";
+
     @BindView(R.id.rv_recipe_list)
     RecyclerView recipeRecyclerView;
 
@@ -91,10 +105,31 @@ public class RecipeListActivity extends AppCompatActivity
 
     private RecipeListAdapter recipeListAdapter;
 
-    private BroadcastReceiver broadcastReceiver;
-
     private int recyclerViewPosition = RecyclerView.NO_POSITION;
 
+    private ArrayList<String> ingredientNames = new ArrayList<>();
+
+    /**
+     * Refreshes the row of each recipe the content provider reports as changed. Changes to the
+     * list as a whole are left to the loader.
+     */
+    private final ContentObserver recipeObserver = new ContentObserver(new Handler()) {
+
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            int recipeId = RecipeContentProvider.Recipes.getRecipeId(uri);
+            if (recipeId == RecipeContentProvider.Recipes.NO_RECIPE_ID) return;
+
+            new RefreshRecipeTask(RecipeListActivity.this, recipeId).execute();
+        }
+
+    };
+
     /**
      * Returns the instance of {@link SimpleIdlingResource}. This is only called from test code.
      */
@@ -131,82 +166,82 @@ public class RecipeListActivity extends AppCompatActivity
         recipeListAdapter = new RecipeListAdapter(this, this);
         recipeRecyclerView.setAdapter(recipeListAdapter);
 
+        if (savedInstanceState != null
+                && savedInstanceState.containsKey(INGREDIENT_NAMES_EXTRAS)) {
+            ingredientNames = savedInstanceState.getStringArrayList(INGREDIENT_NAMES_EXTRAS);
+        }
+
         showLoading();
         RecipeServiceSyncUtil.initialize(this);
 
-        // If we're restoring state, no need to fetch from the database again
-        if (savedInstanceState != null) {
-            if (savedInstanceState.containsKey(RECIPE_LIST_EXTRAS)) {
-                List<Recipe> savedRecipes = savedInstanceState
-                        .getParcelableArrayList(RECIPE_LIST_EXTRAS);
-                recipeListAdapter.swapRecipes(savedRecipes);
-                showData();
-            }
-        } else {
-            getSupportLoaderManager().initLoader(ID_RECIPE_LOADER, null, this);
-        }
+        // The loader is retained across configuration changes, so this reconnects to the
+        // existing cursor rather than querying the database again when restoring state. It
+        // reloads itself when recipes are added or removed, including once the initial sync has
+        // filled the database, while a changed recipe only refreshes its own row
+        getSupportLoaderManager().initLoader(ID_RECIPE_LOADER, createLoaderArgs(), this);
+        getContentResolver().registerContentObserver(
+                RecipeContentProvider.Recipes.RECIPE_LIST, true, recipeObserver);
+    }
 
-        // Prepare a broadcast receiver to listen for database update completion.
-        // This helps mostly on the initial load of the application, where the database has not
-        // been fully updated when the activity fetches from it.
-        broadcastReceiver = new BroadcastReceiver() {
+    @Override
+    protected void onDestroy() {
+        getContentResolver().unregisterContentObserver(recipeObserver);
+        super.onDestroy();
+    }
 
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if (intent.getAction().equals(RecipeSyncTask.DB_UPDATE_COMPLETE_ACTION)) {
-                    getSupportLoaderManager().restartLoader(ID_RECIPE_LOADER, null,
-                            RecipeListActivity.this);
-                }
-            }
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putStringArrayList(INGREDIENT_NAMES_EXTRAS, ingredientNames);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.recipe_list_menu, menu);
 
-        };
+        return super.onCreateOptionsMenu(menu);
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        registerReceiver(broadcastReceiver, new IntentFilter(
-                RecipeSyncTask.DB_UPDATE_COMPLETE_ACTION));
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.filter_ingredients_menu_item) {
+            new LoadIngredientNamesTask(this).execute();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        unregisterReceiver(broadcastReceiver);
+    protected void onStart() {
+        super.onStart();
+
+        SyncCoordinator syncCoordinator = SyncCoordinator.getInstance(this);
+        syncCoordinator.addOnSyncStateChangedListener(this);
+        showSyncState(syncCoordinator.getState());
     }
 
-    /**
-     * Saves the list of recipes from the adapter.
-     *
-     * @param outState The state bundle to persist
-     */
     @Override
-    protected void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (recipeListAdapter != null) {
-            List<Recipe> recipes = recipeListAdapter.getRecipes();
-            if (recipes != null && !recipes.isEmpty()) {
-                outState.putParcelableArrayList(RECIPE_LIST_EXTRAS, new ArrayList<>(recipes));
-            }
-        }
+    protected void onStop() {
+        SyncCoordinator.getInstance(this).removeOnSyncStateChangedListener(this);
+        super.onStop();
     }
 
     /**
-     * Restores the list of recipes saves in the given {@link Bundle}.
+     * Shows the new state of the recipe sync. This is called on the sync's thread.
      *
-     * @param savedInstanceState The state bundle to restore
+     * @param state The new state of the sync
      */
     @Override
-    protected void onRestoreInstanceState(Bundle savedInstanceState) {
-        super.onRestoreInstanceState(savedInstanceState);
-        if (savedInstanceState != null) {
-            if (savedInstanceState.containsKey(RECIPE_LIST_EXTRAS)) {
-                List<Recipe> savedRecipes = savedInstanceState
-                        .getParcelableArrayList(RECIPE_LIST_EXTRAS);
-                recipeListAdapter.swapRecipes(savedRecipes);
-                showData();
+    public void onSyncStateChanged(@NonNull final SyncCoordinator.State state) {
+        runOnUiThread(new Runnable() {
+
+            @Override
+            public void run() {
+                showSyncState(state);
             }
-        }
+
+        });
     }
 
     /**
@@ -218,20 +253,21 @@ public class RecipeListActivity extends AppCompatActivity
      */
     @NonNull
     @Override
-    public Loader<List<Recipe>> onCreateLoader(int id, @Nullable Bundle args) {
-        return new RecipeListLoader(this, idlingResource);
+    public Loader<Cursor> onCreateLoader(int id, @Nullable Bundle args) {
+        return new RecipeListLoader(this, idlingResource,
+                args == null ? null : args.getStringArrayList(INGREDIENT_NAMES_EXTRAS));
     }
 
     /**
      * Updates the {@link RecipeListAdapter} with the new data retrieved from the loader and
      * displays it.
      *
-     * @param loader  The loader object
-     * @param recipes The list of recipes retrieves from the loader
+     * @param loader The loader object
+     * @param cursor The cursor of recipes retrieved from the loader
      */
     @Override
-    public void onLoadFinished(@NonNull Loader<List<Recipe>> loader, List<Recipe> recipes) {
-        recipeListAdapter.swapRecipes(recipes);
+    public void onLoadFinished(@NonNull Loader<Cursor> loader, Cursor cursor) {
+        recipeListAdapter.swapCursor(cursor);
         if (recyclerViewPosition == RecyclerView.NO_POSITION) recyclerViewPosition = 0;
         recipeRecyclerView.smoothScrollToPosition(recyclerViewPosition);
         if (idlingResource != null) idlingResource.setIdleState(true);
@@ -244,12 +280,26 @@ public class RecipeListActivity extends AppCompatActivity
      * @param loader The loader object
      */
     @Override
-    public void onLoaderReset(@NonNull Loader<List<Recipe>> loader) {
-        recipeListAdapter.swapRecipes(null);
+    public void onLoaderReset(@NonNull Loader<Cursor> loader) {
+        recipeListAdapter.swapCursor(null);
     }
 
+    /**
+     * Loads the full recipe for the given ID in the background, then opens it.
+     *
+     * @param recipeId The ID of the recipe that was clicked
+     */
     @Override
-    public void onClick(Recipe recipe) {
+    public void onClick(int recipeId) {
+        new OpenRecipeTask(this).execute(recipeId);
+    }
+
+    /**
+     * Opens the detail activity for the given recipe.
+     *
+     * @param recipe The recipe to open
+     */
+    private void openRecipe(Recipe recipe) {
         Intent recipeDetailIntent = new Intent(RecipeListActivity.this, RecipeDetailActivity.class);
 
         Bundle bundle = new Bundle();
@@ -259,6 +309,123 @@ public class RecipeListActivity extends AppCompatActivity
         startActivity(recipeDetailIntent);
     }
 
+    /**
+     * Shows the ingredients the recipe list can be filtered by, with the ingredients of the
+     * current filter checked.
+     *
+     * @param allIngredientNames Every ingredient used by at least one recipe
+     */
+    private void showIngredientFilter(@NonNull Set<String> allIngredientNames) {
+        final String[] names = allIngredientNames.toArray(new String[allIngredientNames.size()]);
+        final boolean[] checkedNames = new boolean[names.length];
+        for (int i = 0; i < names.length; i++) {
+            checkedNames[i] = ingredientNames.contains(names[i]);
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.filter_ingredients_dialog_title)
+                .setMultiChoiceItems(names, checkedNames,
+                        new DialogInterface.OnMultiChoiceClickListener() {
+
+                            @Override
+                            public void onClick(DialogInterface dialog, int which,
+                                                boolean isChecked) {
+                                checkedNames[which] = isChecked;
+                            }
+
+                        })
+                .setPositiveButton(R.string.filter_ingredients_apply,
+                        new DialogInterface.OnClickListener() {
+
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                ArrayList<String> checkedIngredientNames = new ArrayList<>();
+                                for (int i = 0; i < names.length; i++) {
+                                    if (checkedNames[i]) checkedIngredientNames.add(names[i]);
+                                }
+
+                                filterByIngredients(checkedIngredientNames);
+                            }
+
+                        })
+                .setNeutralButton(R.string.filter_ingredients_clear,
+                        new DialogInterface.OnClickListener() {
+
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                filterByIngredients(new ArrayList<String>());
+                            }
+
+                        })
+                .show();
+    }
+
+    /**
+     * Reloads the recipe list, keeping only the recipes that use every one of the given
+     * ingredients, or every recipe if none are given.
+     *
+     * @param ingredientNames The ingredients the listed recipes must use
+     */
+    private void filterByIngredients(@NonNull ArrayList<String> ingredientNames) {
+        if (ingredientNames.equals(this.ingredientNames)) return;
+
+        this.ingredientNames = ingredientNames;
+        recyclerViewPosition = 0;
+        showLoading();
+        getSupportLoaderManager().restartLoader(ID_RECIPE_LOADER, createLoaderArgs(), this);
+    }
+
+    /**
+     * Refreshes the row of the given recipe with its current name, or reloads the whole list if
+     * the recipe was added or deleted.
+     *
+     * @param recipeId   The ID of the recipe that changed
+     * @param recipeName The current name of the recipe, or null if it was deleted
+     */
+    private void refreshRecipe(int recipeId, @Nullable String recipeName) {
+        if (recipeListAdapter.refreshRecipe(recipeId, recipeName)) return;
+
+        Loader<Cursor> loader = getSupportLoaderManager().getLoader(ID_RECIPE_LOADER);
+        if (loader != null) loader.onContentChanged();
+    }
+
+    /**
+     * Creates the arguments of the recipe loader for the current ingredient filter.
+     *
+     * @return The Bundle of arguments
+     */
+    private Bundle createLoaderArgs() {
+        Bundle args = new Bundle();
+        args.putStringArrayList(INGREDIENT_NAMES_EXTRAS, ingredientNames);
+        return args;
+    }
+
+    /**
+     * Shows the given state of the recipe sync as the subtitle of the action bar, or clears the
+     * subtitle if the sync is idle.
+     *
+     * @param state The state of the sync
+     */
+    private void showSyncState(@NonNull SyncCoordinator.State state) {
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar == null) return;
+
+        switch (state) {
+            case SYNCING:
+                actionBar.setSubtitle(R.string.sync_state_syncing);
+                break;
+            case WAITING_TO_RETRY:
+                actionBar.setSubtitle(R.string.sync_state_waiting_to_retry);
+                break;
+            case FAILED:
+                actionBar.setSubtitle(R.string.sync_state_failed);
+                break;
+            default:
+                actionBar.setSubtitle(null);
+                break;
+        }
+    }
+
     /**
      * Hides the loading indicator and shows the recipe list
      */
@@ -275,4 +442,96 @@ public class RecipeListActivity extends AppCompatActivity
         loadingIndicator.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * This task loads the full recipe graph of a clicked recipe off the main thread, since the
+     * list itself only holds the columns needed for display.
+     */
+    private static class OpenRecipeTask extends AsyncTask<Integer, Void, Recipe> {
+
+        private final WeakReference<RecipeListActivity> activityReference;
+
+        OpenRecipeTask(RecipeListActivity activity) {
+            activityReference = new WeakReference<>(activity);
+        }
+
+        @Override
+        protected Recipe doInBackground(Integer... recipeIds) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null) return null;
+
+            return RecipeCache.getInstance(activity).getRecipe(recipeIds[0]);
+        }
+
+        @Override
+        protected void onPostExecute(Recipe recipe) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null || activity.isFinishing() || recipe == null) return;
+
+            activity.openRecipe(recipe);
+        }
+
+    }
+
+    /**
+     * This task reads the name of a changed recipe off the main thread, so that only its row is
+     * refreshed rather than the whole list being reloaded.
+     */
+    private static class RefreshRecipeTask extends AsyncTask<Void, Void, String> {
+
+        private final WeakReference<RecipeListActivity> activityReference;
+        private final int recipeId;
+
+        RefreshRecipeTask(RecipeListActivity activity, int recipeId) {
+            activityReference = new WeakReference<>(activity);
+            this.recipeId = recipeId;
+        }
+
+        @Override
+        protected String doInBackground(Void... params) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null) return null;
+
+            return DatabaseQueryUtil.retrieveRecipeName(activity.getContentResolver(), recipeId);
+        }
+
+        @Override
+        protected void onPostExecute(String recipeName) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null || activity.isFinishing()) return;
+
+            activity.refreshRecipe(recipeId, recipeName);
+        }
+
+    }
+
+    /**
+     * This task reads the ingredient names off the main thread, since the ingredient index is
+     * built from the database the first time it is used.
+     */
+    private static class LoadIngredientNamesTask extends AsyncTask<Void, Void, Set<String>> {
+
+        private final WeakReference<RecipeListActivity> activityReference;
+
+        LoadIngredientNamesTask(RecipeListActivity activity) {
+            activityReference = new WeakReference<>(activity);
+        }
+
+        @Override
+        protected Set<String> doInBackground(Void... params) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null) return null;
+
+            return IngredientIndex.getInstance(activity).getIngredientNames();
+        }
+
+        @Override
+        protected void onPostExecute(Set<String> ingredientNames) {
+            RecipeListActivity activity = activityReference.get();
+            if (activity == null || activity.isFinishing() || ingredientNames == null) return;
+
+            activity.showIngredientFilter(ingredientNames);
+        }
+
+    }
+
 }
@@ -41,24 +41,26 @@
 package com.example.android.baking.ui;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import com.example.android.baking.R;
-import com.example.android.baking.model.Recipe;
-
-import java.util.List;
+import com.example.android.baking.util.RecipeListLoader;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
 /**
  * This adapter is used to plug in a list of recipes to the {@link RecyclerView} that will display
- * it.
+ * it. The recipes are read from a {@link Cursor} projected by {@link RecipeListLoader}, so only
+ * the rows currently being displayed need to be held in memory.
  */
 public class RecipeListAdapter
         extends RecyclerView.Adapter<RecipeListAdapter.RecipeListAdapterViewHolder> {
@@ -66,15 +68,23 @@ public class RecipeListAdapter
     private final OnClickHandler clickHandler;
 
     private Context context;
-    private List<Recipe> recipes;
+    private Cursor cursor;
+
+    /**
+     * The names of the recipes refreshed since the cursor was loaded, which take precedence over
+     * the names in the cursor.
+     */
+    private final SparseArray<String> refreshedRecipeNames = new SparseArray<>();
 
     public RecipeListAdapter(@NonNull Context context, @NonNull OnClickHandler clickHandler) {
         this.context = context;
         this.clickHandler = clickHandler;
+
+        setHasStableIds(true);
     }
 
     public interface OnClickHandler {
-        void onClick(Recipe recipe);
+        void onClick(int recipeId);
     }
 
     /**
@@ -93,17 +103,21 @@ public class RecipeListAdapter
     }
 
     /**
-     * Populates the given {@link RecipeListAdapterViewHolder} with the data of the {@link Recipe}
-     * found at the given position.
+     * Populates the given {@link RecipeListAdapterViewHolder} with the data of the recipe found at
+     * the given position.
      *
      * @param holder   The {@link RecipeListAdapterViewHolder} to populate
      * @param position The position of the given {@link RecipeListAdapterViewHolder}
      */
     @Override
     public void onBindViewHolder(@NonNull RecipeListAdapterViewHolder holder, int position) {
-        Recipe recipe = recipes.get(position);
+        cursor.moveToPosition(position);
+
+        String recipeName = refreshedRecipeNames.get(
+                cursor.getInt(RecipeListLoader.INDEX_RECIPE_ID));
+        if (recipeName == null) recipeName = cursor.getString(RecipeListLoader.INDEX_RECIPE_NAME);
 
-        holder.recipeName.setText(recipe.getName());
+        holder.recipeName.setText(recipeName);
     }
 
     /**
@@ -113,32 +127,88 @@ public class RecipeListAdapter
      */
     @Override
     public int getItemCount() {
-        if (recipes == null) return 0;
-        return recipes.size();
+        if (cursor == null) return 0;
+        return cursor.getCount();
+    }
+
+    /**
+     * Retrieves the recipe ID of the recipe found at the given position, which stays the same for
+     * that recipe across cursor reloads.
+     *
+     * @param position The position of the recipe
+     * @return The recipe ID of the recipe at the given position
+     */
+    @Override
+    public long getItemId(int position) {
+        cursor.moveToPosition(position);
+        return cursor.getInt(RecipeListLoader.INDEX_RECIPE_ID);
     }
 
     /**
-     * Replaces the list of recipes stored in this adapter with the given list of recipes.
+     * Replaces the cursor of recipes used by this adapter with the given cursor. This is only
+     * needed when recipes were added or removed, since a changed recipe is refreshed in place by
+     * {@link #refreshRecipe(int, String)}.
+     * <p>
+     * The adapter has stable recipe IDs, so the {@link RecyclerView} keeps the rows of recipes that
+     * are still in the new cursor and rebinds only what it displays.
      *
-     * @param recipes The new list of recipes
+     * @param cursor The new cursor of recipes
      */
-    public void swapRecipes(List<Recipe> recipes) {
-        this.recipes = recipes;
+    public void swapCursor(Cursor cursor) {
+        this.cursor = cursor;
+        refreshedRecipeNames.clear();
         notifyDataSetChanged();
     }
 
     /**
-     * Retrieves the list of recipes stored in this adapter.
+     * Refreshes the row of a single recipe with its current name, without reloading the cursor.
      *
-     * @return The list of recipes stored in this adapter
+     * @param recipeId   The ID of the recipe that changed
+     * @param recipeName The current name of the recipe, or null if it was deleted
+     * @return True if the row was refreshed, false if the recipe was added or deleted, in which
+     * case the cursor needs to be reloaded
      */
-    public List<Recipe> getRecipes() {
-        return recipes;
+    public boolean refreshRecipe(int recipeId, @Nullable String recipeName) {
+        if (recipeName == null) return false;
+
+        int position = findPosition(recipeId);
+        if (position == RecyclerView.NO_POSITION) return false;
+
+        refreshedRecipeNames.put(recipeId, recipeName);
+        notifyItemChanged(position);
+        return true;
+    }
+
+    /**
+     * Helper method that finds the position of the given recipe with a binary search, since the
+     * cursor is sorted by recipe ID.
+     */
+    private int findPosition(int recipeId) {
+        if (cursor == null) return RecyclerView.NO_POSITION;
+
+        int low = 0;
+        int high = cursor.getCount() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            cursor.moveToPosition(middle);
+
+            int middleRecipeId = cursor.getInt(RecipeListLoader.INDEX_RECIPE_ID);
+            if (middleRecipeId < recipeId) {
+                low = middle + 1;
+            } else if (middleRecipeId > recipeId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return RecyclerView.NO_POSITION;
     }
 
     /**
      * This class is the implementation of the {@link RecyclerView.ViewHolder} that will display
-     * a single {@link Recipe} from the list.
+     * a single recipe from the list.
      */
     class RecipeListAdapterViewHolder extends RecyclerView.ViewHolder
             implements View.OnClickListener {
@@ -155,8 +225,13 @@ public class RecipeListAdapter
 
         @Override
         public void onClick(View view) {
-            Recipe recipe = recipes.get(getAdapterPosition());
-            clickHandler.onClick(recipe);
+            int position = getAdapterPosition();
+
+            // The row may be clicked while it is being removed, before it has a position again
+            if (position == RecyclerView.NO_POSITION) return;
+
+            cursor.moveToPosition(position);
+            clickHandler.onClick(cursor.getInt(RecipeListLoader.INDEX_RECIPE_ID));
         }
     }
 
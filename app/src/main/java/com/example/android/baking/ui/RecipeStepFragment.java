@@ -54,6 +54,7 @@ import android.widget.TextView;
 
 import com.example.android.baking.R;
 import com.example.android.baking.model.Step;
+import com.example.android.baking.service.RecipeServiceGenerator;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.SimpleExoPlayer;
@@ -64,10 +65,8 @@ import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.ui.AspectRatioFrameLayout;
 import com.google.android.exoplayer2.ui.SimpleExoPlayerView;
 import com.google.android.exoplayer2.upstream.DataSource;
-import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.util.Util;
 import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
 
 import java.util.Objects;
 
@@ -154,8 +153,9 @@ public class RecipeStepFragment extends Fragment {
         }
 
         if (!TextUtils.isEmpty(currentStep.getThumbnailUrl())) {
-            Picasso.get().load(Uri.parse(currentStep.getThumbnailUrl())).into(thumbnailImage,
-                    new Callback() {
+            RecipeServiceGenerator.getPicasso(Objects.requireNonNull(getContext()))
+                    .load(Uri.parse(currentStep.getThumbnailUrl()))
+                    .into(thumbnailImage, new Callback() {
                         @Override
                         public void onSuccess() {
                             thumbnailImage.setVisibility(View.VISIBLE);
@@ -207,9 +207,9 @@ public class RecipeStepFragment extends Fragment {
             exoPlayerView.setPlayer(exoPlayer);
 
             DataSource.Factory dataSourceFactory =
-                    new DefaultDataSourceFactory(Objects.requireNonNull(getContext()),
-                            Util.getUserAgent(getContext(), getString(R.string.app_name)),
-                            null);
+                    RecipeServiceGenerator.createMediaDataSourceFactory(
+                            Objects.requireNonNull(getContext()),
+                            Util.getUserAgent(getContext(), getString(R.string.app_name)));
             MediaSource mediaSource = new ExtractorMediaSource.Factory(dataSourceFactory)
                     .createMediaSource(mediaUri);
             exoPlayer.prepare(mediaSource);
@@ -47,6 +47,8 @@ public class AppPreferences {
 
     private static final String RECIPE_PREFERENCES = "recipe_preferences";
     private static final String SELECTED_RECIPE_ID = "selected_recipe_id";
+    private static final String CATALOG_VALIDATOR = "catalog_validator";
+    private static final String CATALOG_VERSION = "catalog_version";
 
     public static void pinRecipe(Context context, int recipeId) {
         SharedPreferences.Editor preferencesEditor = context.getSharedPreferences(RECIPE_PREFERENCES,
@@ -71,4 +73,72 @@ public class AppPreferences {
         return sharedPreferences.getInt(SELECTED_RECIPE_ID, -1);
     }
 
+    /**
+     * Retrieves the HTTP validator (ETag or Last-Modified value) of the recipe feed response that
+     * the stored catalog was last synced from.
+     *
+     * @param context The {@link Context} used to access the preferences
+     * @return The validator, or null if the catalog wasn't synced from a validated response
+     */
+    public static String getCatalogValidator(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(RECIPE_PREFERENCES,
+                Context.MODE_PRIVATE);
+
+        return sharedPreferences.getString(CATALOG_VALIDATOR, null);
+    }
+
+    /**
+     * Stores the HTTP validator of the recipe feed response that the stored catalog was synced
+     * from, or removes it if the response didn't have one.
+     *
+     * @param context   The {@link Context} used to access the preferences
+     * @param validator The validator of the response, which may be null
+     */
+    public static void setCatalogValidator(Context context, String validator) {
+        SharedPreferences.Editor preferencesEditor = context.getSharedPreferences(RECIPE_PREFERENCES,
+                Context.MODE_PRIVATE).edit();
+
+        if (validator == null) {
+            preferencesEditor.remove(CATALOG_VALIDATOR);
+        } else {
+            preferencesEditor.putString(CATALOG_VALIDATOR, validator);
+        }
+
+        preferencesEditor.apply();
+    }
+
+    /**
+     * Retrieves the catalog version that the stored catalog was last synced to, which is the
+     * starting point of the next request to the delta feed.
+     *
+     * @param context The {@link Context} used to access the preferences
+     * @return The catalog version, or null if the server didn't report one
+     */
+    public static String getCatalogVersion(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(RECIPE_PREFERENCES,
+                Context.MODE_PRIVATE);
+
+        return sharedPreferences.getString(CATALOG_VERSION, null);
+    }
+
+    /**
+     * Stores the catalog version that the stored catalog was synced to, or removes it if the
+     * server didn't report one.
+     *
+     * @param context The {@link Context} used to access the preferences
+     * @param version The catalog version, which may be null
+     */
+    public static void setCatalogVersion(Context context, String version) {
+        SharedPreferences.Editor preferencesEditor = context.getSharedPreferences(RECIPE_PREFERENCES,
+                Context.MODE_PRIVATE).edit();
+
+        if (version == null) {
+            preferencesEditor.remove(CATALOG_VERSION);
+        } else {
+            preferencesEditor.putString(CATALOG_VERSION, version);
+        }
+
+        preferencesEditor.apply();
+    }
+
 }
@@ -0,0 +1,503 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * This class is a read-only binary snapshot of the whole recipe catalog, written at the end of
+ * each sync and read through a memory-mapped buffer, so the recipe list and widget can be shown
+ * on a cold start without opening the database.
+ * <p>
+ * The snapshot is laid out as a header, followed by fixed-size recipe, ingredient and step
+ * records and a table of UTF-8 strings that the records point into. Recipes are sorted by ID, so
+ * any field of any record is read at a computed offset, and strings are only decoded when asked
+ * for.
+ */
+public class CatalogSnapshot {
+
+    private static final String SNAPSHOT_FILE_NAME = "catalog.snapshot";
+
+    private static final int MAGIC = 0x52435053;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 20;
+    private static final int RECIPE_RECORD_SIZE = 40;
+    private static final int INGREDIENT_RECORD_SIZE = 20;
+    private static final int STEP_RECORD_SIZE = 36;
+
+    private static final int NULL_STRING_LENGTH = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static CatalogSnapshot instance;
+    private static boolean isInstanceLoaded;
+
+    private final ByteBuffer buffer;
+    private final int recipeCount;
+    private final int ingredientsOffset;
+    private final int stepsOffset;
+    private final int stringsOffset;
+
+    private CatalogSnapshot(@NonNull ByteBuffer buffer, int recipeCount, int ingredientCount,
+                            int stepCount) {
+        this.buffer = buffer;
+        this.recipeCount = recipeCount;
+        this.ingredientsOffset = HEADER_SIZE + recipeCount * RECIPE_RECORD_SIZE;
+        this.stepsOffset = ingredientsOffset + ingredientCount * INGREDIENT_RECORD_SIZE;
+        this.stringsOffset = stepsOffset + stepCount * STEP_RECORD_SIZE;
+    }
+
+    /**
+     * Retrieves the process-wide snapshot of the catalog, mapping it on first use.
+     *
+     * @param context The {@link Context} used to locate the snapshot file
+     * @return The snapshot, or null if there is no valid snapshot
+     */
+    @Nullable
+    public static synchronized CatalogSnapshot getInstance(@NonNull Context context) {
+        if (!isInstanceLoaded) {
+            instance = open(getSnapshotFile(context));
+            isInstanceLoaded = true;
+        }
+
+        return instance;
+    }
+
+    /**
+     * Writes a new snapshot of the given catalog, replacing the current one.
+     *
+     * @param context The {@link Context} used to locate the snapshot file
+     * @param recipes The complete list of recipes in the catalog
+     */
+    public static synchronized void update(@NonNull Context context,
+                                           @NonNull List<Recipe> recipes) {
+        try {
+            write(getSnapshotFile(context), recipes);
+        } catch (IOException e) {
+            Timber.e(e, "Failed to write catalog snapshot");
+            delete(context);
+            return;
+        }
+
+        isInstanceLoaded = false;
+        instance = null;
+    }
+
+    /**
+     * Deletes the current snapshot, so that readers fall back to the database. This must be
+     * called before the catalog in the database is changed, so that the snapshot is never stale.
+     *
+     * @param context The {@link Context} used to locate the snapshot file
+     */
+    public static synchronized void delete(@NonNull Context context) {
+        File file = getSnapshotFile(context);
+        if (file.exists() && !file.delete()) {
+            Timber.w("Failed to delete catalog snapshot " + file);
+        }
+
+        isInstanceLoaded = false;
+        instance = null;
+    }
+
+    /**
+     * Writes a snapshot of the given recipes to the given file. The snapshot is written to a
+     * temporary file first and renamed into place, so readers never see a partial snapshot.
+     *
+     * @param file    The snapshot file
+     * @param recipes The recipes to write
+     * @throws IOException If the snapshot can't be written
+     */
+    static void write(@NonNull File file, @NonNull List<Recipe> recipes) throws IOException {
+        List<Recipe> sortedRecipes = new ArrayList<>(recipes);
+        Collections.sort(sortedRecipes, new Comparator<Recipe>() {
+
+            @Override
+            public int compare(Recipe first, Recipe second) {
+                return Integer.compare(first.getId(), second.getId());
+            }
+
+        });
+
+        int ingredientCount = 0;
+        int stepCount = 0;
+        for (Recipe recipe : sortedRecipes) {
+            ingredientCount += sizeOf(recipe.getIngredients());
+            stepCount += sizeOf(recipe.getSteps());
+        }
+
+        StringTable strings = new StringTable();
+        ByteBuffer records = ByteBuffer.allocate(HEADER_SIZE
+                + sortedRecipes.size() * RECIPE_RECORD_SIZE
+                + ingredientCount * INGREDIENT_RECORD_SIZE
+                + stepCount * STEP_RECORD_SIZE);
+
+        records.putInt(MAGIC);
+        records.putInt(FORMAT_VERSION);
+        records.putInt(sortedRecipes.size());
+        records.putInt(ingredientCount);
+        records.putInt(stepCount);
+
+        int firstIngredient = 0;
+        int firstStep = 0;
+        for (Recipe recipe : sortedRecipes) {
+            records.putInt(recipe.getId());
+            records.putInt(recipe.getServings());
+            strings.put(records, recipe.getName());
+            strings.put(records, recipe.getImage());
+            records.putInt(firstIngredient);
+            records.putInt(sizeOf(recipe.getIngredients()));
+            records.putInt(firstStep);
+            records.putInt(sizeOf(recipe.getSteps()));
+
+            firstIngredient += sizeOf(recipe.getIngredients());
+            firstStep += sizeOf(recipe.getSteps());
+        }
+
+        for (Recipe recipe : sortedRecipes) {
+            if (recipe.getIngredients() == null) continue;
+
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                records.putInt(ingredient.getQuantity());
+                strings.put(records, ingredient.getMeasure());
+                strings.put(records, ingredient.getIngredient());
+            }
+        }
+
+        for (Recipe recipe : sortedRecipes) {
+            if (recipe.getSteps() == null) continue;
+
+            for (Step step : recipe.getSteps()) {
+                records.putInt(step.getId());
+                strings.put(records, step.getShortDescription());
+                strings.put(records, step.getDescription());
+                strings.put(records, step.getVideoUrl());
+                strings.put(records, step.getThumbnailUrl());
+            }
+        }
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            outputStream.write(records.array());
+            strings.writeTo(outputStream);
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + temporaryFile + " to " + file);
+        }
+
+        Timber.d("Wrote catalog snapshot of " + sortedRecipes.size() + " recipes ("
+                + file.length() + " bytes)");
+    }
+
+    /**
+     * Maps the snapshot in the given file into memory.
+     *
+     * @param file The snapshot file
+     * @return The snapshot, or null if the file doesn't exist or isn't a valid snapshot
+     */
+    @Nullable
+    static CatalogSnapshot open(@NonNull File file) {
+        if (!file.exists()) return null;
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer;
+
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                // The mapping stays valid once the file is closed
+                randomAccessFile.close();
+            }
+
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                    || buffer.getInt(4) != FORMAT_VERSION) {
+                Timber.w("Ignoring invalid catalog snapshot " + file);
+                return null;
+            }
+
+            CatalogSnapshot snapshot = new CatalogSnapshot(buffer, buffer.getInt(8),
+                    buffer.getInt(12), buffer.getInt(16));
+            if (snapshot.stringsOffset > buffer.capacity()) {
+                Timber.w("Ignoring truncated catalog snapshot " + file);
+                return null;
+            }
+
+            return snapshot;
+        } catch (IOException e) {
+            Timber.e(e, "Failed to map catalog snapshot " + file);
+            return null;
+        }
+    }
+
+    public int getRecipeCount() {
+        return recipeCount;
+    }
+
+    /**
+     * Retrieves the ID of the recipe at the given position. Recipes are ordered by ID.
+     *
+     * @param position The position of the recipe, from 0 to {@link #getRecipeCount()}
+     * @return The ID of the recipe
+     */
+    public int getRecipeId(int position) {
+        return buffer.getInt(recipeRecordOffset(position));
+    }
+
+    /**
+     * Retrieves the name of the recipe at the given position.
+     *
+     * @param position The position of the recipe, from 0 to {@link #getRecipeCount()}
+     * @return The name of the recipe
+     */
+    @Nullable
+    public String getRecipeName(int position) {
+        return readString(recipeRecordOffset(position) + 8);
+    }
+
+    /**
+     * Finds the position of the recipe with the given ID.
+     *
+     * @param recipeId The ID of the recipe to find
+     * @return The position of the recipe, or -1 if it isn't in the snapshot
+     */
+    public int findRecipe(int recipeId) {
+        int low = 0;
+        int high = recipeCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = getRecipeId(middle);
+
+            if (middleId < recipeId) {
+                low = middle + 1;
+            } else if (middleId > recipeId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Reads the full recipe with the given ID, including its ingredients and steps.
+     *
+     * @param recipeId The ID of the recipe to read
+     * @return The recipe, or null if it isn't in the snapshot
+     */
+    @Nullable
+    public Recipe getRecipe(int recipeId) {
+        int position = findRecipe(recipeId);
+        if (position == -1) return null;
+
+        return readRecipe(position);
+    }
+
+    /**
+     * Reads every recipe in the snapshot in full, in ascending order of ID.
+     *
+     * @return The recipes of the snapshot
+     */
+    public List<Recipe> getRecipes() {
+        List<Recipe> recipes = new ArrayList<>(recipeCount);
+        for (int position = 0; position < recipeCount; position++) {
+            recipes.add(readRecipe(position));
+        }
+
+        return recipes;
+    }
+
+    private Recipe readRecipe(int position) {
+        int offset = recipeRecordOffset(position);
+
+        Recipe recipe = new Recipe();
+        recipe.setId(buffer.getInt(offset));
+        recipe.setServings(buffer.getInt(offset + 4));
+        recipe.setName(readString(offset + 8));
+        recipe.setImage(readString(offset + 16));
+
+        int firstIngredient = buffer.getInt(offset + 24);
+        int ingredientCount = buffer.getInt(offset + 28);
+        List<Ingredient> ingredients = new ArrayList<>(ingredientCount);
+
+        for (int i = firstIngredient; i < firstIngredient + ingredientCount; i++) {
+            int ingredientOffset = ingredientsOffset + i * INGREDIENT_RECORD_SIZE;
+
+            Ingredient ingredient = new Ingredient();
+            ingredient.setQuantity(buffer.getInt(ingredientOffset));
+            ingredient.setMeasure(readString(ingredientOffset + 4));
+            ingredient.setIngredient(readString(ingredientOffset + 12));
+            ingredients.add(ingredient);
+        }
+
+        int firstStep = buffer.getInt(offset + 32);
+        int stepCount = buffer.getInt(offset + 36);
+        List<Step> steps = new ArrayList<>(stepCount);
+
+        for (int i = firstStep; i < firstStep + stepCount; i++) {
+            int stepOffset = stepsOffset + i * STEP_RECORD_SIZE;
+
+            Step step = new Step();
+            step.setId(buffer.getInt(stepOffset));
+            step.setShortDescription(readString(stepOffset + 4));
+            step.setDescription(readString(stepOffset + 12));
+            step.setVideoUrl(readString(stepOffset + 20));
+            step.setThumbnailUrl(readString(stepOffset + 28));
+            steps.add(step);
+        }
+
+        recipe.setIngredients(ingredients);
+        recipe.setSteps(steps);
+
+        return recipe;
+    }
+
+    private int recipeRecordOffset(int position) {
+        if (position < 0 || position >= recipeCount) {
+            throw new IndexOutOfBoundsException("Recipe position " + position + " of "
+                    + recipeCount);
+        }
+
+        return HEADER_SIZE + position * RECIPE_RECORD_SIZE;
+    }
+
+    /**
+     * Helper method that decodes the string referenced by the offset and length pair stored at
+     * the given offset of a record.
+     *
+     * @param referenceOffset The offset of the string reference within the snapshot
+     * @return The decoded string, or null if a null string was written
+     */
+    @Nullable
+    private String readString(int referenceOffset) {
+        int length = buffer.getInt(referenceOffset + 4);
+        if (length == NULL_STRING_LENGTH) return null;
+
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(stringsOffset + buffer.getInt(referenceOffset));
+        source.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    private static File getSnapshotFile(@NonNull Context context) {
+        return new File(context.getFilesDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    private static int sizeOf(@Nullable List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    /**
+     * This class builds the string table of a snapshot, storing each distinct string once.
+     */
+    private static class StringTable {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<String, Integer> offsets = new HashMap<>();
+
+        /**
+         * Adds the given string to the table if needed, and writes its offset and length to the
+         * given record buffer.
+         *
+         * @param records The buffer of the record referencing the string
+         * @param value   The string to reference, which may be null
+         */
+        void put(@NonNull ByteBuffer records, @Nullable String value) {
+            if (value == null) {
+                records.putInt(0);
+                records.putInt(NULL_STRING_LENGTH);
+                return;
+            }
+
+            byte[] encoded = value.getBytes(UTF_8);
+            Integer offset = offsets.get(value);
+
+            if (offset == null) {
+                offset = bytes.size();
+                offsets.put(value, offset);
+                bytes.write(encoded, 0, encoded.length);
+            }
+
+            records.putInt(offset);
+            records.putInt(encoded.length);
+        }
+
+        void writeTo(@NonNull FileOutputStream outputStream) throws IOException {
+            bytes.writeTo(outputStream);
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.IngredientColumns;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.StepColumns;
+
+import java.util.Arrays;
+
+/**
+ * This class converts the current row of a {@link Cursor} into a model object, reading the
+ * columns listed for that model in the provider's column classes.
+ * <p>
+ * A mapper looks up the indices of the columns it reads once, when it is bound to a cursor, and
+ * only looks them up again when it is bound to a cursor with different columns. Mapping each row
+ * is then a tight sequence of getters and setters. Columns missing from the cursor are read as 0
+ * or null. Mappers hold state, so an instance must not be shared between threads.
+ * <p>
+ * The first column of every mapper is the recipe ID, so that rows of any table can be grouped by
+ * recipe with {@link #getRecipeId(Cursor)}.
+ *
+ * @param <T> The type of model object the mapper creates
+ */
+public final class CursorMapper<T> {
+
+    private static final String[] RECIPE_COLUMNS = {RecipeColumns.RECIPE_ID, RecipeColumns.NAME,
+            RecipeColumns.SERVINGS, RecipeColumns.IMAGE};
+
+    private static final String[] INGREDIENT_COLUMNS = {IngredientColumns.RECIPE_ID,
+            IngredientColumns.QUANTITY, IngredientColumns.MEASURE, IngredientColumns.NAME};
+
+    private static final String[] STEP_COLUMNS = {StepColumns.RECIPE_ID, StepColumns.STEP_ID,
+            StepColumns.SHORT_DESCRIPTION, StepColumns.DESCRIPTION, StepColumns.VIDEO_URL,
+            StepColumns.THUMBNAIL_URL};
+
+    private final String[] columns;
+    private final RowReader<T> rowReader;
+    private final Row row;
+
+    private String[] boundColumnNames;
+
+    private CursorMapper(@NonNull String[] columns, @NonNull RowReader<T> rowReader) {
+        this.columns = columns;
+        this.rowReader = rowReader;
+        this.row = new Row(columns.length);
+    }
+
+    /**
+     * Creates a mapper of rows of the RECIPE table to {@link Recipe} objects, without their
+     * ingredients and steps.
+     *
+     * @return A new recipe mapper
+     */
+    public static CursorMapper<Recipe> forRecipes() {
+        return new CursorMapper<>(RECIPE_COLUMNS, new RowReader<Recipe>() {
+
+            @NonNull
+            @Override
+            public Recipe read(@NonNull Row row) {
+                Recipe recipe = new Recipe();
+                recipe.setId(row.getInt(0));
+                recipe.setName(row.getString(1));
+                recipe.setServings(row.getInt(2));
+                recipe.setImage(row.getString(3));
+                return recipe;
+            }
+
+        });
+    }
+
+    /**
+     * Creates a mapper of rows of the INGREDIENT table to {@link Ingredient} objects.
+     *
+     * @return A new ingredient mapper
+     */
+    public static CursorMapper<Ingredient> forIngredients() {
+        return new CursorMapper<>(INGREDIENT_COLUMNS, new RowReader<Ingredient>() {
+
+            @NonNull
+            @Override
+            public Ingredient read(@NonNull Row row) {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setQuantity(row.getInt(1));
+                ingredient.setMeasure(row.getString(2));
+                ingredient.setIngredient(row.getString(3));
+                return ingredient;
+            }
+
+        });
+    }
+
+    /**
+     * Creates a mapper of rows of the STEP table to {@link Step} objects.
+     *
+     * @return A new step mapper
+     */
+    public static CursorMapper<Step> forSteps() {
+        return new CursorMapper<>(STEP_COLUMNS, new RowReader<Step>() {
+
+            @NonNull
+            @Override
+            public Step read(@NonNull Row row) {
+                Step step = new Step();
+                step.setId(row.getInt(1));
+                step.setShortDescription(row.getString(2));
+                step.setDescription(row.getString(3));
+                step.setVideoUrl(row.getString(4));
+                step.setThumbnailUrl(row.getString(5));
+                return step;
+            }
+
+        });
+    }
+
+    /**
+     * Binds the mapper to the given cursor, resolving the column indices it reads unless the
+     * cursor has the same columns as the cursor the mapper was last bound to.
+     *
+     * @param cursor The cursor whose rows will be mapped
+     */
+    public void bind(@NonNull Cursor cursor) {
+        String[] columnNames = cursor.getColumnNames();
+
+        if (columnNames != boundColumnNames && !Arrays.equals(columnNames, boundColumnNames)) {
+            for (int i = 0; i < columns.length; i++) {
+                row.indices[i] = cursor.getColumnIndex(columns[i]);
+            }
+
+            boundColumnNames = columnNames;
+        }
+    }
+
+    /**
+     * Creates a model object from the current row of the given cursor, which must be the cursor
+     * the mapper was last bound to.
+     *
+     * @param cursor The cursor positioned at the row to map
+     * @return The model object for the current row
+     */
+    @NonNull
+    public T map(@NonNull Cursor cursor) {
+        row.cursor = cursor;
+        return rowReader.read(row);
+    }
+
+    /**
+     * Retrieves the recipe ID of the current row of the given cursor, which must be the cursor
+     * the mapper was last bound to.
+     *
+     * @param cursor The cursor positioned at the row
+     * @return The recipe ID of the current row
+     */
+    public int getRecipeId(@NonNull Cursor cursor) {
+        row.cursor = cursor;
+        return row.getInt(0);
+    }
+
+    /**
+     * This interface creates a model object from a single row.
+     */
+    private interface RowReader<T> {
+
+        @NonNull
+        T read(@NonNull Row row);
+
+    }
+
+    /**
+     * This class reads the current row of the bound cursor, addressing each column by its
+     * position in the mapper's list of columns.
+     */
+    private static final class Row {
+
+        final int[] indices;
+        Cursor cursor;
+
+        Row(int columnCount) {
+            indices = new int[columnCount];
+        }
+
+        int getInt(int column) {
+            int index = indices[column];
+            return index == -1 ? 0 : cursor.getInt(index);
+        }
+
+        @Nullable
+        String getString(int column) {
+            int index = indices[column];
+            return index == -1 ? null : cursor.getString(index);
+        }
+
+    }
+
+}
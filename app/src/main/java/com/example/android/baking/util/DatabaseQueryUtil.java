@@ -40,10 +40,15 @@
 
 package com.example.android.baking.util;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.example.android.baking.model.Ingredient;
 import com.example.android.baking.model.Recipe;
@@ -51,10 +56,16 @@ import com.example.android.baking.model.Step;
 import com.example.android.baking.provider.IngredientColumns;
 import com.example.android.baking.provider.RecipeColumns;
 import com.example.android.baking.provider.RecipeContentProvider;
+import com.example.android.baking.provider.RecipeDatabase;
+import com.example.android.baking.provider.RecipeSearchColumns;
 import com.example.android.baking.provider.StepColumns;
+import com.example.android.baking.provider.SyncHistoryColumns;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 import timber.log.Timber;
 
@@ -65,45 +76,41 @@ import timber.log.Timber;
 public class DatabaseQueryUtil {
 
     /**
-     * Retrieves the list of recipes found in the database connected to the given
-     * {@link ContentResolver}.
-     *
-     * @param contentResolver The {@link ContentResolver} instance
-     * @return The list of recipes found in the database
+     * The most recipe IDs bound to a single query, which keeps each query well under SQLite's
+     * limit of 999 bound parameters.
      */
-    public static List<Recipe> retrieveRecipes(@NonNull ContentResolver contentResolver) {
-        List<Recipe> recipes = new ArrayList<>();
+    private static final int MAX_RECIPE_ID_ARGS = 500;
 
-        Cursor cursor = contentResolver.query(RecipeContentProvider.Recipes.RECIPE_LIST, null,
-                null, null, null);
+    /**
+     * The number of most recent syncs whose metrics are kept in the sync history.
+     */
+    private static final int MAX_SYNC_HISTORY = 50;
 
-        try {
-            if (cursor != null && cursor.getCount() > 0) {
-                int recipeIdIndex = cursor.getColumnIndex(RecipeColumns.RECIPE_ID);
-                int nameIndex = cursor.getColumnIndex(RecipeColumns.NAME);
-                int servingIndex = cursor.getColumnIndex(RecipeColumns.SERVINGS);
-                int imageIndex = cursor.getColumnIndex(RecipeColumns.IMAGE);
+    private static final String STEP_SELECTION =
+            StepColumns.RECIPE_ID + " = ? AND " + StepColumns.STEP_ID + " = ?";
 
-                while (cursor.moveToNext()) {
-                    Recipe recipe = new Recipe();
+    private static final String SEARCH_DOC_SELECTION = RecipeSearchColumns.DOC_ID + " = ?";
 
-                    recipe.setId(cursor.getInt(recipeIdIndex));
-                    recipe.setName(cursor.getString(nameIndex));
-                    recipe.setServings(cursor.getInt(servingIndex));
-                    recipe.setImage(cursor.getString(imageIndex));
+    private static final String SEARCH_MATCH_SELECTION = RecipeDatabase.RECIPE_SEARCH + " MATCH ?";
 
-                    recipe.setIngredients(retrieveIngredientsForRecipe(contentResolver,
-                            recipe.getId()));
-                    recipe.setSteps(retrieveStepsForRecipe(contentResolver, recipe.getId()));
+    /**
+     * The statistics of each search match that {@link RecipeSearchRanker} ranks the results by.
+     */
+    private static final String SEARCH_MATCH_INFO = "matchinfo(" + RecipeDatabase.RECIPE_SEARCH
+            + ", '" + RecipeSearchRanker.MATCH_INFO_FORMAT + "')";
 
-                    recipes.add(recipe);
-                }
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+    /**
+     * Retrieves the list of recipes found in the database connected to the given
+     * {@link ContentResolver}.
+     * <p>
+     * The full recipe graph is loaded using a constant number of queries (one per table),
+     * regardless of the number of recipes stored in the database.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @return The list of recipes found in the database
+     */
+    public static List<Recipe> retrieveRecipes(@NonNull ContentResolver contentResolver) {
+        List<Recipe> recipes = retrieveRecipeGraphs(contentResolver, null);
 
         Timber.d("Found " + recipes.size() + " recipes in database");
         return recipes;
@@ -117,38 +124,77 @@ public class DatabaseQueryUtil {
      * @return The recipe found in the database for the given ID
      */
     public static Recipe retrieveRecipe(@NonNull ContentResolver contentResolver, int recipeId) {
-        Cursor cursor = contentResolver.query(RecipeContentProvider.Recipes.withId(recipeId), null,
-                null, null, null);
-
-        try {
-            if (cursor != null && cursor.getCount() == 1) {
-                int recipeIdIndex = cursor.getColumnIndex(RecipeColumns.RECIPE_ID);
-                int nameIndex = cursor.getColumnIndex(RecipeColumns.NAME);
-                int servingIndex = cursor.getColumnIndex(RecipeColumns.SERVINGS);
-                int imageIndex = cursor.getColumnIndex(RecipeColumns.IMAGE);
-
-                cursor.moveToNext();
-
-                Recipe recipe = new Recipe();
+        String[] selectionArgs = {String.valueOf(recipeId)};
+        List<Recipe> recipes = retrieveRecipeGraphs(contentResolver, selectionArgs);
 
-                recipe.setId(cursor.getInt(recipeIdIndex));
-                recipe.setName(cursor.getString(nameIndex));
-                recipe.setServings(cursor.getInt(servingIndex));
-                recipe.setImage(cursor.getString(imageIndex));
+        if (recipes.size() == 1) {
+            return recipes.get(0);
+        } else {
+            return null;
+        }
+    }
 
-                recipe.setIngredients(retrieveIngredientsForRecipe(contentResolver,
-                        recipe.getId()));
-                recipe.setSteps(retrieveStepsForRecipe(contentResolver, recipe.getId()));
+    /**
+     * Retrieves the name of a single recipe found in the database for the given ID, without
+     * loading its ingredients and steps.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @param recipeId        The ID of the recipe whose name to retrieve
+     * @return The name of the recipe, or null if it isn't found
+     */
+    @Nullable
+    public static String retrieveRecipeName(@NonNull ContentResolver contentResolver,
+                                            int recipeId) {
+        String[] projectionColumns = {RecipeColumns.NAME};
+        Cursor cursor = contentResolver.query(RecipeContentProvider.Recipes.withId(recipeId),
+                projectionColumns, null, null, null);
 
-                return recipe;
-            } else {
-                return null;
+        try {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getString(0);
             }
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
+
+        return null;
+    }
+
+    /**
+     * Retrieves the recipes found in the database for the given IDs, in ascending order of ID.
+     * IDs that aren't found are skipped.
+     * <p>
+     * Only the rows of the given recipes are read, so the cost of the lookup depends on the
+     * number of IDs rather than on the size of the catalog.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @param recipeIds       The IDs of the recipes to retrieve
+     * @return The list of recipes found in the database for the given IDs
+     */
+    public static List<Recipe> retrieveRecipes(@NonNull ContentResolver contentResolver,
+                                               @NonNull Collection<Integer> recipeIds) {
+        List<Recipe> recipes = new ArrayList<>();
+        List<String> recipeIdArgs = new ArrayList<>();
+
+        for (Integer recipeId : recipeIds) {
+            recipeIdArgs.add(String.valueOf(recipeId));
+
+            if (recipeIdArgs.size() == MAX_RECIPE_ID_ARGS) {
+                recipes.addAll(retrieveRecipeGraphs(contentResolver,
+                        recipeIdArgs.toArray(new String[recipeIdArgs.size()])));
+                recipeIdArgs.clear();
+            }
+        }
+
+        if (!recipeIdArgs.isEmpty()) {
+            recipes.addAll(retrieveRecipeGraphs(contentResolver,
+                    recipeIdArgs.toArray(new String[recipeIdArgs.size()])));
+        }
+
+        Timber.d("Found " + recipes.size() + " of " + recipeIds.size() + " recipes in database");
+        return recipes;
     }
 
     /**
@@ -185,37 +231,37 @@ public class DatabaseQueryUtil {
     }
 
     /**
-     * Retrieves the list of ingredients found in the database connected to the given
-     * {@link ContentResolver} for the given recipe ID.
+     * Searches the recipe names, ingredient names and step descriptions found in the database
+     * connected to the given {@link ContentResolver} for the given query.
+     * <p>
+     * Every word of the query must match the start of a word in the recipe. Results are ranked by
+     * their BM25 relevance, as computed by {@link RecipeSearchRanker}, with matches in the recipe
+     * name counting the most. Ties are ordered by recipe ID.
      *
      * @param contentResolver The {@link ContentResolver} instance
-     * @param recipeId        The ID of the recipe to find the ingredients for
-     * @return The list of ingredients for the given recipe ID
+     * @param query           The text to search for
+     * @param limit           The maximum number of recipe IDs to return
+     * @param offset          The number of ranked recipe IDs to skip
+     * @return The ranked list of matching recipe IDs
      */
-    private static List<Ingredient> retrieveIngredientsForRecipe(@NonNull ContentResolver contentResolver,
-                                                                 int recipeId) {
-        List<Ingredient> ingredients = new ArrayList<>();
-
-        String selection = IngredientColumns.RECIPE_ID + " = ?";
-        String[] selectionArgs = {String.valueOf(recipeId)};
-        Cursor cursor = contentResolver.query(RecipeContentProvider.Ingredients.INGREDIENT_LIST,
-                null, selection, selectionArgs, null);
+    public static List<Integer> searchRecipes(@NonNull ContentResolver contentResolver,
+                                              @NonNull String query, int limit, int offset) {
+        List<Integer> recipeIds = new ArrayList<>();
 
-        try {
-            if (cursor != null && cursor.getCount() > 0) {
-                int quantityIndex = cursor.getColumnIndex(IngredientColumns.QUANTITY);
-                int measureIndex = cursor.getColumnIndex(IngredientColumns.MEASURE);
-                int nameIndex = cursor.getColumnIndex(IngredientColumns.NAME);
+        String matchExpression = createSearchMatchExpression(query);
+        if (matchExpression.isEmpty() || limit <= 0) {
+            return recipeIds;
+        }
 
-                while (cursor.moveToNext()) {
-                    Ingredient ingredient = new Ingredient();
+        String[] projectionColumns = {RecipeSearchColumns.DOC_ID, SEARCH_MATCH_INFO};
+        String[] selectionArgs = {matchExpression};
 
-                    ingredient.setQuantity(cursor.getInt(quantityIndex));
-                    ingredient.setMeasure(cursor.getString(measureIndex));
-                    ingredient.setIngredient(cursor.getString(nameIndex));
+        Cursor cursor = contentResolver.query(RecipeContentProvider.Search.SEARCH,
+                projectionColumns, SEARCH_MATCH_SELECTION, selectionArgs, null);
 
-                    ingredients.add(ingredient);
-                }
+        try {
+            if (cursor != null && cursor.getCount() > 0) {
+                recipeIds = RecipeSearchRanker.rankPage(cursor, 0, 1, limit, Math.max(offset, 0));
             }
         } finally {
             if (cursor != null) {
@@ -223,57 +269,141 @@ public class DatabaseQueryUtil {
             }
         }
 
-        Timber.d("Found " + ingredients.size() + " ingredients in database for recipeId '"
-                + recipeId + "'");
-        return ingredients;
+        Timber.d("Found " + recipeIds.size() + " recipes in database matching '" + query + "'");
+        return recipeIds;
     }
 
     /**
-     * Retrieves the list of steps found in the database connected to the given
-     * {@link ContentResolver} for the given recipe ID.
+     * Retrieves the recipes, ingredients and steps found in the database connected to the given
+     * {@link ContentResolver} and stitches them together into a list of {@link Recipe} objects.
+     * <p>
+     * Each table is queried exactly once and ordered by recipe ID, which allows the object graph
+     * to be built in a single streaming pass over the three cursors.
      *
      * @param contentResolver The {@link ContentResolver} instance
-     * @param recipeId        The ID of the recipe to find the steps for
-     * @return The list of steps for the given recipe ID
+     * @param recipeIdArgs    The recipe IDs to restrict the query to, or null for all recipes
+     * @return The list of recipes found in the database
      */
-    private static List<Step> retrieveStepsForRecipe(@NonNull ContentResolver contentResolver,
-                                                     int recipeId) {
-        List<Step> steps = new ArrayList<>();
+    private static List<Recipe> retrieveRecipeGraphs(@NonNull ContentResolver contentResolver,
+                                                     @Nullable String[] recipeIdArgs) {
+        List<Recipe> recipes = new ArrayList<>();
 
-        String selection = StepColumns.RECIPE_ID + " = ?";
-        String[] selectionArgs = {String.valueOf(recipeId)};
-        Cursor cursor = contentResolver.query(RecipeContentProvider.Steps.STEP_LIST,
-                null, selection, selectionArgs, null);
+        String recipeSelection = null;
+        String ingredientSelection = null;
+        String stepSelection = null;
+
+        if (recipeIdArgs != null) {
+            String inClause = createInClause(recipeIdArgs.length);
+            recipeSelection = RecipeColumns.RECIPE_ID + inClause;
+            ingredientSelection = IngredientColumns.RECIPE_ID + inClause;
+            stepSelection = StepColumns.RECIPE_ID + inClause;
+        }
+
+        Cursor recipeCursor = null;
+        Cursor ingredientCursor = null;
+        Cursor stepCursor = null;
 
         try {
-            if (cursor != null && cursor.getCount() > 0) {
-                int idIndex = cursor.getColumnIndex(StepColumns.STEP_ID);
-                int shortDescriptionIndex = cursor.getColumnIndex(StepColumns.SHORT_DESCRIPTION);
-                int descriptionIndex = cursor.getColumnIndex(StepColumns.DESCRIPTION);
-                int videoUrlIndex = cursor.getColumnIndex(StepColumns.VIDEO_URL);
-                int thumbnailUrlIndex = cursor.getColumnIndex(StepColumns.THUMBNAIL_URL);
+            recipeCursor = contentResolver.query(RecipeContentProvider.Recipes.RECIPE_LIST, null,
+                    recipeSelection, recipeIdArgs, RecipeColumns.RECIPE_ID + " ASC");
 
-                while (cursor.moveToNext()) {
-                    Step step = new Step();
+            if (recipeCursor == null || recipeCursor.getCount() == 0) {
+                return recipes;
+            }
+
+            ingredientCursor = contentResolver.query(
+                    RecipeContentProvider.Ingredients.INGREDIENT_LIST, null, ingredientSelection,
+                    recipeIdArgs, IngredientColumns.RECIPE_ID + " ASC, "
+                            + IngredientColumns.ID + " ASC");
+
+            stepCursor = contentResolver.query(RecipeContentProvider.Steps.STEP_LIST, null,
+                    stepSelection, recipeIdArgs, StepColumns.RECIPE_ID + " ASC, "
+                            + StepColumns.STEP_ID + " ASC");
+
+            CursorMapper<Recipe> recipeMapper = CursorMapper.forRecipes();
+            CursorMapper<Ingredient> ingredientMapper = CursorMapper.forIngredients();
+            CursorMapper<Step> stepMapper = CursorMapper.forSteps();
+
+            recipeMapper.bind(recipeCursor);
+
+            boolean hasIngredient = false;
+            if (ingredientCursor != null) {
+                ingredientMapper.bind(ingredientCursor);
+                hasIngredient = ingredientCursor.moveToFirst();
+            }
+
+            boolean hasStep = false;
+            if (stepCursor != null) {
+                stepMapper.bind(stepCursor);
+                hasStep = stepCursor.moveToFirst();
+            }
+
+            while (recipeCursor.moveToNext()) {
+                Recipe recipe = recipeMapper.map(recipeCursor);
+                int recipeId = recipe.getId();
+
+                List<Ingredient> ingredients = new ArrayList<>();
 
-                    step.setId(cursor.getInt(idIndex));
-                    step.setShortDescription(cursor.getString(shortDescriptionIndex));
-                    step.setDescription(cursor.getString(descriptionIndex));
-                    step.setVideoUrl(cursor.getString(videoUrlIndex));
-                    step.setThumbnailUrl(cursor.getString(thumbnailUrlIndex));
+                // Skip any orphaned ingredients that belong to a recipe that no longer exists
+                while (hasIngredient && ingredientMapper.getRecipeId(ingredientCursor) < recipeId) {
+                    hasIngredient = ingredientCursor.moveToNext();
+                }
+
+                while (hasIngredient
+                        && ingredientMapper.getRecipeId(ingredientCursor) == recipeId) {
+                    ingredients.add(ingredientMapper.map(ingredientCursor));
+                    hasIngredient = ingredientCursor.moveToNext();
+                }
+
+                List<Step> steps = new ArrayList<>();
 
-                    steps.add(step);
+                // Skip any orphaned steps that belong to a recipe that no longer exists
+                while (hasStep && stepMapper.getRecipeId(stepCursor) < recipeId) {
+                    hasStep = stepCursor.moveToNext();
                 }
+
+                while (hasStep && stepMapper.getRecipeId(stepCursor) == recipeId) {
+                    steps.add(stepMapper.map(stepCursor));
+                    hasStep = stepCursor.moveToNext();
+                }
+
+                recipe.setIngredients(ingredients);
+                recipe.setSteps(steps);
+
+                recipes.add(recipe);
             }
         } finally {
-            if (cursor != null) {
-                cursor.close();
+            if (recipeCursor != null) {
+                recipeCursor.close();
+            }
+
+            if (ingredientCursor != null) {
+                ingredientCursor.close();
+            }
+
+            if (stepCursor != null) {
+                stepCursor.close();
             }
         }
 
-        Timber.d("Found " + steps.size() + " steps in database for recipeId '"
-                + recipeId + "'");
-        return steps;
+        return recipes;
+    }
+
+    /**
+     * Helper method that creates an IN clause with the given number of parameters, e.g.
+     * " IN (?,?,?)".
+     *
+     * @param argCount The number of parameters
+     * @return The IN clause
+     */
+    private static String createInClause(int argCount) {
+        StringBuilder builder = new StringBuilder(" IN (");
+        for (int i = 0; i < argCount; i++) {
+            if (i > 0) builder.append(',');
+            builder.append('?');
+        }
+
+        return builder.append(')').toString();
     }
 
     /**
@@ -298,11 +428,17 @@ public class DatabaseQueryUtil {
                 contentValuesArray);
 
         // Insert the ingredients and steps for each recipe
-        for (Recipe recipe : recipes) {
+        ContentValues[] searchContentValuesArray = new ContentValues[recipes.size()];
+
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe recipe = recipes.get(i);
             insertIngredientsForRecipe(contentResolver, recipe.getId(), recipe.getIngredients());
             insertStepsForRecipe(contentResolver, recipe.getId(), recipe.getSteps());
+            searchContentValuesArray[i] = createSearchContentValues(recipe);
         }
 
+        contentResolver.bulkInsert(RecipeContentProvider.Search.SEARCH, searchContentValuesArray);
+
         Timber.d("Inserted " + rowsInserted + " recipes into database");
         return rowsInserted;
     }
@@ -362,9 +498,187 @@ public class DatabaseQueryUtil {
         return rowsInserted;
     }
 
+    /**
+     * Applies the given {@link RecipeDiff} to the database connected to the given
+     * {@link ContentResolver}, writing only the rows that changed.
+     * <p>
+     * All of the changes are applied as a single batch of operations, which the content provider
+     * runs in one transaction. Readers will therefore either see the complete old catalog or the
+     * complete new one. Once the batch completes, observers are notified of the
+     * {@link RecipeContentProvider.Recipes#withId(int)} Uri of each recipe that changed, so that
+     * they only need to reload those recipes.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @param diff            The differences between the stored and fetched recipes
+     * @return True if the changes were applied, false otherwise
+     */
+    public static boolean applyRecipeDiff(@NonNull ContentResolver contentResolver,
+                                          @NonNull RecipeDiff diff) {
+        if (diff.isEmpty()) {
+            Timber.d("No recipe changes to apply to database");
+            return true;
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+
+        for (Recipe recipe : diff.getDeletedRecipes()) {
+            String[] selectionArgs = {String.valueOf(recipe.getId())};
+
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Recipes.RECIPE_LIST)
+                    .withSelection(RecipeColumns.RECIPE_ID + " = ?", selectionArgs)
+                    .build());
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Ingredients.INGREDIENT_LIST)
+                    .withSelection(IngredientColumns.RECIPE_ID + " = ?", selectionArgs)
+                    .build());
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Steps.STEP_LIST)
+                    .withSelection(StepColumns.RECIPE_ID + " = ?", selectionArgs)
+                    .build());
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Search.SEARCH)
+                    .withSelection(SEARCH_DOC_SELECTION, selectionArgs)
+                    .build());
+        }
+
+        for (Recipe recipe : diff.getInsertedRecipes()) {
+            addInsertOperations(operations, recipe);
+        }
+
+        for (Recipe recipe : diff.getUpdatedRecipes()) {
+            operations.add(ContentProviderOperation
+                    .newUpdate(RecipeContentProvider.Recipes.RECIPE_LIST)
+                    .withSelection(RecipeColumns.RECIPE_ID + " = ?",
+                            new String[]{String.valueOf(recipe.getId())})
+                    .withValues(createRecipeContentValues(recipe))
+                    .build());
+        }
+
+        for (Recipe recipe : diff.getReplacedIngredientRecipes()) {
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Ingredients.INGREDIENT_LIST)
+                    .withSelection(IngredientColumns.RECIPE_ID + " = ?",
+                            new String[]{String.valueOf(recipe.getId())})
+                    .build());
+
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                operations.add(ContentProviderOperation
+                        .newInsert(RecipeContentProvider.Ingredients.INGREDIENT_LIST)
+                        .withValues(createIngredientContentValues(recipe.getId(), ingredient))
+                        .build());
+            }
+        }
+
+        for (RecipeDiff.StepChange stepChange : diff.getDeletedSteps()) {
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Steps.STEP_LIST)
+                    .withSelection(STEP_SELECTION, createStepSelectionArgs(stepChange))
+                    .build());
+        }
+
+        for (RecipeDiff.StepChange stepChange : diff.getUpdatedSteps()) {
+            operations.add(ContentProviderOperation
+                    .newUpdate(RecipeContentProvider.Steps.STEP_LIST)
+                    .withSelection(STEP_SELECTION, createStepSelectionArgs(stepChange))
+                    .withValues(createStepContentValues(stepChange.getRecipeId(),
+                            stepChange.getStep()))
+                    .build());
+        }
+
+        for (RecipeDiff.StepChange stepChange : diff.getInsertedSteps()) {
+            operations.add(ContentProviderOperation
+                    .newInsert(RecipeContentProvider.Steps.STEP_LIST)
+                    .withValues(createStepContentValues(stepChange.getRecipeId(),
+                            stepChange.getStep()))
+                    .build());
+        }
+
+        // Rebuild the search document of every inserted or modified recipe in the same batch,
+        // so that the full-text index never disagrees with the stored recipes
+        for (Recipe recipe : diff.getModifiedRecipes()) {
+            operations.add(ContentProviderOperation
+                    .newDelete(RecipeContentProvider.Search.SEARCH)
+                    .withSelection(SEARCH_DOC_SELECTION,
+                            new String[]{String.valueOf(recipe.getId())})
+                    .build());
+            operations.add(ContentProviderOperation
+                    .newInsert(RecipeContentProvider.Search.SEARCH)
+                    .withValues(createSearchContentValues(recipe))
+                    .build());
+        }
+
+        List<Uri> changedUris = new ArrayList<>(diff.getChangedRecipeIds().size());
+        for (int recipeId : diff.getChangedRecipeIds()) {
+            changedUris.add(RecipeContentProvider.Recipes.withId(recipeId));
+        }
+
+        Timber.d("Applying " + diff + " to database");
+        return applyOperations(contentResolver, operations, changedUris);
+    }
+
+    /**
+     * Helper method that adds the operations needed to insert the given {@link Recipe}, along with
+     * its ingredients and steps, to the given list of operations.
+     *
+     * @param operations The list of operations to add to
+     * @param recipe     The recipe to insert
+     */
+    private static void addInsertOperations(@NonNull List<ContentProviderOperation> operations,
+                                            @NonNull Recipe recipe) {
+        operations.add(ContentProviderOperation
+                .newInsert(RecipeContentProvider.Recipes.RECIPE_LIST)
+                .withValues(createRecipeContentValues(recipe))
+                .build());
+
+        for (Ingredient ingredient : recipe.getIngredients()) {
+            operations.add(ContentProviderOperation
+                    .newInsert(RecipeContentProvider.Ingredients.INGREDIENT_LIST)
+                    .withValues(createIngredientContentValues(recipe.getId(), ingredient))
+                    .build());
+        }
+
+        for (Step step : recipe.getSteps()) {
+            operations.add(ContentProviderOperation
+                    .newInsert(RecipeContentProvider.Steps.STEP_LIST)
+                    .withValues(createStepContentValues(recipe.getId(), step))
+                    .build());
+        }
+    }
+
+    /**
+     * Helper method that applies the given operations as a single batch, notifying observers of
+     * the given Uris once the whole batch has been applied.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @param operations      The operations to apply
+     * @param changedUris     The Uris whose content the operations change
+     * @return True if the operations were applied, false otherwise
+     */
+    private static boolean applyOperations(@NonNull ContentResolver contentResolver,
+                                           @NonNull ArrayList<ContentProviderOperation> operations,
+                                           @NonNull List<Uri> changedUris) {
+        boolean isApplied = false;
+
+        RecipeContentProvider.beginBatch();
+        try {
+            contentResolver.applyBatch(RecipeContentProvider.AUTHORITY, operations);
+            isApplied = true;
+
+            Timber.d("Applied " + operations.size() + " operations to database in a single batch");
+        } catch (RemoteException | OperationApplicationException e) {
+            Timber.e(e, "Failed to apply " + operations.size() + " operations to database");
+        } finally {
+            RecipeContentProvider.endBatch(contentResolver,
+                    isApplied ? changedUris : Collections.<Uri>emptyList());
+        }
+
+        return isApplied;
+    }
+
     /**
      * Deletes all of the recipes stored in the database connected to the given
-     * {@link ContentResolver}.
+     * {@link ContentResolver}, along with their search documents.
      *
      * @param contentResolver The {@link ContentResolver} instance
      * @return
@@ -372,6 +686,7 @@ public class DatabaseQueryUtil {
     public static int deleteRecipes(@NonNull ContentResolver contentResolver) {
         int rowsDeleted = contentResolver.delete(RecipeContentProvider.Recipes.RECIPE_LIST,
                 null, null);
+        contentResolver.delete(RecipeContentProvider.Search.SEARCH, null, null);
 
         Timber.d("Deleted " + rowsDeleted + " recipes from database");
         return rowsDeleted;
@@ -407,6 +722,26 @@ public class DatabaseQueryUtil {
         return rowsDeleted;
     }
 
+    /**
+     * Records the metrics of a finished sync in the sync history, dropping the oldest entries
+     * past the most recent {@link #MAX_SYNC_HISTORY} syncs.
+     *
+     * @param contentResolver The {@link ContentResolver} instance
+     * @param metrics         The metrics of the finished sync
+     */
+    public static void insertSyncMetrics(@NonNull ContentResolver contentResolver,
+                                         @NonNull SyncMetrics metrics) {
+        contentResolver.insert(RecipeContentProvider.SyncHistory.SYNC_HISTORY,
+                createSyncMetricsContentValues(metrics));
+
+        int rowsDeleted = contentResolver.delete(RecipeContentProvider.SyncHistory.SYNC_HISTORY,
+                SyncHistoryColumns.ID + " NOT IN (SELECT " + SyncHistoryColumns.ID + " FROM "
+                        + RecipeDatabase.SYNC_HISTORY + " ORDER BY " + SyncHistoryColumns.ID
+                        + " DESC LIMIT " + MAX_SYNC_HISTORY + ")", null);
+
+        Timber.d("Recorded " + metrics + ", dropping " + rowsDeleted + " older syncs");
+    }
+
     /**
      * Helper method that creates a {@link ContentValues} object for the given {@link Recipe}.
      *
@@ -444,6 +779,118 @@ public class DatabaseQueryUtil {
         return contentValues;
     }
 
+    /**
+     * Helper method that creates a {@link ContentValues} object holding the full-text search
+     * document for the given {@link Recipe}.
+     *
+     * @param recipe The recipe to generate the search document for
+     * @return The generated {@link ContentValues} object for the given {@link Recipe}
+     */
+    private static ContentValues createSearchContentValues(Recipe recipe) {
+        ContentValues contentValues = new ContentValues();
+
+        contentValues.put(RecipeSearchColumns.DOC_ID, recipe.getId());
+        contentValues.put(RecipeSearchColumns.NAME, recipe.getName());
+        contentValues.put(RecipeSearchColumns.INGREDIENTS, createIngredientSearchText(recipe));
+        contentValues.put(RecipeSearchColumns.STEPS, createStepSearchText(recipe));
+
+        return contentValues;
+    }
+
+    /**
+     * Helper method that creates the ingredients text of the search document for the given
+     * {@link Recipe}.
+     *
+     * @param recipe The recipe to generate the ingredients text for
+     * @return The space separated ingredient names of the recipe
+     */
+    static String createIngredientSearchText(Recipe recipe) {
+        StringBuilder ingredients = new StringBuilder();
+
+        if (recipe.getIngredients() != null) {
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                appendSearchText(ingredients, ingredient.getIngredient());
+            }
+        }
+
+        return ingredients.toString();
+    }
+
+    /**
+     * Helper method that creates the steps text of the search document for the given
+     * {@link Recipe}.
+     *
+     * @param recipe The recipe to generate the steps text for
+     * @return The space separated short and long step descriptions of the recipe
+     */
+    static String createStepSearchText(Recipe recipe) {
+        StringBuilder steps = new StringBuilder();
+
+        if (recipe.getSteps() != null) {
+            for (Step step : recipe.getSteps()) {
+                appendSearchText(steps, step.getShortDescription());
+                appendSearchText(steps, step.getDescription());
+            }
+        }
+
+        return steps.toString();
+    }
+
+    /**
+     * Helper method that appends the given text to a search document, separated by a space.
+     *
+     * @param builder The search document being built
+     * @param text    The text to append, which may be null
+     */
+    private static void appendSearchText(StringBuilder builder, @Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        if (builder.length() > 0) {
+            builder.append(' ');
+        }
+        builder.append(text);
+    }
+
+    /**
+     * Helper method that turns free text entered by the user into an FTS MATCH expression. Each
+     * word becomes a quoted prefix term, so that FTS operators and punctuation in the query can't
+     * cause a syntax error. The prefix marker has to be inside the quotes, as a quoted term
+     * followed by a marker only matches the whole word.
+     *
+     * @param query The text entered by the user
+     * @return The MATCH expression, or an empty string if the query contains no words
+     */
+    static String createSearchMatchExpression(@NonNull String query) {
+        StringBuilder matchExpression = new StringBuilder();
+
+        for (String word : query.toLowerCase(Locale.US).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            if (matchExpression.length() > 0) {
+                matchExpression.append(' ');
+            }
+            matchExpression.append('"').append(word).append("*\"");
+        }
+
+        return matchExpression.toString();
+    }
+
+    /**
+     * Helper method that creates the selection arguments matching the step of the given
+     * {@link RecipeDiff.StepChange}, for use with {@link #STEP_SELECTION}.
+     *
+     * @param stepChange The step change to create the selection arguments for
+     * @return The selection arguments for the changed step
+     */
+    private static String[] createStepSelectionArgs(RecipeDiff.StepChange stepChange) {
+        return new String[]{String.valueOf(stepChange.getRecipeId()),
+                String.valueOf(stepChange.getStep().getId())};
+    }
+
     /**
      * Helper method that creates a {@link ContentValues} object for the given {@link Step}
      * and the given {@link Recipe} ID.
@@ -465,4 +912,49 @@ public class DatabaseQueryUtil {
         return contentValues;
     }
 
+    /**
+     * Helper method that creates a {@link ContentValues} object for the given
+     * {@link SyncMetrics}, leaving the metrics that weren't measured null.
+     *
+     * @param metrics The metrics to generate {@link ContentValues} for
+     * @return The generated {@link ContentValues} object for the given {@link SyncMetrics}
+     */
+    private static ContentValues createSyncMetricsContentValues(SyncMetrics metrics) {
+        ContentValues contentValues = new ContentValues();
+
+        contentValues.put(SyncHistoryColumns.STARTED_AT, metrics.getStartedAt());
+        contentValues.put(SyncHistoryColumns.MODE, metrics.getMode().name().toLowerCase(Locale.US));
+        contentValues.put(SyncHistoryColumns.SUCCEEDED, metrics.isSucceeded() ? 1 : 0);
+        putMetric(contentValues, SyncHistoryColumns.TOTAL_MILLIS, metrics.getTotalMillis());
+        putMetric(contentValues, SyncHistoryColumns.DNS_MILLIS, metrics.getDnsMillis());
+        putMetric(contentValues, SyncHistoryColumns.CONNECT_MILLIS, metrics.getConnectMillis());
+        putMetric(contentValues, SyncHistoryColumns.DOWNLOAD_MILLIS, metrics.getDownloadMillis());
+        putMetric(contentValues, SyncHistoryColumns.BYTES_DOWNLOADED,
+                metrics.getBytesDownloaded());
+        putMetric(contentValues, SyncHistoryColumns.PARSE_MILLIS, metrics.getParseMillis());
+        putMetric(contentValues, SyncHistoryColumns.ROWS_INSERTED, metrics.getRowsInserted());
+        putMetric(contentValues, SyncHistoryColumns.ROWS_UPDATED, metrics.getRowsUpdated());
+        putMetric(contentValues, SyncHistoryColumns.ROWS_DELETED, metrics.getRowsDeleted());
+        putMetric(contentValues, SyncHistoryColumns.TRANSACTION_MILLIS,
+                metrics.getTransactionMillis());
+
+        return contentValues;
+    }
+
+    /**
+     * Helper method that puts the given metric into the given {@link ContentValues} object, or
+     * null if the metric wasn't measured.
+     *
+     * @param contentValues The {@link ContentValues} object to put the metric into
+     * @param column        The column of the metric
+     * @param value         The value of the metric, or {@link SyncMetrics#NOT_MEASURED}
+     */
+    private static void putMetric(ContentValues contentValues, String column, long value) {
+        if (value == SyncMetrics.NOT_MEASURED) {
+            contentValues.putNull(column);
+        } else {
+            contentValues.put(column, value);
+        }
+    }
+
 }
@@ -0,0 +1,491 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import timber.log.Timber;
+
+/**
+ * This class is a process-wide, in-memory inverted index from normalized ingredient names to the
+ * recipes that use them. It answers "what can I cook" queries for several ingredients at once
+ * without touching the database.
+ * <p>
+ * Each ingredient maps to a sorted array of the IDs of the recipes using it, so the index costs
+ * one integer per ingredient of each stored recipe, however large the recipe IDs are. Queries
+ * intersect or merge these arrays.
+ * <p>
+ * The index is built from the database the first time it is queried, so a process that never
+ * queries it never pays for it. Changes written by a sync are only applied to an index that has
+ * already been built.
+ */
+public class IngredientIndex {
+
+    private static IngredientIndex instance;
+
+    @Nullable
+    private final ContentResolver contentResolver;
+    private boolean isBuilt;
+
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<Integer, Set<String>> recipeIngredients = new HashMap<>();
+
+    /**
+     * Creates an empty index that is only filled through {@link #put(Recipe)}.
+     */
+    @VisibleForTesting
+    IngredientIndex() {
+        this(null);
+    }
+
+    private IngredientIndex(@Nullable ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+        this.isBuilt = contentResolver == null;
+    }
+
+    /**
+     * Retrieves the process-wide instance of the index. The index is only built from the recipes
+     * stored in the database on its first query, so queries must not be made on the main thread.
+     *
+     * @param context The {@link Context} used to access the content provider
+     * @return The process-wide instance of the index
+     */
+    public static synchronized IngredientIndex getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new IngredientIndex(context.getApplicationContext().getContentResolver());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Drops the process-wide instance of the index, so that it is rebuilt from the database on
+     * its next query. This is for writes that can't describe their changes as a
+     * {@link RecipeDiff}.
+     */
+    public static synchronized void invalidate() {
+        instance = null;
+    }
+
+    /**
+     * Normalizes the given ingredient name so that differently written names of the same
+     * ingredient share a posting list. Text in parentheses and any preparation notes after a
+     * comma are dropped, and the name is lower-cased with punctuation collapsed to single spaces.
+     *
+     * @param ingredientName The ingredient name to normalize
+     * @return The normalized ingredient name, which may be empty
+     */
+    @NonNull
+    public static String normalize(@NonNull String ingredientName) {
+        String name = ingredientName.replaceAll("\\([^)]*\\)", " ");
+
+        int commaIndex = name.indexOf(',');
+        if (commaIndex >= 0) {
+            name = name.substring(0, commaIndex);
+        }
+
+        return name.toLowerCase(Locale.US).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * Adds the given recipe to the index, replacing any ingredients previously indexed for it.
+     *
+     * @param recipe The recipe to index
+     */
+    public synchronized void put(@NonNull Recipe recipe) {
+        remove(recipe.getId());
+
+        Set<String> ingredientNames = new TreeSet<>();
+        if (recipe.getIngredients() != null) {
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                if (ingredient.getIngredient() == null) continue;
+
+                String name = normalize(ingredient.getIngredient());
+                if (!name.isEmpty()) {
+                    ingredientNames.add(name);
+                }
+            }
+        }
+
+        recipeIngredients.put(recipe.getId(), ingredientNames);
+
+        for (String name : ingredientNames) {
+            Posting posting = postings.get(name);
+            if (posting == null) {
+                posting = new Posting();
+                postings.put(name, posting);
+            }
+
+            posting.add(recipe.getId());
+        }
+    }
+
+    /**
+     * Removes the recipe for the given ID from the index.
+     *
+     * @param recipeId The ID of the recipe to remove
+     */
+    public synchronized void remove(int recipeId) {
+        Set<String> ingredientNames = recipeIngredients.remove(recipeId);
+        if (ingredientNames == null) return;
+
+        for (String name : ingredientNames) {
+            Posting posting = postings.get(name);
+            posting.remove(recipeId);
+
+            if (posting.size == 0) {
+                postings.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Applies the given {@link RecipeDiff} to the index, so that only the recipes that were
+     * inserted, modified or deleted by a sync are re-indexed. If the index hasn't been built yet,
+     * nothing is done, as it will read the changes from the database when it is.
+     *
+     * @param diff The differences written to the database
+     */
+    public synchronized void update(@NonNull RecipeDiff diff) {
+        if (!isBuilt) return;
+
+        for (Recipe recipe : diff.getDeletedRecipes()) {
+            remove(recipe.getId());
+        }
+
+        for (Recipe recipe : diff.getModifiedRecipes()) {
+            put(recipe);
+        }
+
+        Timber.d("Updated " + this);
+    }
+
+    /**
+     * Retrieves every normalized ingredient name used by at least one indexed recipe.
+     *
+     * @return The sorted set of ingredient names
+     */
+    public synchronized Set<String> getIngredientNames() {
+        build();
+        return new TreeSet<>(postings.keySet());
+    }
+
+    /**
+     * Retrieves the IDs of the recipes that use every one of the given ingredients.
+     *
+     * @param ingredientNames The ingredients the recipes must use
+     * @return The sorted list of matching recipe IDs
+     */
+    public List<Integer> findRecipesWithAll(@NonNull Collection<String> ingredientNames) {
+        Set<String> names = normalizeAll(ingredientNames);
+        if (names.isEmpty()) return Collections.emptyList();
+
+        synchronized (this) {
+            build();
+
+            List<Posting> matchingPostings = new ArrayList<>(names.size());
+            for (String name : names) {
+                Posting posting = postings.get(name);
+                if (posting == null) return Collections.emptyList();
+
+                matchingPostings.add(posting);
+            }
+
+            // Intersecting from the shortest posting keeps every step as small as possible
+            Collections.sort(matchingPostings, new Comparator<Posting>() {
+
+                @Override
+                public int compare(Posting first, Posting second) {
+                    return Integer.compare(first.size, second.size);
+                }
+
+            });
+
+            int[] result = Arrays.copyOf(matchingPostings.get(0).recipeIds,
+                    matchingPostings.get(0).size);
+            int resultSize = result.length;
+
+            for (int i = 1; i < matchingPostings.size() && resultSize > 0; i++) {
+                resultSize = matchingPostings.get(i).retainAll(result, resultSize);
+            }
+
+            return toList(result, resultSize);
+        }
+    }
+
+    /**
+     * Retrieves the IDs of the recipes that use at least one of the given ingredients.
+     *
+     * @param ingredientNames The ingredients the recipes may use
+     * @return The sorted list of matching recipe IDs
+     */
+    public List<Integer> findRecipesWithAny(@NonNull Collection<String> ingredientNames) {
+        int[] recipeIds = collectRecipeIds(normalizeAll(ingredientNames));
+
+        int uniqueCount = 0;
+        for (int i = 0; i < recipeIds.length; i++) {
+            if (i == 0 || recipeIds[i] != recipeIds[i - 1]) {
+                recipeIds[uniqueCount++] = recipeIds[i];
+            }
+        }
+
+        return toList(recipeIds, uniqueCount);
+    }
+
+    /**
+     * Retrieves the IDs of the recipes that use at least the given number of the given
+     * ingredients. Recipes using more of the ingredients are returned first, and recipes using
+     * the same number are ordered by ID.
+     *
+     * @param ingredientNames The ingredients the recipes may use
+     * @param minMatches      The minimum number of the ingredients a recipe must use
+     * @return The ranked list of matching recipe IDs
+     */
+    public List<Integer> findRecipesWithAtLeast(@NonNull Collection<String> ingredientNames,
+                                                int minMatches) {
+        Set<String> names = normalizeAll(ingredientNames);
+        if (minMatches > names.size()) return Collections.emptyList();
+        if (minMatches <= 1) return findRecipesWithAny(names);
+
+        // Once sorted, each recipe ID appears once for every one of the ingredients it uses
+        int[] recipeIds = collectRecipeIds(names);
+        final Map<Integer, Integer> matchCounts = new HashMap<>();
+        List<Integer> matchingRecipeIds = new ArrayList<>();
+
+        for (int start = 0, end; start < recipeIds.length; start = end) {
+            end = start + 1;
+            while (end < recipeIds.length && recipeIds[end] == recipeIds[start]) {
+                end++;
+            }
+
+            if (end - start >= minMatches) {
+                matchCounts.put(recipeIds[start], end - start);
+                matchingRecipeIds.add(recipeIds[start]);
+            }
+        }
+
+        Collections.sort(matchingRecipeIds, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer first, Integer second) {
+                int byMatches = Integer.compare(matchCounts.get(second), matchCounts.get(first));
+                if (byMatches != 0) return byMatches;
+
+                return Integer.compare(first, second);
+            }
+
+        });
+
+        return matchingRecipeIds;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IngredientIndex{" +
+                "recipes=" + recipeIngredients.size() +
+                ", ingredients=" + postings.size() +
+                ", built=" + isBuilt +
+                '}';
+    }
+
+    /**
+     * Helper method that builds the index from the recipes stored in the database, unless it has
+     * already been built.
+     */
+    private synchronized void build() {
+        if (isBuilt || contentResolver == null) return;
+
+        for (Recipe recipe : DatabaseQueryUtil.retrieveRecipes(contentResolver)) {
+            put(recipe);
+        }
+
+        isBuilt = true;
+        Timber.d("Built " + this);
+    }
+
+    /**
+     * Helper method that collects the IDs of the recipes using any of the given normalized
+     * ingredient names, once per ingredient, into a sorted array.
+     *
+     * @param names The normalized ingredient names
+     * @return The sorted array of recipe IDs, holding duplicates
+     */
+    private int[] collectRecipeIds(@NonNull Set<String> names) {
+        int[] recipeIds;
+
+        synchronized (this) {
+            build();
+
+            int count = 0;
+            for (String name : names) {
+                Posting posting = postings.get(name);
+                if (posting != null) count += posting.size;
+            }
+
+            recipeIds = new int[count];
+            count = 0;
+            for (String name : names) {
+                Posting posting = postings.get(name);
+                if (posting == null) continue;
+
+                System.arraycopy(posting.recipeIds, 0, recipeIds, count, posting.size);
+                count += posting.size;
+            }
+        }
+
+        Arrays.sort(recipeIds);
+        return recipeIds;
+    }
+
+    /**
+     * Helper method that normalizes the given ingredient names, dropping duplicates and names
+     * that are empty once normalized.
+     *
+     * @param ingredientNames The ingredient names to normalize
+     * @return The set of normalized ingredient names
+     */
+    private static Set<String> normalizeAll(@NonNull Collection<String> ingredientNames) {
+        Set<String> names = new LinkedHashSet<>();
+
+        for (String ingredientName : ingredientNames) {
+            String name = normalize(ingredientName);
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Helper method that converts the first values of the given array to a list.
+     *
+     * @param values The array of values
+     * @param size   The number of values to convert
+     * @return The list of values
+     */
+    private static List<Integer> toList(@NonNull int[] values, int size) {
+        List<Integer> list = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+
+        return list;
+    }
+
+    /**
+     * This class represents the sorted IDs of the recipes using a single ingredient.
+     */
+    private static class Posting {
+
+        int[] recipeIds = new int[4];
+        int size;
+
+        void add(int recipeId) {
+            int index = Arrays.binarySearch(recipeIds, 0, size, recipeId);
+            if (index >= 0) return;
+
+            index = -index - 1;
+            if (size == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, size * 2);
+            }
+
+            System.arraycopy(recipeIds, index, recipeIds, index + 1, size - index);
+            recipeIds[index] = recipeId;
+            size++;
+        }
+
+        void remove(int recipeId) {
+            int index = Arrays.binarySearch(recipeIds, 0, size, recipeId);
+            if (index < 0) return;
+
+            System.arraycopy(recipeIds, index + 1, recipeIds, index, size - index - 1);
+            size--;
+
+            // Shrink once mostly empty, so removed recipes don't keep their memory
+            if (recipeIds.length > 4 && size * 4 <= recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, recipeIds.length / 2);
+            }
+        }
+
+        /**
+         * Keeps only the first values of the given sorted array that are also in this posting,
+         * moving them to the front of the array.
+         *
+         * @param values The sorted array of recipe IDs
+         * @param count  The number of values to consider
+         * @return The number of values kept
+         */
+        int retainAll(@NonNull int[] values, int count) {
+            int kept = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (Arrays.binarySearch(recipeIds, 0, size, values[i]) >= 0) {
+                    values[kept++] = values[i];
+                }
+            }
+
+            return kept;
+        }
+    }
+
+}
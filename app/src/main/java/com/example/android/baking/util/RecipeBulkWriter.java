@@ -0,0 +1,386 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.Context;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.IngredientColumns;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.RecipeContentProvider;
+import com.example.android.baking.provider.RecipeDatabase;
+import com.example.android.baking.provider.RecipeSearchColumns;
+import com.example.android.baking.provider.StepColumns;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * This class writes large numbers of recipes straight into the recipe database, bypassing the
+ * content provider. Each row is bound into one of a few reused compiled insert statements rather
+ * than copied into a {@link android.content.ContentValues} object, and every row is written in a
+ * single transaction followed by a single change notification. Recipes can also be written
+ * as they are read from a {@link RecipeSource}, such as a {@link RecipeStreamReader}, in a series
+ * of smaller transactions.
+ * <p>
+ * External callers should keep using the content provider; this writer is only meant for the
+ * app's own sync.
+ */
+public class RecipeBulkWriter {
+
+    /**
+     * Inserts all of the given recipes, along with their ingredients, steps and search documents,
+     * into the recipe database in a single transaction. Either every row is written or, if any
+     * insert fails, none are.
+     *
+     * @param context The {@link Context} used to open the database and notify observers
+     * @param recipes The list of {@link Recipe} objects to insert
+     * @return True if the recipes were inserted, false otherwise
+     */
+    public static boolean insertRecipes(@NonNull Context context, @NonNull List<Recipe> recipes) {
+        return insertRecipes(context, recipes, null);
+    }
+
+    /**
+     * Inserts all of the given recipes into the recipe database in a single transaction, as
+     * {@link #insertRecipes(Context, List)} does, unless the insert is canceled first.
+     *
+     * @param context            The {@link Context} used to open the database and notify
+     *                           observers
+     * @param recipes            The list of {@link Recipe} objects to insert
+     * @param cancellationSignal The signal that rolls the insert back if canceled, or null
+     * @return True if the recipes were inserted, false otherwise
+     */
+    public static boolean insertRecipes(@NonNull Context context, @NonNull List<Recipe> recipes,
+                                        @Nullable CancellationSignal cancellationSignal) {
+        SQLiteDatabase db = com.example.android.baking.provider.generated.RecipeDatabase
+                .getInstance(context).getWritableDatabase();
+
+        boolean isInserted = writeRecipes(db, recipes, "", cancellationSignal);
+
+        if (isInserted) {
+            context.getContentResolver().notifyChange(RecipeContentProvider.BASE_CONTENT_URI, null);
+        }
+
+        return isInserted;
+    }
+
+    /**
+     * Writes all of the given recipes into the recipe tables of the given database whose names
+     * end with the given suffix, in a single transaction. No change notification is sent.
+     *
+     * @param db                 The database to write to
+     * @param recipes            The list of {@link Recipe} objects to write
+     * @param tableSuffix        The suffix appended to the name of each recipe table written to
+     * @param cancellationSignal The signal that rolls the write back if canceled, or null
+     * @return True if the recipes were written, false otherwise
+     */
+    static boolean writeRecipes(@NonNull SQLiteDatabase db, @NonNull List<Recipe> recipes,
+                                @NonNull String tableSuffix,
+                                @Nullable CancellationSignal cancellationSignal) {
+        RecipeInserter inserter = new RecipeInserter();
+
+        int rowsInserted = 0;
+        boolean isInserted = false;
+
+        db.beginTransaction();
+        try {
+            inserter.compile(db, tableSuffix);
+
+            for (Recipe recipe : recipes) {
+                throwIfCanceled(cancellationSignal);
+                rowsInserted += inserter.insert(recipe);
+            }
+
+            db.setTransactionSuccessful();
+            isInserted = true;
+        } catch (SQLException e) {
+            Timber.e(e, "Failed to bulk insert " + recipes.size() + " recipes into database");
+        } catch (OperationCanceledException e) {
+            Timber.d("Canceled bulk insert of " + recipes.size() + " recipes");
+        } finally {
+            db.endTransaction();
+            inserter.close();
+        }
+
+        if (isInserted) {
+            Timber.d("Bulk inserted " + recipes.size() + " recipes as " + rowsInserted
+                    + " rows into database in a single transaction");
+        }
+
+        return isInserted;
+    }
+
+    /**
+     * Inserts the recipes read from the given source into the recipe database as they are read,
+     * committing one transaction for every chunk of the given number of recipes. At most one chunk
+     * of recipes is held in memory at a time, and no transaction is open while the source is read.
+     * <p>
+     * If reading or writing fails part way through, the chunks already committed are kept, so
+     * this should only be used to fill an empty database that the next sync can complete.
+     *
+     * @param context            The {@link Context} used to open the database and notify
+     *                           observers
+     * @param source             The source of the recipes, which is read to the end but not
+     *                           closed
+     * @param chunkSize          The number of recipes to write in each transaction
+     * @param cancellationSignal The signal that stops the insert if canceled, rolling back the
+     *                           chunk being written, or null
+     * @return True if every recipe in the source was inserted, false otherwise
+     */
+    public static boolean insertRecipes(@NonNull Context context,
+                                        @NonNull RecipeSource source, int chunkSize,
+                                        @Nullable CancellationSignal cancellationSignal) {
+        SQLiteDatabase db = com.example.android.baking.provider.generated.RecipeDatabase
+                .getInstance(context).getWritableDatabase();
+
+        RecipeInserter inserter = new RecipeInserter();
+        List<Recipe> chunk = new ArrayList<>(chunkSize);
+
+        int recipesInserted = 0;
+        int rowsInserted = 0;
+        int chunksInserted = 0;
+        boolean isInserted = false;
+
+        try {
+            inserter.compile(db, "");
+
+            Recipe recipe = source.read();
+            while (recipe != null) {
+                chunk.clear();
+                while (recipe != null && chunk.size() < chunkSize) {
+                    throwIfCanceled(cancellationSignal);
+                    chunk.add(recipe);
+                    recipe = source.read();
+                }
+
+                db.beginTransaction();
+                try {
+                    for (Recipe chunkRecipe : chunk) {
+                        throwIfCanceled(cancellationSignal);
+                        rowsInserted += inserter.insert(chunkRecipe);
+                    }
+
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                recipesInserted += chunk.size();
+                chunksInserted++;
+            }
+
+            isInserted = true;
+        } catch (IOException e) {
+            Timber.e(e, "Failed to read recipe source after " + recipesInserted + " recipes");
+        } catch (SQLException e) {
+            Timber.e(e, "Failed to stream insert recipes after " + recipesInserted + " recipes");
+        } catch (OperationCanceledException e) {
+            Timber.d("Canceled stream insert after " + recipesInserted + " recipes");
+        } finally {
+            inserter.close();
+        }
+
+        if (recipesInserted > 0) {
+            context.getContentResolver().notifyChange(RecipeContentProvider.BASE_CONTENT_URI, null);
+        }
+
+        Timber.d("Stream inserted " + recipesInserted + " recipes as " + rowsInserted
+                + " rows into database in " + chunksInserted + " transactions");
+
+        return isInserted;
+    }
+
+    /**
+     * Helper method that binds the given value to the given statement, binding null if there is
+     * no value.
+     *
+     * @param statement The statement to bind the value to
+     * @param index     The 1-based index of the parameter to bind
+     * @param value     The value to bind, which may be null
+     */
+    private static void bindStringOrNull(@NonNull SQLiteStatement statement, int index,
+                                         @Nullable String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void throwIfCanceled(@Nullable CancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+    }
+
+    private static void closeStatement(@Nullable SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    /**
+     * This interface supplies the recipes to insert one at a time, so that they don't all need to
+     * be held in memory at once.
+     */
+    public interface RecipeSource {
+
+        /**
+         * Reads the next recipe.
+         *
+         * @return The next recipe, or null once every recipe has been read
+         * @throws IOException If the next recipe can't be read
+         */
+        @Nullable
+        Recipe read() throws IOException;
+
+    }
+
+    /**
+     * This class holds the compiled insert statements for each of the recipe tables, and binds a
+     * recipe's rows into them.
+     */
+    private static class RecipeInserter {
+
+        private SQLiteStatement recipeStatement;
+        private SQLiteStatement ingredientStatement;
+        private SQLiteStatement stepStatement;
+        private SQLiteStatement searchStatement;
+
+        /**
+         * Compiles the insert statements for the recipe tables of the given database whose names
+         * end with the given suffix.
+         *
+         * @param db          The database to write to
+         * @param tableSuffix The suffix appended to the name of each recipe table written to
+         */
+        void compile(@NonNull SQLiteDatabase db, @NonNull String tableSuffix) {
+            recipeStatement = db.compileStatement("INSERT INTO " + RecipeDatabase.RECIPE
+                    + tableSuffix + " (" + RecipeColumns.RECIPE_ID + ", " + RecipeColumns.NAME
+                    + ", " + RecipeColumns.SERVINGS + ", " + RecipeColumns.IMAGE
+                    + ") VALUES (?, ?, ?, ?)");
+            ingredientStatement = db.compileStatement("INSERT INTO " + RecipeDatabase.INGREDIENT
+                    + tableSuffix + " (" + IngredientColumns.RECIPE_ID + ", "
+                    + IngredientColumns.QUANTITY + ", " + IngredientColumns.MEASURE + ", "
+                    + IngredientColumns.NAME + ") VALUES (?, ?, ?, ?)");
+            stepStatement = db.compileStatement("INSERT INTO " + RecipeDatabase.STEP
+                    + tableSuffix + " (" + StepColumns.RECIPE_ID + ", " + StepColumns.STEP_ID
+                    + ", " + StepColumns.SHORT_DESCRIPTION + ", " + StepColumns.DESCRIPTION + ", "
+                    + StepColumns.VIDEO_URL + ", " + StepColumns.THUMBNAIL_URL
+                    + ") VALUES (?, ?, ?, ?, ?, ?)");
+            searchStatement = db.compileStatement("INSERT INTO " + RecipeDatabase.RECIPE_SEARCH
+                    + tableSuffix + " (" + RecipeSearchColumns.DOC_ID + ", "
+                    + RecipeSearchColumns.NAME + ", " + RecipeSearchColumns.INGREDIENTS + ", "
+                    + RecipeSearchColumns.STEPS + ") VALUES (?, ?, ?, ?)");
+        }
+
+        /**
+         * Inserts the given recipe, along with its ingredients, steps and search document.
+         *
+         * @param recipe The {@link Recipe} to insert
+         * @return The number of recipe, ingredient and step rows inserted
+         */
+        int insert(@NonNull Recipe recipe) {
+            int rowsInserted = 0;
+
+            recipeStatement.bindLong(1, recipe.getId());
+            bindStringOrNull(recipeStatement, 2, recipe.getName());
+            recipeStatement.bindLong(3, recipe.getServings());
+            bindStringOrNull(recipeStatement, 4, recipe.getImage());
+            recipeStatement.executeInsert();
+            rowsInserted++;
+
+            if (recipe.getIngredients() != null) {
+                for (Ingredient ingredient : recipe.getIngredients()) {
+                    ingredientStatement.bindLong(1, recipe.getId());
+                    ingredientStatement.bindLong(2, ingredient.getQuantity());
+                    bindStringOrNull(ingredientStatement, 3, ingredient.getMeasure());
+                    bindStringOrNull(ingredientStatement, 4, ingredient.getIngredient());
+                    ingredientStatement.executeInsert();
+                    rowsInserted++;
+                }
+            }
+
+            if (recipe.getSteps() != null) {
+                for (Step step : recipe.getSteps()) {
+                    stepStatement.bindLong(1, recipe.getId());
+                    stepStatement.bindLong(2, step.getId());
+                    bindStringOrNull(stepStatement, 3, step.getShortDescription());
+                    bindStringOrNull(stepStatement, 4, step.getDescription());
+                    bindStringOrNull(stepStatement, 5, step.getVideoUrl());
+                    bindStringOrNull(stepStatement, 6, step.getThumbnailUrl());
+                    stepStatement.executeInsert();
+                    rowsInserted++;
+                }
+            }
+
+            searchStatement.bindLong(1, recipe.getId());
+            bindStringOrNull(searchStatement, 2, recipe.getName());
+            searchStatement.bindString(3, DatabaseQueryUtil.createIngredientSearchText(recipe));
+            searchStatement.bindString(4, DatabaseQueryUtil.createStepSearchText(recipe));
+            searchStatement.executeInsert();
+
+            return rowsInserted;
+        }
+
+        void close() {
+            closeStatement(recipeStatement);
+            closeStatement(ingredientStatement);
+            closeStatement(stepStatement);
+            closeStatement(searchStatement);
+        }
+
+    }
+
+}
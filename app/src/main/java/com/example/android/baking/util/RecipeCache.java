@@ -0,0 +1,266 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeContentProvider;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * This class is a process-wide, size-bounded cache of fully loaded {@link Recipe} objects, keyed
+ * by their recipe ID. The least recently used recipes are evicted once the cache is full, and
+ * cached recipes are invalidated by the change notifications sent by the content provider.
+ * <p>
+ * Cached recipes are shared between callers, so they must be treated as read-only.
+ */
+public class RecipeCache {
+
+    /**
+     * The number of cached rows (recipes, ingredients and steps) allowed for each megabyte of the
+     * device's memory class.
+     */
+    private static final int ROWS_PER_MEMORY_CLASS_MEGABYTE = 64;
+
+    private static RecipeCache instance;
+
+    private final ContentResolver contentResolver;
+    private final LruCache<Integer, Recipe> cache;
+
+    private final AtomicLong invalidationGeneration = new AtomicLong();
+    private final AtomicInteger invalidationCount = new AtomicInteger();
+
+    private RecipeCache(@NonNull ContentResolver contentResolver, int maxRows) {
+        this.contentResolver = contentResolver;
+        this.cache = new LruCache<Integer, Recipe>(maxRows) {
+
+            @Override
+            protected int sizeOf(@NonNull Integer recipeId, @NonNull Recipe recipe) {
+                return RecipeCache.sizeOf(recipe);
+            }
+
+        };
+    }
+
+    /**
+     * Retrieves the process-wide instance of the cache, creating it and registering it for change
+     * notifications on first use.
+     *
+     * @param context The {@link Context} used to access the content provider
+     * @return The process-wide instance of the cache
+     */
+    public static synchronized RecipeCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            Context applicationContext = context.getApplicationContext();
+            int maxRows = calculateMaxRows(applicationContext);
+
+            instance = new RecipeCache(applicationContext.getContentResolver(), maxRows);
+            instance.registerObserver();
+
+            Timber.d("Created recipe cache holding up to " + maxRows + " rows");
+        }
+
+        return instance;
+    }
+
+    /**
+     * Retrieves the recipe for the given ID, loading it from the database if it isn't cached.
+     *
+     * @param recipeId The ID of the recipe to retrieve
+     * @return The recipe for the given ID, or null if it doesn't exist
+     */
+    @Nullable
+    public Recipe getRecipe(int recipeId) {
+        Recipe recipe = cache.get(recipeId);
+        if (recipe != null) return recipe;
+
+        // Only cache the loaded recipe if nothing was invalidated while it was being loaded,
+        // otherwise it may already be stale
+        long generation = invalidationGeneration.get();
+        recipe = DatabaseQueryUtil.retrieveRecipe(contentResolver, recipeId);
+
+        if (recipe != null && generation == invalidationGeneration.get()) {
+            cache.put(recipeId, recipe);
+        }
+
+        return recipe;
+    }
+
+    /**
+     * Removes the recipe for the given ID from the cache.
+     *
+     * @param recipeId The ID of the recipe to invalidate
+     */
+    public void invalidate(int recipeId) {
+        invalidationGeneration.incrementAndGet();
+        invalidationCount.incrementAndGet();
+        cache.remove(recipeId);
+    }
+
+    /**
+     * Removes every recipe from the cache.
+     */
+    public void invalidateAll() {
+        invalidationGeneration.incrementAndGet();
+        invalidationCount.incrementAndGet();
+        cache.evictAll();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    public int getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * Retrieves the number of rows currently held by the cache.
+     *
+     * @return The number of recipe, ingredient and step rows cached
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return cache.maxSize();
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeCache{" +
+                "size=" + cache.size() +
+                ", maxSize=" + cache.maxSize() +
+                ", hits=" + cache.hitCount() +
+                ", misses=" + cache.missCount() +
+                ", evictions=" + cache.evictionCount() +
+                ", invalidations=" + invalidationCount.get() +
+                '}';
+    }
+
+    /**
+     * Registers an observer for every change notification sent by the content provider. A change
+     * to a single recipe only invalidates that recipe, and a change to tables outside the recipe
+     * catalog is ignored, while any other change invalidates the whole cache.
+     */
+    private void registerObserver() {
+        contentResolver.registerContentObserver(RecipeContentProvider.BASE_CONTENT_URI, true,
+                new ContentObserver(null) {
+
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        onChange(selfChange, null);
+                    }
+
+                    @Override
+                    public void onChange(boolean selfChange, Uri uri) {
+                        if (!RecipeContentProvider.isCatalogUri(uri)) return;
+
+                        int recipeId = RecipeContentProvider.Recipes.getRecipeId(uri);
+
+                        if (recipeId != RecipeContentProvider.Recipes.NO_RECIPE_ID) {
+                            invalidate(recipeId);
+                        } else {
+                            invalidateAll();
+                        }
+                    }
+
+                });
+    }
+
+    /**
+     * Calculates the number of rows the cache may hold on this device, based on the memory class
+     * of the application.
+     *
+     * @param context The application {@link Context}
+     * @return The maximum number of rows to cache
+     */
+    private static int calculateMaxRows(@NonNull Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+
+        int memoryClass = activityManager.getMemoryClass();
+        int maxRows = memoryClass * ROWS_PER_MEMORY_CLASS_MEGABYTE;
+
+        if (activityManager.isLowRamDevice()) {
+            maxRows /= 2;
+        }
+
+        return maxRows;
+    }
+
+    /**
+     * Calculates the size of the given recipe as the number of rows it was loaded from.
+     *
+     * @param recipe The recipe to calculate the size of
+     * @return The number of recipe, ingredient and step rows in the recipe
+     */
+    private static int sizeOf(@NonNull Recipe recipe) {
+        int size = 1;
+
+        if (recipe.getIngredients() != null) size += recipe.getIngredients().size();
+        if (recipe.getSteps() != null) size += recipe.getSteps().size();
+
+        return size;
+    }
+
+}
@@ -0,0 +1,442 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * This class represents the differences between the recipes stored in the database and the
+ * recipes fetched from the API. Recipes are matched on their API recipe ID and steps are matched
+ * on their step ID within a recipe, so only the rows that actually changed need to be written.
+ * <p>
+ * Ingredients have no ID of their own, so the ingredients of a recipe are replaced as a whole
+ * whenever any of them change.
+ */
+public class RecipeDiff {
+
+    private final List<Recipe> insertedRecipes = new ArrayList<>();
+    private final List<Recipe> updatedRecipes = new ArrayList<>();
+    private final List<Recipe> deletedRecipes = new ArrayList<>();
+
+    private final List<Recipe> replacedIngredientRecipes = new ArrayList<>();
+    private int ingredientsInserted;
+    private int ingredientsDeleted;
+
+    private final List<StepChange> insertedSteps = new ArrayList<>();
+    private final List<StepChange> updatedSteps = new ArrayList<>();
+    private final List<StepChange> deletedSteps = new ArrayList<>();
+    private int stepsInserted;
+    private int stepsDeleted;
+
+    private final Map<Integer, Recipe> modifiedRecipes = new LinkedHashMap<>();
+    private final SortedSet<Integer> changedRecipeIds = new TreeSet<>();
+
+    private RecipeDiff() {
+        // Instances are created through compute()
+    }
+
+    /**
+     * Computes the differences between the given stored and fetched recipes.
+     *
+     * @param storedRecipes  The recipes currently stored in the database
+     * @param fetchedRecipes The recipes fetched from the API
+     * @return The differences that need to be applied to the database
+     */
+    public static RecipeDiff compute(@NonNull List<Recipe> storedRecipes,
+                                     @NonNull List<Recipe> fetchedRecipes) {
+        RecipeDiff diff = new RecipeDiff();
+
+        Map<Integer, Recipe> storedRecipesById = new LinkedHashMap<>();
+        for (Recipe storedRecipe : storedRecipes) {
+            storedRecipesById.put(storedRecipe.getId(), storedRecipe);
+        }
+
+        for (Recipe fetchedRecipe : fetchedRecipes) {
+            Recipe storedRecipe = storedRecipesById.remove(fetchedRecipe.getId());
+
+            if (storedRecipe == null) {
+                diff.addInsertedRecipe(fetchedRecipe);
+            } else {
+                diff.compareRecipes(storedRecipe, fetchedRecipe);
+            }
+        }
+
+        // Any stored recipes that weren't matched no longer exist in the API
+        for (Recipe storedRecipe : storedRecipesById.values()) {
+            diff.addDeletedRecipe(storedRecipe);
+        }
+
+        return diff;
+    }
+
+    /**
+     * Computes the differences described by a set of changes fetched from the delta feed, which
+     * only lists the recipes that changed or were deleted since the stored catalog was synced.
+     *
+     * @param storedRecipes    The stored versions of the changed and deleted recipes, as far as
+     *                         they exist in the database
+     * @param changedRecipes   The changed recipes fetched from the API, in full
+     * @param deletedRecipeIds The IDs of the recipes deleted from the API
+     * @return The differences that need to be applied to the database
+     */
+    public static RecipeDiff computeChanges(@NonNull List<Recipe> storedRecipes,
+                                            @NonNull List<Recipe> changedRecipes,
+                                            @NonNull Collection<Integer> deletedRecipeIds) {
+        RecipeDiff diff = new RecipeDiff();
+
+        Map<Integer, Recipe> storedRecipesById = new LinkedHashMap<>();
+        for (Recipe storedRecipe : storedRecipes) {
+            storedRecipesById.put(storedRecipe.getId(), storedRecipe);
+        }
+
+        for (Recipe changedRecipe : changedRecipes) {
+            Recipe storedRecipe = storedRecipesById.remove(changedRecipe.getId());
+
+            if (storedRecipe == null) {
+                diff.addInsertedRecipe(changedRecipe);
+            } else {
+                diff.compareRecipes(storedRecipe, changedRecipe);
+            }
+        }
+
+        // Deletions of recipes that were never stored, or that were changed again since, are
+        // ignored
+        for (Integer deletedRecipeId : deletedRecipeIds) {
+            Recipe storedRecipe = storedRecipesById.remove(deletedRecipeId);
+
+            if (storedRecipe != null) {
+                diff.addDeletedRecipe(storedRecipe);
+            }
+        }
+
+        return diff;
+    }
+
+    private void addInsertedRecipe(Recipe recipe) {
+        insertedRecipes.add(recipe);
+        ingredientsInserted += sizeOf(recipe.getIngredients());
+        stepsInserted += sizeOf(recipe.getSteps());
+        modifiedRecipes.put(recipe.getId(), recipe);
+        changedRecipeIds.add(recipe.getId());
+    }
+
+    private void addDeletedRecipe(Recipe recipe) {
+        deletedRecipes.add(recipe);
+        ingredientsDeleted += sizeOf(recipe.getIngredients());
+        stepsDeleted += sizeOf(recipe.getSteps());
+        changedRecipeIds.add(recipe.getId());
+    }
+
+    private void compareRecipes(Recipe storedRecipe, Recipe fetchedRecipe) {
+        int recipeId = fetchedRecipe.getId();
+        boolean isModified = false;
+
+        if (!Objects.equals(storedRecipe.getName(), fetchedRecipe.getName())
+                || storedRecipe.getServings() != fetchedRecipe.getServings()
+                || !Objects.equals(storedRecipe.getImage(), fetchedRecipe.getImage())) {
+            updatedRecipes.add(fetchedRecipe);
+            isModified = true;
+        }
+
+        List<Ingredient> storedIngredients = nonNull(storedRecipe.getIngredients());
+        List<Ingredient> fetchedIngredients = nonNull(fetchedRecipe.getIngredients());
+
+        if (!storedIngredients.equals(fetchedIngredients)) {
+            replacedIngredientRecipes.add(fetchedRecipe);
+            ingredientsDeleted += storedIngredients.size();
+            ingredientsInserted += fetchedIngredients.size();
+            isModified = true;
+        }
+
+        Map<Integer, Step> storedStepsById = new LinkedHashMap<>();
+        for (Step storedStep : nonNull(storedRecipe.getSteps())) {
+            storedStepsById.put(storedStep.getId(), storedStep);
+        }
+
+        for (Step fetchedStep : nonNull(fetchedRecipe.getSteps())) {
+            Step storedStep = storedStepsById.remove(fetchedStep.getId());
+
+            if (storedStep == null) {
+                insertedSteps.add(new StepChange(recipeId, fetchedStep));
+                stepsInserted++;
+                isModified = true;
+            } else if (!storedStep.equals(fetchedStep)) {
+                updatedSteps.add(new StepChange(recipeId, fetchedStep));
+                isModified = true;
+            }
+        }
+
+        for (Step storedStep : storedStepsById.values()) {
+            deletedSteps.add(new StepChange(recipeId, storedStep));
+            stepsDeleted++;
+            isModified = true;
+        }
+
+        if (isModified) {
+            modifiedRecipes.put(recipeId, fetchedRecipe);
+            changedRecipeIds.add(recipeId);
+        }
+    }
+
+    public List<Recipe> getInsertedRecipes() {
+        return Collections.unmodifiableList(insertedRecipes);
+    }
+
+    public List<Recipe> getUpdatedRecipes() {
+        return Collections.unmodifiableList(updatedRecipes);
+    }
+
+    public List<Recipe> getDeletedRecipes() {
+        return Collections.unmodifiableList(deletedRecipes);
+    }
+
+    /**
+     * Retrieves the existing recipes whose ingredients have changed and must be replaced.
+     *
+     * @return The recipes whose ingredients must be replaced
+     */
+    public List<Recipe> getReplacedIngredientRecipes() {
+        return Collections.unmodifiableList(replacedIngredientRecipes);
+    }
+
+    /**
+     * Retrieves the steps added to existing recipes. Steps of inserted recipes are not included,
+     * since they are written along with their recipe.
+     *
+     * @return The steps added to existing recipes
+     */
+    public List<StepChange> getInsertedSteps() {
+        return Collections.unmodifiableList(insertedSteps);
+    }
+
+    public List<StepChange> getUpdatedSteps() {
+        return Collections.unmodifiableList(updatedSteps);
+    }
+
+    /**
+     * Retrieves the steps removed from existing recipes. Steps of deleted recipes are not
+     * included, since they are removed along with their recipe.
+     *
+     * @return The steps removed from existing recipes
+     */
+    public List<StepChange> getDeletedSteps() {
+        return Collections.unmodifiableList(deletedSteps);
+    }
+
+    /**
+     * Retrieves the fetched version of every recipe that was inserted or has at least one
+     * modified row. Deleted recipes are not included.
+     *
+     * @return The inserted and modified recipes
+     */
+    public Collection<Recipe> getModifiedRecipes() {
+        return Collections.unmodifiableCollection(modifiedRecipes.values());
+    }
+
+    /**
+     * Retrieves the IDs of every recipe that has at least one changed row, in ascending order.
+     *
+     * @return The IDs of the changed recipes
+     */
+    public SortedSet<Integer> getChangedRecipeIds() {
+        return Collections.unmodifiableSortedSet(changedRecipeIds);
+    }
+
+    public int getIngredientsInserted() {
+        return ingredientsInserted;
+    }
+
+    public int getIngredientsDeleted() {
+        return ingredientsDeleted;
+    }
+
+    public int getStepsInserted() {
+        return stepsInserted;
+    }
+
+    public int getStepsUpdated() {
+        return updatedSteps.size();
+    }
+
+    public int getStepsDeleted() {
+        return stepsDeleted;
+    }
+
+    /**
+     * Retrieves the number of recipe, ingredient and step rows this diff writes to the database.
+     *
+     * @return The number of rows inserted, updated or deleted
+     */
+    public int getChangedRowCount() {
+        return getRowsInserted() + getRowsUpdated() + getRowsDeleted();
+    }
+
+    /**
+     * Retrieves the number of recipe, ingredient and step rows this diff inserts.
+     *
+     * @return The number of rows inserted
+     */
+    public int getRowsInserted() {
+        return insertedRecipes.size() + ingredientsInserted + stepsInserted;
+    }
+
+    /**
+     * Retrieves the number of recipe and step rows this diff updates in place.
+     *
+     * @return The number of rows updated
+     */
+    public int getRowsUpdated() {
+        return updatedRecipes.size() + updatedSteps.size();
+    }
+
+    /**
+     * Retrieves the number of recipe, ingredient and step rows this diff deletes.
+     *
+     * @return The number of rows deleted
+     */
+    public int getRowsDeleted() {
+        return deletedRecipes.size() + ingredientsDeleted + stepsDeleted;
+    }
+
+    /**
+     * Applies this diff to the given list of recipes, which is left unchanged.
+     * <p>
+     * Modified recipes replace their stored version in place, inserted recipes are appended and
+     * deleted recipes are removed.
+     *
+     * @param recipes The recipes the diff was computed against, e.g. the whole stored catalog
+     * @return A new list of recipes with the differences applied
+     */
+    public List<Recipe> applyTo(@NonNull List<Recipe> recipes) {
+        Map<Integer, Recipe> remainingRecipes = new LinkedHashMap<>(modifiedRecipes);
+        List<Recipe> result = new ArrayList<>(recipes.size() + insertedRecipes.size());
+
+        for (Recipe recipe : recipes) {
+            Recipe modifiedRecipe = remainingRecipes.remove(recipe.getId());
+
+            if (modifiedRecipe != null) {
+                result.add(modifiedRecipe);
+            } else if (!changedRecipeIds.contains(recipe.getId())) {
+                result.add(recipe);
+            }
+        }
+
+        result.addAll(remainingRecipes.values());
+        return result;
+    }
+
+    /**
+     * Whether this diff contains no changes at all.
+     *
+     * @return True if nothing needs to be written to the database
+     */
+    public boolean isEmpty() {
+        return changedRecipeIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeDiff{" +
+                "recipes=[+" + insertedRecipes.size() +
+                " ~" + updatedRecipes.size() +
+                " -" + deletedRecipes.size() + "]" +
+                ", ingredients=[+" + ingredientsInserted +
+                " -" + ingredientsDeleted + "]" +
+                ", steps=[+" + stepsInserted +
+                " ~" + updatedSteps.size() +
+                " -" + stepsDeleted + "]" +
+                '}';
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+
+        return list;
+    }
+
+    private static int sizeOf(List<?> list) {
+        if (list == null) {
+            return 0;
+        }
+
+        return list.size();
+    }
+
+    /**
+     * This class represents a change to a single step of the recipe with the given ID.
+     */
+    public static class StepChange {
+
+        private final int recipeId;
+        private final Step step;
+
+        StepChange(int recipeId, @NonNull Step step) {
+            this.recipeId = recipeId;
+            this.step = step;
+        }
+
+        public int getRecipeId() {
+            return recipeId;
+        }
+
+        public Step getStep() {
+            return step;
+        }
+
+    }
+
+}
@@ -41,45 +41,153 @@
 package com.example.android.baking.util;
 
 import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.content.AsyncTaskLoader;
+import android.support.v4.content.CursorLoader;
+import android.text.TextUtils;
 
-import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.RecipeContentProvider;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * This loader assists in the task of fetching the list of recipes from the content provider.
+ * <p>
+ * Only the columns needed to display the list are queried, and the returned {@link Cursor} reads
+ * its rows from the database in windows as the list is scrolled. Memory use therefore stays
+ * bounded regardless of how many recipes are stored. The full recipe, including its ingredients
+ * and steps, is only loaded when it is opened.
+ * <p>
+ * When a {@link CatalogSnapshot} is available, the list is read from it instead, which avoids
+ * opening the database on a cold start.
+ * <p>
+ * The list is only reloaded when the provider reports a change to the list as a whole. A change
+ * notified for a single {@link RecipeContentProvider.Recipes#withId(int)} Uri is left to whoever
+ * displays the list, which can refresh that one row instead.
+ * <p>
+ * The list can be filtered to the recipes using every one of a set of ingredients. The matching
+ * recipes are looked up in the {@link IngredientIndex} on each load, and only those rows are
+ * read from the content provider.
  */
-public class RecipeListLoader extends AsyncTaskLoader<List<Recipe>> {
+public class RecipeListLoader extends CursorLoader {
+
+    public static final String[] RECIPE_LIST_PROJECTION = {
+            RecipeColumns.ID,
+            RecipeColumns.RECIPE_ID,
+            RecipeColumns.NAME
+    };
+
+    public static final int INDEX_RECIPE_ID = 1;
+    public static final int INDEX_RECIPE_NAME = 2;
 
     private final SimpleIdlingResource idlingResource;
+    private final List<String> ingredientNames;
+
+    private final ContentObserver listObserver =
+            new ContentObserver(new Handler(Looper.getMainLooper())) {
+
+                @Override
+                public void onChange(boolean selfChange) {
+                    onChange(selfChange, null);
+                }
+
+                @Override
+                public void onChange(boolean selfChange, Uri uri) {
+                    if (RecipeContentProvider.Recipes.getRecipeId(uri)
+                            != RecipeContentProvider.Recipes.NO_RECIPE_ID) {
+                        return;
+                    }
+
+                    onContentChanged();
+                }
+
+            };
+
+    private boolean isObserverRegistered;
 
     public RecipeListLoader(@NonNull Context context,
-                            @Nullable final SimpleIdlingResource idlingResource) {
-        super(context);
+                            @Nullable final SimpleIdlingResource idlingResource,
+                            @Nullable List<String> ingredientNames) {
+        super(context, RecipeContentProvider.Recipes.RECIPE_LIST, RECIPE_LIST_PROJECTION, null,
+                null, RecipeColumns.RECIPE_ID + " ASC");
         this.idlingResource = idlingResource;
+        this.ingredientNames = ingredientNames == null
+                ? Collections.<String>emptyList() : ingredientNames;
     }
 
     /**
-     * Force triggers a load and sets the idle state of the IdlingResource.
+     * Sets the idle state of the IdlingResource, starts observing the list and starts the load.
      */
     @Override
     protected void onStartLoading() {
         if (idlingResource != null) idlingResource.setIdleState(false);
-        forceLoad();
+
+        if (!isObserverRegistered) {
+            getContext().getContentResolver().registerContentObserver(getUri(), true,
+                    listObserver);
+            isObserverRegistered = true;
+        }
+
+        super.onStartLoading();
+    }
+
+    /**
+     * Stops observing the list once the loader is reset.
+     */
+    @Override
+    protected void onReset() {
+        super.onReset();
+
+        if (isObserverRegistered) {
+            getContext().getContentResolver().unregisterContentObserver(listObserver);
+            isObserverRegistered = false;
+        }
     }
 
     /**
-     * Retrieves the list of {@link Recipe} objects stored in the application's database.
+     * Reads the list of recipes from the catalog snapshot if there is one, or from the content
+     * provider otherwise. A filtered list is always read from the content provider.
+     * <p>
+     * The cursor isn't registered for the provider's change notifications, which would reload the
+     * whole list for a change to any single recipe. The loader observes the list itself instead.
      *
-     * @return The list of recipes fetched from the application database
+     * @return A cursor of the recipes, with the columns of {@link #RECIPE_LIST_PROJECTION}
      */
-    @Nullable
     @Override
-    public List<Recipe> loadInBackground() {
-        return DatabaseQueryUtil.retrieveRecipes(getContext().getContentResolver());
+    public Cursor loadInBackground() {
+        if (!ingredientNames.isEmpty()) {
+            // The IDs come from the index rather than the user, so they are inlined instead of
+            // being bound, which keeps large results clear of SQLite's limit on bound arguments
+            List<Integer> recipeIds =
+                    IngredientIndex.getInstance(getContext()).findRecipesWithAll(ingredientNames);
+            setSelection(RecipeColumns.RECIPE_ID + " IN (" + TextUtils.join(",", recipeIds) + ")");
+
+            return queryRecipes();
+        }
+
+        CatalogSnapshot snapshot = CatalogSnapshot.getInstance(getContext());
+        if (snapshot == null) return queryRecipes();
+
+        return new SnapshotCursor(snapshot);
+    }
+
+    /**
+     * Helper method that queries the content provider for the recipes of the list, filling the
+     * cursor's first window off the main thread.
+     */
+    private Cursor queryRecipes() {
+        Cursor cursor = getContext().getContentResolver().query(getUri(), getProjection(),
+                getSelection(), getSelectionArgs(), getSortOrder());
+
+        if (cursor != null) cursor.getCount();
+        return cursor;
     }
 
 }
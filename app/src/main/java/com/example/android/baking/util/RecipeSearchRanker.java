@@ -0,0 +1,212 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class ranks the recipes matching a full-text search by their BM25 relevance, computed from
+ * the {@code matchinfo(recipe_search, 'pcnalx')} statistics of each match.
+ * <p>
+ * SQLite on Android cannot be given a custom ranking function, so every match has to be read to
+ * be scored. Only the recipes up to the end of the requested page are kept while reading, so
+ * ranking a page costs a bounded heap rather than a sort of every match.
+ */
+final class RecipeSearchRanker {
+
+    /**
+     * The matchinfo() format string, which must stay in sync with {@link #score(int[])}.
+     */
+    static final String MATCH_INFO_FORMAT = "pcnalx";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * The weight of a match in each of the recipe name, ingredients and steps columns, in the
+     * order they are declared in the full-text index. A match in the name counts the most.
+     */
+    private static final double[] COLUMN_WEIGHTS = {3.0, 2.0, 1.0};
+
+    /**
+     * Orders ranked recipes from the least to the most relevant, with ties broken by the highest
+     * recipe ID first, so the head of the heap is always the first recipe to be dropped.
+     */
+    private static final Comparator<RankedRecipe> LEAST_RELEVANT_FIRST =
+            new Comparator<RankedRecipe>() {
+                @Override
+                public int compare(RankedRecipe first, RankedRecipe second) {
+                    int scoreComparison = Double.compare(first.score, second.score);
+                    if (scoreComparison != 0) {
+                        return scoreComparison;
+                    }
+
+                    return Integer.compare(second.recipeId, first.recipeId);
+                }
+            };
+
+    private RecipeSearchRanker() {
+    }
+
+    /**
+     * Reads every match of the given cursor and returns the recipe IDs of the requested page, from
+     * the most to the least relevant.
+     *
+     * @param cursor         The cursor of matches, holding a recipe ID and a matchinfo() column
+     * @param recipeIdIndex  The index of the recipe ID column
+     * @param matchInfoIndex The index of the matchinfo() column
+     * @param limit          The maximum number of recipe IDs to return
+     * @param offset         The number of ranked recipe IDs to skip
+     * @return The ranked recipe IDs of the requested page
+     */
+    @NonNull
+    static List<Integer> rankPage(@NonNull Cursor cursor, int recipeIdIndex, int matchInfoIndex,
+                                  int limit, int offset) {
+        int pageEnd = offset + limit;
+        PriorityQueue<RankedRecipe> topRecipes =
+                new PriorityQueue<>(Math.max(Math.min(pageEnd, cursor.getCount()), 1),
+                        LEAST_RELEVANT_FIRST);
+
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            RankedRecipe recipe = new RankedRecipe(cursor.getInt(recipeIdIndex),
+                    score(readMatchInfo(cursor.getBlob(matchInfoIndex))));
+
+            if (topRecipes.size() < pageEnd) {
+                topRecipes.add(recipe);
+            } else if (LEAST_RELEVANT_FIRST.compare(recipe, topRecipes.peek()) > 0) {
+                topRecipes.poll();
+                topRecipes.add(recipe);
+            }
+        }
+
+        List<Integer> recipeIds = new ArrayList<>(Math.max(topRecipes.size() - offset, 0));
+        while (topRecipes.size() > offset) {
+            recipeIds.add(topRecipes.poll().recipeId);
+        }
+
+        Collections.reverse(recipeIds);
+        return recipeIds;
+    }
+
+    /**
+     * Computes the BM25 relevance of a single match from its matchinfo() statistics.
+     * <p>
+     * Each phrase of the query is scored in each column, using the number of hits in the row,
+     * the number of rows with a hit and the length of the column relative to its average.
+     *
+     * @param matchInfo The statistics returned by matchinfo() for {@link #MATCH_INFO_FORMAT}
+     * @return The relevance of the match, higher being more relevant
+     */
+    static double score(@NonNull int[] matchInfo) {
+        int phraseCount = matchInfo[0];
+        int columnCount = matchInfo[1];
+        int rowCount = matchInfo[2];
+        int averageLengthStart = 3;
+        int lengthStart = averageLengthStart + columnCount;
+        int hitsStart = lengthStart + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int hits = hitsStart + 3 * (phrase * columnCount + column);
+                int rowHits = matchInfo[hits];
+                if (rowHits == 0) {
+                    continue;
+                }
+
+                int rowsWithHits = matchInfo[hits + 2];
+                double inverseDocumentFrequency = Math.log(1
+                        + (rowCount - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+
+                int averageLength = matchInfo[averageLengthStart + column];
+                double lengthRatio = averageLength == 0
+                        ? 1 : (double) matchInfo[lengthStart + column] / averageLength;
+
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                score += weight * inverseDocumentFrequency * (rowHits * (K1 + 1))
+                        / (rowHits + K1 * (1 - B + B * lengthRatio));
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Helper method that decodes the given matchinfo() blob, which SQLite writes as an array of
+     * 32-bit unsigned integers in the byte order of the device.
+     *
+     * @param blob The matchinfo() blob
+     * @return The decoded statistics
+     */
+    @NonNull
+    static int[] readMatchInfo(@NonNull byte[] blob) {
+        IntBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int[] matchInfo = new int[buffer.remaining()];
+        buffer.get(matchInfo);
+        return matchInfo;
+    }
+
+    /**
+     * This class represents a matching recipe along with its relevance.
+     */
+    private static class RankedRecipe {
+
+        final int recipeId;
+        final double score;
+
+        RankedRecipe(int recipeId, double score) {
+            this.recipeId = recipeId;
+            this.score = score;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Recipe;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class reads a JSON array of recipes from a stream one recipe at a time, using Jackson's
+ * streaming parser to walk the array and only binding the recipe currently being read. Memory use
+ * therefore depends on the size of the largest recipe rather than on the size of the feed.
+ */
+public class RecipeStreamReader implements RecipeBulkWriter.RecipeSource, Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+
+    private int recipeCount;
+    private boolean isFinished;
+
+    /**
+     * Creates a reader for the given stream, which must hold a JSON array of recipes.
+     *
+     * @param inputStream The stream to read from, which is closed along with this reader
+     * @throws IOException If the stream can't be read or doesn't start with a JSON array
+     */
+    public RecipeStreamReader(@NonNull InputStream inputStream) throws IOException {
+        parser = OBJECT_MAPPER.getFactory().createParser(inputStream);
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new JsonParseException(parser, "Expected an array of recipes");
+        }
+    }
+
+    /**
+     * Reads the next recipe from the stream.
+     *
+     * @return The next recipe, or null once the end of the array is reached
+     * @throws IOException If the stream can't be read or holds invalid JSON
+     */
+    @Nullable
+    @Override
+    public Recipe read() throws IOException {
+        if (isFinished) return null;
+
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            isFinished = true;
+            return null;
+        }
+
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a recipe but found " + token);
+        }
+
+        Recipe recipe = OBJECT_MAPPER.readValue(parser, Recipe.class);
+        recipeCount++;
+
+        return recipe;
+    }
+
+    /**
+     * Retrieves the number of recipes read so far.
+     *
+     * @return The number of recipes read
+     */
+    public int getRecipeCount() {
+        return recipeCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.IngredientColumns;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.RecipeContentProvider;
+import com.example.android.baking.provider.RecipeDatabase;
+import com.example.android.baking.provider.StepColumns;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * This class refreshes the whole recipe catalog without readers ever seeing it half written.
+ * <p>
+ * The new catalog is written into shadow copies of the recipe tables, indexed and checked for
+ * completeness while readers keep using the live tables. The shadow tables are then swapped in by
+ * renaming them in a single transaction, which only rewrites the schema and so takes the same
+ * short time whatever the size of the catalog. Readers see either the complete old catalog or
+ * the complete new one, and the old tables are dropped once the swap is committed.
+ * <p>
+ * The shadow tables live in the same database file as the live tables, since attaching a second
+ * file would turn off write-ahead logging for the connection pool and swapping the file itself
+ * would close the cursors readers currently hold.
+ */
+public class ShadowCatalogRefresher {
+
+    private static final String SHADOW_SUFFIX = "_shadow";
+    private static final String RETIRED_SUFFIX = "_retired";
+
+    /**
+     * Indexes of the shadow tables can't share names with the indexes of the live tables, so
+     * every refresh alternates between the original index name and the name with this suffix.
+     */
+    private static final String ALTERNATE_INDEX_SUFFIX = "_alt";
+
+    private static final String[] TABLES = {RecipeDatabase.RECIPE, RecipeDatabase.INGREDIENT,
+            RecipeDatabase.STEP, RecipeDatabase.RECIPE_SEARCH};
+
+    private static final String CREATE_TABLE_PATTERN =
+            "(?i)^(CREATE\\s+(?:VIRTUAL\\s+)?TABLE\\s+)(?:IF\\s+NOT\\s+EXISTS\\s+)?\\S+?"
+                    + "(\\s*\\(|\\s+USING\\b)";
+
+    private static final String CREATE_INDEX_PATTERN =
+            "(?i)^(CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+)(?:IF\\s+NOT\\s+EXISTS\\s+)?\\S+"
+                    + "(\\s+ON\\s+)\\S+?(\\s*\\()";
+
+    /**
+     * Matches a foreign key that an earlier swap, run without legacy_alter_table, pointed at the
+     * retired recipe table.
+     */
+    private static final String RETIRED_REFERENCE_PATTERN =
+            "(?i)(\\bREFERENCES\\s+)\"?" + RecipeDatabase.RECIPE + RETIRED_SUFFIX + "\"?";
+
+    /**
+     * Replaces the whole recipe catalog with the given recipes, notifying observers of all of the
+     * provider's content once the new catalog is in place. The current catalog is left untouched
+     * if the new one can't be written or fails its completeness check.
+     *
+     * @param context The {@link Context} used to open the database and notify observers
+     * @param recipes The complete list of recipes of the new catalog
+     * @return True if the new catalog was swapped in, false otherwise
+     */
+    public static boolean refreshCatalog(@NonNull Context context, @NonNull List<Recipe> recipes) {
+        return refreshCatalog(context, recipes, null);
+    }
+
+    /**
+     * Replaces the whole recipe catalog with the given recipes, as
+     * {@link #refreshCatalog(Context, List)} does, unless the refresh is canceled before the new
+     * catalog is swapped in.
+     *
+     * @param context            The {@link Context} used to open the database and notify
+     *                           observers
+     * @param recipes            The complete list of recipes of the new catalog
+     * @param cancellationSignal The signal that abandons the new catalog if canceled, or null
+     * @return True if the new catalog was swapped in, false otherwise
+     */
+    public static boolean refreshCatalog(@NonNull Context context, @NonNull List<Recipe> recipes,
+                                         @Nullable CancellationSignal cancellationSignal) {
+        SQLiteDatabase db = com.example.android.baking.provider.generated.RecipeDatabase
+                .getInstance(context).getWritableDatabase();
+
+        // Clear out the tables of any earlier refresh that was interrupted
+        dropTables(db, SHADOW_SUFFIX);
+        dropTables(db, RETIRED_SUFFIX);
+
+        try {
+            for (String table : TABLES) {
+                createShadowTable(db, table);
+            }
+
+            if (!RecipeBulkWriter.writeRecipes(db, recipes, SHADOW_SUFFIX, cancellationSignal)) {
+                dropTables(db, SHADOW_SUFFIX);
+                return false;
+            }
+
+            // Indexing after the rows are written is faster, and catches duplicate recipes
+            for (String table : TABLES) {
+                createShadowIndexes(db, table);
+            }
+
+            if (!isShadowCatalogValid(db, recipes)) {
+                dropTables(db, SHADOW_SUFFIX);
+                return false;
+            }
+
+            // This is the last point at which the refresh can be abandoned
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                Timber.d("Canceled refresh of " + recipes.size() + " recipes");
+                dropTables(db, SHADOW_SUFFIX);
+                return false;
+            }
+
+            swapShadowTables(db);
+        } catch (SQLException e) {
+            Timber.e(e, "Failed to build shadow catalog of " + recipes.size() + " recipes");
+            dropTables(db, SHADOW_SUFFIX);
+            return false;
+        }
+
+        dropTables(db, RETIRED_SUFFIX);
+
+        context.getContentResolver().notifyChange(RecipeContentProvider.BASE_CONTENT_URI, null);
+        return true;
+    }
+
+    /**
+     * Helper method that creates an empty shadow copy of the given table, using the statement
+     * the live table was created with. Foreign keys left pointing at the retired recipe table by
+     * an earlier swap are pointed back at the recipe table.
+     *
+     * @param db    The recipe database
+     * @param table The name of the live table
+     */
+    private static void createShadowTable(@NonNull SQLiteDatabase db, @NonNull String table) {
+        String createSql = DatabaseUtils.stringForQuery(db,
+                "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{table});
+
+        db.execSQL(createSql.replaceFirst(CREATE_TABLE_PATTERN, "$1" + table + SHADOW_SUFFIX
+                + "$2").replaceAll(RETIRED_REFERENCE_PATTERN, "$1" + RecipeDatabase.RECIPE));
+    }
+
+    /**
+     * Helper method that creates the indexes of the given live table on its shadow copy, under
+     * the alternate name of each index.
+     *
+     * @param db    The recipe database
+     * @param table The name of the live table
+     */
+    private static void createShadowIndexes(@NonNull SQLiteDatabase db, @NonNull String table) {
+        List<String> createSqls = new ArrayList<>();
+
+        Cursor cursor = db.rawQuery("SELECT name, sql FROM sqlite_master WHERE type = 'index' "
+                + "AND tbl_name = ? AND sql IS NOT NULL", new String[]{table});
+
+        try {
+            while (cursor.moveToNext()) {
+                String shadowIndexName = getAlternateIndexName(cursor.getString(0));
+
+                createSqls.add(cursor.getString(1).replaceFirst(CREATE_INDEX_PATTERN,
+                        "$1" + shadowIndexName + "$2" + table + SHADOW_SUFFIX + "$3"));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (String createSql : createSqls) {
+            db.execSQL(createSql);
+        }
+    }
+
+    /**
+     * Helper method that checks that the shadow catalog holds every row of the given recipes and
+     * that none of its ingredients or steps belong to a recipe it doesn't hold. Only the shadow
+     * tables are read, so the check costs the same whatever else the database holds.
+     *
+     * @param db      The recipe database
+     * @param recipes The recipes the shadow catalog should hold
+     * @return True if the shadow catalog can be swapped in, false otherwise
+     */
+    private static boolean isShadowCatalogValid(@NonNull SQLiteDatabase db,
+                                                @NonNull List<Recipe> recipes) {
+        long ingredientCount = 0;
+        long stepCount = 0;
+        for (Recipe recipe : recipes) {
+            if (recipe.getIngredients() != null) ingredientCount += recipe.getIngredients().size();
+            if (recipe.getSteps() != null) stepCount += recipe.getSteps().size();
+        }
+
+        if (!hasRowCount(db, RecipeDatabase.RECIPE, recipes.size())
+                || !hasRowCount(db, RecipeDatabase.RECIPE_SEARCH, recipes.size())
+                || !hasRowCount(db, RecipeDatabase.INGREDIENT, ingredientCount)
+                || !hasRowCount(db, RecipeDatabase.STEP, stepCount)) {
+            return false;
+        }
+
+        String recipeIds = "(SELECT " + RecipeColumns.RECIPE_ID + " FROM " + RecipeDatabase.RECIPE
+                + SHADOW_SUFFIX + ")";
+        long orphanCount = DatabaseUtils.longForQuery(db, "SELECT (SELECT COUNT(*) FROM "
+                + RecipeDatabase.INGREDIENT + SHADOW_SUFFIX + " WHERE "
+                + IngredientColumns.RECIPE_ID + " NOT IN " + recipeIds + ")"
+                + " + (SELECT COUNT(*) FROM " + RecipeDatabase.STEP + SHADOW_SUFFIX + " WHERE "
+                + StepColumns.RECIPE_ID + " NOT IN " + recipeIds + ")", null);
+        if (orphanCount != 0) {
+            Timber.e("Shadow catalog holds " + orphanCount + " orphaned ingredients and steps");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Helper method that checks the shadow copy of the given table holds the expected number of
+     * rows.
+     *
+     * @param db            The recipe database
+     * @param table         The name of the live table
+     * @param expectedCount The number of rows the shadow copy should hold
+     * @return True if the shadow copy holds the expected number of rows, false otherwise
+     */
+    private static boolean hasRowCount(@NonNull SQLiteDatabase db, @NonNull String table,
+                                       long expectedCount) {
+        long rowCount = DatabaseUtils.queryNumEntries(db, table + SHADOW_SUFFIX);
+        if (rowCount != expectedCount) {
+            Timber.e("Shadow catalog holds " + rowCount + " rows in " + table + " instead of "
+                    + expectedCount);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Helper method that retires the live tables and puts the shadow tables in their place, in a
+     * single transaction.
+     * <p>
+     * Since SQLite 3.26, renaming a table also rewrites the REFERENCES clauses of every table
+     * pointing at it, which would leave the ingredient and step tables referencing the retired
+     * recipe table once it is dropped. The swap runs with legacy_alter_table on so that the
+     * foreign keys keep naming the recipe table, and the shadow recipe table takes that name.
+     *
+     * @param db The recipe database
+     */
+    private static void swapShadowTables(@NonNull SQLiteDatabase db) {
+        long startTime = System.nanoTime();
+
+        // Set outside the transaction and always reset, so other renames keep the default behavior
+        db.execSQL("PRAGMA legacy_alter_table = ON");
+        try {
+            db.beginTransaction();
+            try {
+                for (String table : TABLES) {
+                    db.execSQL("ALTER TABLE " + table + " RENAME TO " + table + RETIRED_SUFFIX);
+                    db.execSQL("ALTER TABLE " + table + SHADOW_SUFFIX + " RENAME TO " + table);
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("PRAGMA legacy_alter_table = OFF");
+        }
+
+        long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+        Timber.d("Swapped in shadow catalog in " + elapsedMicros + " us");
+    }
+
+    private static void dropTables(@NonNull SQLiteDatabase db, @NonNull String suffix) {
+        for (String table : TABLES) {
+            db.execSQL("DROP TABLE IF EXISTS " + table + suffix);
+        }
+    }
+
+    private static String getAlternateIndexName(@NonNull String indexName) {
+        if (indexName.endsWith(ALTERNATE_INDEX_SUFFIX)) {
+            return indexName.substring(0, indexName.length() - ALTERNATE_INDEX_SUFFIX.length());
+        }
+
+        return indexName + ALTERNATE_INDEX_SUFFIX;
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.AbstractCursor;
+import android.support.annotation.NonNull;
+
+/**
+ * This cursor exposes the recipe list of a {@link CatalogSnapshot} with the columns of
+ * {@link RecipeListLoader#RECIPE_LIST_PROJECTION}, so the list can be displayed from the snapshot
+ * exactly as it would be from the database. Recipe names are decoded as each row is read.
+ */
+class SnapshotCursor extends AbstractCursor {
+
+    private final CatalogSnapshot snapshot;
+
+    SnapshotCursor(@NonNull CatalogSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public int getCount() {
+        return snapshot.getRecipeCount();
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return RecipeListLoader.RECIPE_LIST_PROJECTION;
+    }
+
+    @Override
+    public String getString(int column) {
+        if (column == RecipeListLoader.INDEX_RECIPE_NAME) {
+            return snapshot.getRecipeName(getPosition());
+        }
+
+        return String.valueOf(getLong(column));
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    /**
+     * Retrieves the value of the given integer column. The recipe ID doubles as the row ID, since
+     * the snapshot doesn't store the database's row IDs.
+     *
+     * @param column The index of the column
+     * @return The recipe ID of the current row
+     */
+    @Override
+    public long getLong(int column) {
+        if (column == RecipeListLoader.INDEX_RECIPE_NAME) {
+            return Long.parseLong(getString(column));
+        }
+
+        return snapshot.getRecipeId(getPosition());
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return column == RecipeListLoader.INDEX_RECIPE_NAME && getString(column) == null;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * This class collects the metrics of a single recipe sync, from the network phases of its calls
+ * to the rows it wrote, so that slow syncs can be diagnosed from the sync history rather than from
+ * log output.
+ * <p>
+ * Network timings are added by the calls made for the sync, which may run on several threads at
+ * once, so every accessor is synchronized. Timings of phases that overlap, e.g. the downloads of
+ * feeds fetched at once, are summed. A phase that wasn't measured during the sync is reported as
+ * {@link #NOT_MEASURED}.
+ */
+public class SyncMetrics {
+
+    public static final long NOT_MEASURED = -1;
+
+    public enum Mode {
+        /** The full feed was fetched and diffed against the stored catalog. */
+        FULL,
+        /** Only the changes since the stored catalog version were fetched. */
+        DELTA,
+        /** Several feeds were fetched at once and merged. */
+        MERGED,
+        /** The feed was written into the empty database as it was parsed. */
+        STREAM
+    }
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private Mode mode = Mode.FULL;
+    private boolean isSucceeded;
+    private long totalMillis = NOT_MEASURED;
+
+    private long dnsMillis = NOT_MEASURED;
+    private long connectMillis = NOT_MEASURED;
+    private long downloadMillis = NOT_MEASURED;
+    private long bytesDownloaded = NOT_MEASURED;
+    private long parseMillis = NOT_MEASURED;
+
+    private long rowsInserted = NOT_MEASURED;
+    private long rowsUpdated = NOT_MEASURED;
+    private long rowsDeleted = NOT_MEASURED;
+    private long transactionMillis = NOT_MEASURED;
+
+    /**
+     * Retrieves the wall clock time the sync started at.
+     *
+     * @return The start time in milliseconds since the epoch
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    public synchronized void setMode(@NonNull Mode mode) {
+        this.mode = mode;
+    }
+
+    public synchronized boolean isSucceeded() {
+        return isSucceeded;
+    }
+
+    /**
+     * Marks the sync as finished with the given result, fixing its total time.
+     *
+     * @param isSucceeded Whether the stored catalog is up to date with the API
+     */
+    public synchronized void finish(boolean isSucceeded) {
+        this.isSucceeded = isSucceeded;
+        totalMillis = (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    public synchronized long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public synchronized long getDnsMillis() {
+        return dnsMillis;
+    }
+
+    public synchronized void addDnsMillis(long millis) {
+        dnsMillis = add(dnsMillis, millis);
+    }
+
+    /**
+     * Retrieves the time spent opening connections, including their TLS handshakes.
+     *
+     * @return The time in milliseconds, or {@link #NOT_MEASURED} if no connection was opened
+     */
+    public synchronized long getConnectMillis() {
+        return connectMillis;
+    }
+
+    public synchronized void addConnectMillis(long millis) {
+        connectMillis = add(connectMillis, millis);
+    }
+
+    /**
+     * Retrieves the time spent reading response bodies. Responses converted by Retrofit are
+     * parsed as they are read, so their parse time is included.
+     *
+     * @return The time in milliseconds, or {@link #NOT_MEASURED} if no body was read
+     */
+    public synchronized long getDownloadMillis() {
+        return downloadMillis;
+    }
+
+    public synchronized void addDownloadMillis(long millis) {
+        downloadMillis = add(downloadMillis, millis);
+    }
+
+    public synchronized long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    public synchronized void addBytesDownloaded(long byteCount) {
+        bytesDownloaded = add(bytesDownloaded, byteCount);
+    }
+
+    /**
+     * Retrieves the time spent parsing the feed apart from downloading it, which is only
+     * measured when the feed is streamed.
+     *
+     * @return The time in milliseconds, or {@link #NOT_MEASURED}
+     */
+    public synchronized long getParseMillis() {
+        return parseMillis;
+    }
+
+    public synchronized void setParseMillis(long millis) {
+        parseMillis = millis;
+    }
+
+    public synchronized long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public synchronized long getRowsUpdated() {
+        return rowsUpdated;
+    }
+
+    public synchronized long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /**
+     * Sets the number of recipe, ingredient and step rows the sync wrote.
+     *
+     * @param inserted The number of rows inserted
+     * @param updated  The number of rows updated
+     * @param deleted  The number of rows deleted
+     */
+    public synchronized void setRowCounts(long inserted, long updated, long deleted) {
+        rowsInserted = inserted;
+        rowsUpdated = updated;
+        rowsDeleted = deleted;
+    }
+
+    /**
+     * Retrieves the time spent writing the catalog to the database, from the start of its first
+     * transaction to the end of its last.
+     *
+     * @return The time in milliseconds, or {@link #NOT_MEASURED} if nothing was written
+     */
+    public synchronized long getTransactionMillis() {
+        return transactionMillis;
+    }
+
+    public synchronized void setTransactionMillis(long millis) {
+        transactionMillis = millis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SyncMetrics{"
+                + "mode=" + mode
+                + ", succeeded=" + isSucceeded
+                + ", totalMillis=" + totalMillis
+                + ", dnsMillis=" + dnsMillis
+                + ", connectMillis=" + connectMillis
+                + ", downloadMillis=" + downloadMillis
+                + ", bytesDownloaded=" + bytesDownloaded
+                + ", parseMillis=" + parseMillis
+                + ", rowsInserted=" + rowsInserted
+                + ", rowsUpdated=" + rowsUpdated
+                + ", rowsDeleted=" + rowsDeleted
+                + ", transactionMillis=" + transactionMillis
+                + '}';
+    }
+
+    private static long add(long total, long value) {
+        return total == NOT_MEASURED ? value : total + value;
+    }
+
+}
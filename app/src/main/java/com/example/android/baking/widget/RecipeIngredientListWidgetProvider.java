@@ -54,7 +54,8 @@ import com.example.android.baking.model.Recipe;
 import com.example.android.baking.ui.RecipeDetailActivity;
 import com.example.android.baking.ui.RecipeListActivity;
 import com.example.android.baking.util.AppPreferences;
-import com.example.android.baking.util.DatabaseQueryUtil;
+import com.example.android.baking.util.CatalogSnapshot;
+import com.example.android.baking.util.RecipeCache;
 
 /**
  * Implementation of App Widget functionality.
@@ -115,8 +116,10 @@ public class RecipeIngredientListWidgetProvider extends AppWidgetProvider {
 
         int pinnedRecipeId = AppPreferences.getPinnedRecipeId(context);
         if (pinnedRecipeId != -1) {
-            recipe = DatabaseQueryUtil.retrieveRecipe(context.getContentResolver(),
-                    pinnedRecipeId);
+            // The snapshot avoids opening the database when the widget updates on its own
+            CatalogSnapshot snapshot = CatalogSnapshot.getInstance(context);
+            if (snapshot != null) recipe = snapshot.getRecipe(pinnedRecipeId);
+            if (recipe == null) recipe = RecipeCache.getInstance(context).getRecipe(pinnedRecipeId);
         }
 
         // There may be multiple widgets active, so update all of them
@@ -0,0 +1,149 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.provider;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test class upgrades a version 1 database holding the duplicate recipes left behind by
+ * overlapping syncs, to ensure the migrations keep a single copy of each recipe along with its
+ * ingredients and steps.
+ * <p>
+ * It runs under Robolectric, so the migrations run against a real SQLite database on the host.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecipeDatabaseMigrationsTest {
+
+    /**
+     * The tables as schematic created them at version 1, before any index was added.
+     */
+    private static final String[] VERSION_1_SCHEMA = {
+            "CREATE TABLE recipe (_id INTEGER PRIMARY KEY AUTOINCREMENT, recipe_id INTEGER, "
+                    + "name TEXT, servings INTEGER, image TEXT)",
+            "CREATE TABLE ingredient (_id INTEGER PRIMARY KEY AUTOINCREMENT, quantity REAL, "
+                    + "measure TEXT, name TEXT, recipe_id INTEGER NOT NULL REFERENCES "
+                    + "recipe(_id))",
+            "CREATE TABLE step (_id INTEGER PRIMARY KEY AUTOINCREMENT, step_id INTEGER, "
+                    + "short_description TEXT, long_description TEXT, video_url TEXT, "
+                    + "thumbnail_url TEXT, recipe_id INTEGER NOT NULL REFERENCES recipe(_id))"
+    };
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        db = SQLiteDatabase.create(null);
+
+        for (String createSql : VERSION_1_SCHEMA) {
+            db.execSQL(createSql);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void migrateToVersion2_removesDuplicateRecipesWithTheirChildren() {
+        // Two overlapping syncs each inserted recipes 1 and 2, then a later sync inserted recipe 3
+        insertRecipe(1, "Nutella Pie");
+        insertRecipe(2, "Brownies");
+        insertRecipe(1, "Nutella Pie");
+        insertRecipe(2, "Brownies");
+        insertRecipe(3, "Yellow Cake");
+
+        RecipeDatabaseMigrations.migrate(db, 1, 2);
+
+        assertEquals(3, DatabaseUtils.queryNumEntries(db, RecipeDatabase.RECIPE));
+        assertEquals(3 * 2, DatabaseUtils.queryNumEntries(db, RecipeDatabase.INGREDIENT));
+        assertEquals(3 * 3, DatabaseUtils.queryNumEntries(db, RecipeDatabase.STEP));
+
+        // The rows of the latest insert of each recipe are the ones kept
+        assertEquals(4, DatabaseUtils.longForQuery(db, "SELECT _id FROM recipe "
+                + "WHERE recipe_id = 2", null));
+        assertEquals(2, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM ingredient "
+                + "WHERE recipe_id = 1 AND _id > 4", null));
+        assertEquals(3, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM step "
+                + "WHERE recipe_id = 1 AND _id > 6", null));
+    }
+
+    @Test
+    public void migrateToVersion2_keepsRecipesWithoutDuplicates() {
+        insertRecipe(1, "Nutella Pie");
+        insertRecipe(2, "Brownies");
+
+        RecipeDatabaseMigrations.migrate(db, 1, 2);
+
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, RecipeDatabase.RECIPE));
+        assertEquals(2 * 2, DatabaseUtils.queryNumEntries(db, RecipeDatabase.INGREDIENT));
+        assertEquals(2 * 3, DatabaseUtils.queryNumEntries(db, RecipeDatabase.STEP));
+    }
+
+    /**
+     * Inserts a recipe with two ingredients and three steps, as a version 1 sync did.
+     */
+    private void insertRecipe(int recipeId, String name) {
+        db.execSQL("INSERT INTO recipe (recipe_id, name, servings, image) VALUES (?, ?, 8, '')",
+                new Object[]{recipeId, name});
+
+        for (int i = 0; i < 2; i++) {
+            db.execSQL("INSERT INTO ingredient (quantity, measure, name, recipe_id) "
+                    + "VALUES (?, 'CUP', ?, ?)", new Object[]{i + 1, "Ingredient " + i, recipeId});
+        }
+
+        for (int stepId = 0; stepId < 3; stepId++) {
+            db.execSQL("INSERT INTO step (step_id, short_description, long_description, "
+                    + "video_url, thumbnail_url, recipe_id) VALUES (?, ?, '', '', '', ?)",
+                    new Object[]{stepId, "Step " + stepId, recipeId});
+        }
+    }
+
+}
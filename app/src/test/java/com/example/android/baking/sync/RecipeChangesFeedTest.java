@@ -0,0 +1,253 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.RecipeChanges;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.service.NotModifiedInterceptor;
+import com.example.android.baking.service.RecipeService;
+import com.example.android.baking.util.RecipeDiff;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class serves synthetic change sets from a local server to ensure that syncing through
+ * the delta feed transfers and writes an amount of data that depends on the size of the change,
+ * not on the size of the catalog.
+ */
+public class RecipeChangesFeedTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MockWebServer server;
+    private RecipeService recipeService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+
+        recipeService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(JacksonConverterFactory.create())
+                .build()
+                .create(RecipeService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void getRecipeChanges_sendsStoredVersionAndParsesChanges() throws Exception {
+        server.enqueue(createChangesResponse("v2", createCatalog(1, 2),
+                Collections.singletonList(7)));
+
+        Response<RecipeChanges> response = recipeService.getRecipeChanges("v1").execute();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals(RecipeService.RECIPE_CHANGES_PATH, request.getRequestUrl().encodedPath());
+        assertEquals("v1", request.getRequestUrl().queryParameter("since"));
+
+        RecipeChanges changes = response.body();
+        assertEquals("v2", changes.getVersion());
+        assertEquals(2, changes.getChanged().size());
+        assertEquals("Step 0", changes.getChanged().get(1).getSteps().get(0).getShortDescription());
+        assertEquals(Collections.singletonList(7), changes.getDeleted());
+    }
+
+    @Test
+    public void getRecipeChanges_unsupportedServer_reportsNotFound() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        Response<RecipeChanges> response = recipeService.getRecipeChanges("v1").execute();
+
+        assertEquals(404, response.code());
+        assertNull(response.body());
+    }
+
+    @Test
+    public void deltaSync_transferAndWritesScaleWithChangeSizeNotCatalogSize() throws Exception {
+        int[] catalogSizes = {1000, 10000};
+        int[] changeSizes = {1, 10, 100};
+
+        long[][] transferLengths = new long[catalogSizes.length][changeSizes.length];
+        int[][] changedRowCounts = new int[catalogSizes.length][changeSizes.length];
+
+        for (int i = 0; i < catalogSizes.length; i++) {
+            Map<Integer, Recipe> storedRecipesById = new TreeMap<>();
+            for (Recipe recipe : createCatalog(1, catalogSizes[i])) {
+                storedRecipesById.put(recipe.getId(), recipe);
+            }
+
+            for (int j = 0; j < changeSizes.length; j++) {
+                int changeSize = changeSizes[j];
+
+                // Each change edits one step of a recipe spread across the catalog and deletes
+                // one other recipe
+                List<Recipe> changedRecipes = new ArrayList<>();
+                List<Integer> deletedRecipeIds = new ArrayList<>();
+                for (int k = 0; k < changeSize; k++) {
+                    Recipe changedRecipe = createCatalog(2 * k + 1, 1).get(0);
+                    changedRecipe.getSteps().get(0).setDescription("Changed");
+                    changedRecipes.add(changedRecipe);
+                    deletedRecipeIds.add(2 * k + 2);
+                }
+
+                server.enqueue(createChangesResponse("v" + changeSize, changedRecipes,
+                        deletedRecipeIds));
+                Response<RecipeChanges> response = recipeService.getRecipeChanges("v0")
+                        .execute();
+                RecipeChanges changes = response.body();
+
+                // Only the recipes named by the changes are looked up, as the sync task does
+                TreeSet<Integer> affectedRecipeIds = new TreeSet<>(changes.getDeleted());
+                for (Recipe recipe : changes.getChanged()) {
+                    affectedRecipeIds.add(recipe.getId());
+                }
+
+                List<Recipe> storedRecipes = new ArrayList<>();
+                for (Integer recipeId : affectedRecipeIds) {
+                    Recipe storedRecipe = storedRecipesById.get(recipeId);
+                    if (storedRecipe != null) storedRecipes.add(storedRecipe);
+                }
+
+                RecipeDiff diff = RecipeDiff.computeChanges(storedRecipes, changes.getChanged(),
+                        changes.getDeleted());
+
+                transferLengths[i][j] = NotModifiedInterceptor.getTransferLength(response.raw());
+                changedRowCounts[i][j] = diff.getChangedRowCount();
+
+                // One updated step per changed recipe, and a recipe row, its two ingredients and
+                // three steps per deleted recipe
+                assertEquals(changeSize * (1 + 6), changedRowCounts[i][j]);
+            }
+        }
+
+        for (int j = 0; j < changeSizes.length; j++) {
+            assertEquals(transferLengths[0][j], transferLengths[1][j]);
+            assertEquals(changedRowCounts[0][j], changedRowCounts[1][j]);
+        }
+
+        // A hundred times the changes costs close to a hundred times the transfer, and a fraction
+        // of the full feed of the large catalog
+        long fullFeedLength = objectMapper.writeValueAsBytes(createCatalog(1, 10000)).length;
+        assertTrue(transferLengths[1][2] > 50 * transferLengths[1][0]);
+        assertTrue(transferLengths[1][2] * 20 < fullFeedLength);
+    }
+
+    private MockResponse createChangesResponse(String version, List<Recipe> changedRecipes,
+                                               List<Integer> deletedRecipeIds)
+            throws IOException {
+        RecipeChanges changes = new RecipeChanges();
+        changes.setVersion(version);
+        changes.setChanged(changedRecipes);
+        changes.setDeleted(deletedRecipeIds);
+
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(objectMapper.writeValueAsString(changes));
+    }
+
+    private static List<Recipe> createCatalog(int firstRecipeId, int recipeCount) {
+        List<Recipe> recipes = new ArrayList<>();
+
+        for (int recipeId = firstRecipeId; recipeId < firstRecipeId + recipeCount; recipeId++) {
+            Recipe recipe = new Recipe();
+            recipe.setId(recipeId);
+            recipe.setName("Recipe " + recipeId);
+            recipe.setServings(8);
+            recipe.setImage("");
+
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setQuantity(i + 1);
+                ingredient.setMeasure("CUP");
+                ingredient.setIngredient("Ingredient " + i);
+                ingredients.add(ingredient);
+            }
+            recipe.setIngredients(ingredients);
+
+            List<Step> steps = new ArrayList<>();
+            for (int stepId = 0; stepId < 3; stepId++) {
+                Step step = new Step();
+                step.setId(stepId);
+                step.setShortDescription("Step " + stepId);
+                step.setDescription("Description " + stepId);
+                step.setVideoUrl("");
+                step.setThumbnailUrl("");
+                steps.add(step);
+            }
+            recipe.setSteps(steps);
+
+            recipes.add(recipe);
+        }
+
+        return recipes;
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.service.RecipeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class serves several recipe feeds with different delays from a local server, to
+ * ensure {@link RecipeFeedFetcher} fetches them at once and merges them the same way whatever
+ * order their responses arrive in.
+ */
+public class RecipeFeedFetcherTest {
+
+    private static final long MAIN_FEED_DELAY_MILLIS = 600;
+    private static final long REGIONAL_FEED_DELAY_MILLIS = 400;
+    private static final long SEASONAL_FEED_DELAY_MILLIS = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, MockResponse> responses = new HashMap<>();
+
+    private MockWebServer server;
+    private RecipeService recipeService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                synchronized (responses) {
+                    MockResponse response = responses.get(request.getPath());
+                    return response != null ? response : new MockResponse().setResponseCode(404);
+                }
+            }
+
+        });
+        server.start();
+
+        recipeService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(JacksonConverterFactory.create())
+                .build()
+                .create(RecipeService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void fetchFeeds_takesAboutAsLongAsTheSlowestFeed() throws IOException {
+        serveFeed("/main.json", MAIN_FEED_DELAY_MILLIS, createRecipe(1, "Main"));
+        serveFeed("/regional.json", REGIONAL_FEED_DELAY_MILLIS, createRecipe(2, "Regional"));
+        serveFeed("/seasonal.json", SEASONAL_FEED_DELAY_MILLIS, createRecipe(3, "Seasonal"));
+
+        long startTime = System.nanoTime();
+        List<List<Recipe>> feeds = RecipeFeedFetcher.fetchFeeds(
+                createCalls("/main.json", "/regional.json", "/seasonal.json"), null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertEquals(3, feeds.size());
+        assertEquals("Main", feeds.get(0).get(0).getName());
+        assertEquals("Seasonal", feeds.get(2).get(0).getName());
+
+        // Fetched one after the other, the feeds would take the sum of their delays
+        assertTrue(elapsedMillis >= MAIN_FEED_DELAY_MILLIS);
+        assertTrue(elapsedMillis < MAIN_FEED_DELAY_MILLIS + REGIONAL_FEED_DELAY_MILLIS);
+    }
+
+    @Test
+    public void fetchFeeds_failedFeed_failsWithoutWaitingForTheOthers() throws IOException {
+        serveFeed("/main.json", MAIN_FEED_DELAY_MILLIS, createRecipe(1, "Main"));
+
+        long startTime = System.nanoTime();
+        List<List<Recipe>> feeds = RecipeFeedFetcher.fetchFeeds(
+                createCalls("/main.json", "/missing.json"), null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertNull(feeds);
+        assertTrue(elapsedMillis < MAIN_FEED_DELAY_MILLIS);
+    }
+
+    @Test
+    public void mergeFeeds_earlierFeedWinsConflicts() throws IOException {
+        // The main feed is the slowest, so its response arrives last
+        serveFeed("/main.json", MAIN_FEED_DELAY_MILLIS, createRecipe(1, "Main"),
+                createRecipe(2, "Main"));
+        serveFeed("/regional.json", REGIONAL_FEED_DELAY_MILLIS, createRecipe(2, "Regional"),
+                createRecipe(3, "Regional"));
+        serveFeed("/seasonal.json", SEASONAL_FEED_DELAY_MILLIS, createRecipe(3, "Seasonal"),
+                createRecipe(4, "Seasonal"), createRecipe(4, "Seasonal duplicate"));
+
+        List<Recipe> recipes = RecipeFeedFetcher.mergeFeeds(RecipeFeedFetcher.fetchFeeds(
+                createCalls("/main.json", "/regional.json", "/seasonal.json"), null));
+
+        List<String> names = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            names.add(recipe.getId() + " " + recipe.getName());
+        }
+
+        assertEquals(Arrays.asList("1 Main", "2 Main", "3 Regional", "4 Seasonal"), names);
+    }
+
+    @Test
+    public void mergeFeeds_noFeeds_isEmpty() {
+        assertTrue(RecipeFeedFetcher.mergeFeeds(Collections.<List<Recipe>>emptyList()).isEmpty());
+    }
+
+    private void serveFeed(String path, long delayMillis, Recipe... recipes) throws IOException {
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(objectMapper.writeValueAsString(Arrays.asList(recipes)))
+                .setBodyDelay(delayMillis, TimeUnit.MILLISECONDS);
+
+        synchronized (responses) {
+            responses.put(path, response);
+        }
+    }
+
+    private List<Call<List<Recipe>>> createCalls(String... paths) {
+        List<Call<List<Recipe>>> calls = new ArrayList<>();
+        for (String path : paths) {
+            calls.add(recipeService.getRecipes(server.url(path).toString()));
+        }
+
+        return calls;
+    }
+
+    private static Recipe createRecipe(int recipeId, String name) {
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        recipe.setName(name);
+        recipe.setServings(8);
+        recipe.setImage("");
+        recipe.setIngredients(Collections.<Ingredient>emptyList());
+        recipe.setSteps(Collections.<Step>emptyList());
+        return recipe;
+    }
+
+}
@@ -0,0 +1,448 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.RecipeContentProvider;
+import com.example.android.baking.provider.SyncHistoryColumns;
+import com.example.android.baking.service.RecipeService;
+import com.example.android.baking.service.RecipeServiceGenerator;
+import com.example.android.baking.util.AppPreferences;
+import com.example.android.baking.util.CatalogSnapshot;
+import com.example.android.baking.util.DatabaseQueryUtil;
+import com.example.android.baking.util.IngredientIndex;
+import com.example.android.baking.util.SyncMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class drives {@link RecipeSyncTask} end to end at increasing catalog sizes, serving
+ * synthetic feeds shaped like the API's baking.json from a local server and writing them to a real
+ * database. It runs offline under Robolectric, so it can run on any build host.
+ * <p>
+ * Each scale is synced along both paths an empty database can take: the seed path, where the
+ * bundled seed catalog is installed and then diffed against the feed, and the streamed path, where
+ * there is no seed catalog and the feed is written as it is parsed. Each path syncs twice: first
+ * into the empty database, then again after a fraction of the recipes have been revised.
+ * <p>
+ * The wall time, peak heap and database size of each sync are printed, and written to
+ * {@code build/reports/syncLoadTest/results.csv} for comparison between builds. They are
+ * measured on the host JVM rather than on a device, so only their trend across scales and builds
+ * is meaningful.
+ * <p>
+ * The test is left out of the regular unit test run. Run it with
+ * {@code ./gradlew testDebugUnitTest -PsyncLoadTest --tests '*RecipeSyncLoadTest'}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecipeSyncLoadTest {
+
+    private static final int[] RECIPE_COUNTS = {10, 1000, 10000, 100000};
+
+    private static final int INGREDIENTS_PER_RECIPE = 9;
+    private static final int STEPS_PER_RECIPE = 7;
+
+    /**
+     * One recipe out of this many is revised between the first and the second sync.
+     */
+    private static final int REVISED_RECIPE_INTERVAL = 100;
+
+    private static final long HEAP_SAMPLE_INTERVAL_MILLIS = 5;
+
+    /**
+     * The results file, relative to the app module, which is the working directory of its tests.
+     */
+    private static final File RESULTS_FILE = new File("build/reports/syncLoadTest/results.csv");
+
+    private static final String RESULTS_HEADER = "path,phase,recipes,mode,elapsed_millis,"
+            + "peak_heap_bytes,database_bytes,bytes_downloaded,rows_inserted,rows_updated,"
+            + "rows_deleted";
+
+    /**
+     * The ways an empty database is first filled.
+     */
+    private enum SyncPath {
+        /** The seed catalog is installed, then the stored catalog is diffed against the feed. */
+        SEED(SyncMetrics.Mode.FULL),
+        /** There is no seed catalog, so the feed is streamed into the database. */
+        STREAMED(SyncMetrics.Mode.STREAM);
+
+        private final SyncMetrics.Mode initialSyncMode;
+
+        SyncPath(SyncMetrics.Mode initialSyncMode) {
+            this.initialSyncMode = initialSyncMode;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Context context;
+    private MockWebServer server;
+
+    private volatile Buffer feed = new Buffer();
+
+    private final List<String> results = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.application;
+        Robolectric.setupContentProvider(
+                com.example.android.baking.provider.generated.RecipeContentProvider.class,
+                RecipeContentProvider.AUTHORITY);
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // Only the full feed is served, as the API does
+                if (!RecipeService.RECIPES_PATH.equals(request.getRequestUrl().encodedPath())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+
+                // The feed isn't stored in the HTTP cache, which would hold a second copy of it
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setHeader("Cache-Control", "no-store")
+                        .setBody(feed.clone());
+            }
+
+        });
+        server.start();
+
+        RecipeServiceGenerator.setBaseUrl(server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SeedCatalogInstaller.setEnabled(true);
+        RecipeServiceGenerator.setBaseUrl(null);
+        server.shutdown();
+    }
+
+    /**
+     * The scales and paths run in a single test, since the database and the services are
+     * process-wide singletons that would outlive the application Robolectric creates for each
+     * test.
+     */
+    @Test
+    public void sync_atEachScale() throws IOException {
+        for (int recipeCount : RECIPE_COUNTS) {
+            for (SyncPath path : SyncPath.values()) {
+                clearCatalog();
+                SeedCatalogInstaller.setEnabled(path == SyncPath.SEED);
+                syncAtScale(path, recipeCount);
+            }
+        }
+
+        writeResults();
+    }
+
+    /**
+     * Empties the stored catalog along with everything derived from it, so the next sync starts
+     * from an empty database again.
+     */
+    private void clearCatalog() {
+        ContentResolver contentResolver = context.getContentResolver();
+        DatabaseQueryUtil.deleteSteps(contentResolver);
+        DatabaseQueryUtil.deleteIngredients(contentResolver);
+        DatabaseQueryUtil.deleteRecipes(contentResolver);
+
+        CatalogSnapshot.delete(context);
+        IngredientIndex.invalidate();
+        AppPreferences.setCatalogValidator(context, null);
+        AppPreferences.setCatalogVersion(context, null);
+    }
+
+    /**
+     * Syncs a catalog of the given size into the empty database along the given path, then syncs
+     * it again after a fraction of its recipes were revised, checking the stored catalog after
+     * each sync.
+     */
+    private void syncAtScale(SyncPath path, int recipeCount) throws IOException {
+        ContentResolver contentResolver = context.getContentResolver();
+
+        feed = createFeed(recipeCount, false);
+        String initialSyncMode = measureSync(path, "initial", recipeCount);
+        assertEquals(path.initialSyncMode.name().toLowerCase(Locale.US), initialSyncMode);
+        assertEquals(recipeCount, DatabaseQueryUtil.retrieveRecipeIds(contentResolver).size());
+
+        feed = createFeed(recipeCount, true);
+        measureSync(path, "revised", recipeCount);
+        assertEquals(recipeCount, DatabaseQueryUtil.retrieveRecipeIds(contentResolver).size());
+
+        Recipe revisedRecipe = DatabaseQueryUtil.retrieveRecipe(contentResolver, 1);
+        assertEquals(createRecipe(1, true).getName(), revisedRecipe.getName());
+        assertEquals(INGREDIENTS_PER_RECIPE, revisedRecipe.getIngredients().size());
+        assertEquals(STEPS_PER_RECIPE, revisedRecipe.getSteps().size());
+    }
+
+    /**
+     * Runs a single sync against the feed currently served, asserting it succeeds, and prints and
+     * records its measurements along with the metrics it recorded in the sync history.
+     *
+     * @return The mode of the sync, as recorded in the sync history
+     */
+    private String measureSync(SyncPath path, String phase, int recipeCount) {
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+
+        long startTime = System.nanoTime();
+        boolean isSynced = RecipeSyncTask.syncRecipes(context, new CancellationSignal());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        long peakHeapBytes = heapSampler.finish();
+        assertTrue(isSynced);
+
+        long databaseBytes = getDatabaseSizeBytes();
+
+        Cursor cursor = context.getContentResolver().query(
+                RecipeContentProvider.SyncHistory.SYNC_HISTORY, null, null, null, null);
+        assertTrue(cursor != null);
+
+        try {
+            assertTrue(cursor.moveToFirst());
+
+            String mode = cursor.getString(cursor.getColumnIndex(SyncHistoryColumns.MODE));
+            long bytesDownloaded = cursor.getLong(
+                    cursor.getColumnIndex(SyncHistoryColumns.BYTES_DOWNLOADED));
+            long rowsInserted = cursor.getLong(
+                    cursor.getColumnIndex(SyncHistoryColumns.ROWS_INSERTED));
+            long rowsUpdated = cursor.getLong(
+                    cursor.getColumnIndex(SyncHistoryColumns.ROWS_UPDATED));
+            long rowsDeleted = cursor.getLong(
+                    cursor.getColumnIndex(SyncHistoryColumns.ROWS_DELETED));
+
+            System.out.println(String.format(Locale.US, "%7d recipes, %-8s path, %-7s sync: "
+                            + "%6d ms, peak heap %5d MiB, database %7d KiB, %s mode, %d bytes "
+                            + "downloaded, %d rows inserted, %d updated, %d deleted",
+                    recipeCount, path.name().toLowerCase(Locale.US), phase, elapsedMillis,
+                    peakHeapBytes / (1024 * 1024), databaseBytes / 1024, mode, bytesDownloaded,
+                    rowsInserted, rowsUpdated, rowsDeleted));
+
+            results.add(String.format(Locale.US, "%s,%s,%d,%s,%d,%d,%d,%d,%d,%d,%d",
+                    path.name().toLowerCase(Locale.US), phase, recipeCount, mode, elapsedMillis,
+                    peakHeapBytes, databaseBytes, bytesDownloaded, rowsInserted, rowsUpdated,
+                    rowsDeleted));
+
+            return mode;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Writes the results of every sync to {@link #RESULTS_FILE} as CSV, replacing the results of
+     * any earlier run.
+     */
+    private void writeResults() throws IOException {
+        File resultsDirectory = RESULTS_FILE.getParentFile();
+        assertTrue(resultsDirectory.isDirectory() || resultsDirectory.mkdirs());
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(RESULTS_FILE),
+                Charset.forName("UTF-8"));
+        try {
+            writer.write(RESULTS_HEADER);
+            writer.write('\n');
+            for (String result : results) {
+                writer.write(result);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+
+        System.out.println("Wrote sync load test results to " + RESULTS_FILE.getAbsolutePath());
+    }
+
+    /**
+     * Retrieves the size of the database file, including its write-ahead log.
+     */
+    private long getDatabaseSizeBytes() {
+        String databasePath = com.example.android.baking.provider.generated.RecipeDatabase
+                .getInstance(context).getWritableDatabase().getPath();
+
+        return new File(databasePath).length() + new File(databasePath + "-wal").length();
+    }
+
+    /**
+     * Creates a feed of the given number of recipes, writing each recipe as it is generated so
+     * the whole catalog is never held in memory as objects.
+     */
+    private Buffer createFeed(int recipeCount, boolean isRevised) throws IOException {
+        Buffer buffer = new Buffer();
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(
+                buffer.outputStream());
+        try {
+            generator.writeStartArray();
+            for (int recipeId = 1; recipeId <= recipeCount; recipeId++) {
+                generator.writeObject(createRecipe(recipeId, isRevised));
+            }
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+
+        return buffer;
+    }
+
+    private static Recipe createRecipe(int recipeId, boolean isRevised) {
+        boolean isRevisedRecipe = isRevised && recipeId % REVISED_RECIPE_INTERVAL == 1;
+
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        recipe.setName((isRevisedRecipe ? "Revised recipe " : "Recipe ") + recipeId);
+        recipe.setServings(8);
+        recipe.setImage("");
+
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setQuantity(i + 1);
+            ingredient.setMeasure("CUP");
+            ingredient.setIngredient("Ingredient " + (recipeId + i) % 500);
+            ingredients.add(ingredient);
+        }
+        recipe.setIngredients(ingredients);
+
+        List<Step> steps = new ArrayList<>();
+        for (int stepId = 0; stepId < STEPS_PER_RECIPE; stepId++) {
+            Step step = new Step();
+            step.setId(stepId);
+            step.setShortDescription("Step " + stepId);
+            step.setDescription(stepId + ". Combine the ingredients of recipe " + recipeId
+                    + " and bake until golden.");
+            step.setVideoUrl(stepId == 0 ? "https://example.com/" + recipeId + ".mp4" : "");
+            step.setThumbnailUrl("");
+            steps.add(step);
+        }
+        recipe.setSteps(steps);
+
+        return recipe;
+    }
+
+    /**
+     * This thread samples the used heap until it is finished, keeping the highest sample.
+     */
+    private static class HeapSampler extends Thread {
+
+        private volatile boolean isFinished;
+        private long peakUsedBytes;
+
+        HeapSampler() {
+            super("HeapSampler");
+            System.gc();
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+
+            while (!isFinished) {
+                long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+                synchronized (this) {
+                    peakUsedBytes = Math.max(peakUsedBytes, usedBytes);
+                }
+
+                try {
+                    Thread.sleep(HEAP_SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Stops sampling and retrieves the highest used heap sampled.
+         *
+         * @return The peak used heap in bytes
+         */
+        long finish() {
+            isFinished = true;
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (this) {
+                return peakUsedBytes;
+            }
+        }
+
+    }
+
+}
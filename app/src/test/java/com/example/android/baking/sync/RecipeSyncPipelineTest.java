@@ -0,0 +1,235 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.util.RecipeBulkWriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures {@link RecipeSyncPipeline} passes every recipe of a feed through its
+ * stages in order, holds only a bounded part of the feed between them and stops every stage when
+ * one of them fails.
+ */
+public class RecipeSyncPipelineTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void run_writesEveryRecipeInOrder() {
+        final int recipeCount = 2000;
+        final List<Integer> writtenIds = new ArrayList<>();
+
+        RecipeSyncPipeline pipeline = new RecipeSyncPipeline(createFeed(recipeCount),
+                new RecipeSyncPipeline.RecipeSink() {
+
+                    @Override
+                    public boolean write(@NonNull RecipeBulkWriter.RecipeSource source) {
+                        try {
+                            Recipe recipe;
+                            while ((recipe = source.read()) != null) {
+                                writtenIds.add(recipe.getId());
+                            }
+                            return true;
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    }
+
+                });
+
+        assertTrue(pipeline.run());
+        assertEquals(recipeCount, writtenIds.size());
+        for (int i = 0; i < recipeCount; i++) {
+            assertEquals(i + 1, (int) writtenIds.get(i));
+        }
+
+        List<RecipeSyncPipeline.StageStats> stageStats = pipeline.getStageStats();
+        assertTrue(stageStats.get(0).getItemCount() > recipeCount);
+        assertEquals(recipeCount, stageStats.get(1).getItemCount());
+        assertEquals(recipeCount, stageStats.get(2).getItemCount());
+    }
+
+    @Test
+    public void run_slowWriter_isThrottledByBoundedQueues() {
+        final int recipeCount = 5000;
+        final long[] parsedAtFirstWrite = new long[1];
+
+        final RecipeSyncPipeline[] pipeline = new RecipeSyncPipeline[1];
+        pipeline[0] = new RecipeSyncPipeline(createFeed(recipeCount),
+                new RecipeSyncPipeline.RecipeSink() {
+
+                    @Override
+                    public boolean write(@NonNull RecipeBulkWriter.RecipeSource source) {
+                        try {
+                            // Give the parse stage every chance to run ahead of the writes
+                            Thread.sleep(200);
+
+                            source.read();
+                            parsedAtFirstWrite[0] =
+                                    pipeline[0].getStageStats().get(1).getItemCount();
+
+                            while (source.read() != null) {
+                                // Drain the rest of the feed
+                            }
+                            return true;
+                        } catch (IOException | InterruptedException e) {
+                            return false;
+                        }
+                    }
+
+                });
+
+        assertTrue(pipeline[0].run());
+
+        // The parse stage can be at most one recipe ahead of a full queue
+        assertTrue(parsedAtFirstWrite[0] <= RecipeSyncPipeline.RECIPE_QUEUE_CAPACITY + 1);
+
+        List<RecipeSyncPipeline.StageStats> stageStats = pipeline[0].getStageStats();
+        assertTrue(stageStats.get(1).getMaxQueueDepth()
+                <= RecipeSyncPipeline.BYTE_QUEUE_CAPACITY);
+        assertEquals(RecipeSyncPipeline.RECIPE_QUEUE_CAPACITY,
+                stageStats.get(2).getMaxQueueDepth());
+    }
+
+    @Test
+    public void run_failedWrite_stopsEveryStage() {
+        RecipeSyncPipeline pipeline = new RecipeSyncPipeline(createFeed(100000),
+                new RecipeSyncPipeline.RecipeSink() {
+
+                    @Override
+                    public boolean write(@NonNull RecipeBulkWriter.RecipeSource source) {
+                        try {
+                            for (int i = 0; i < 10; i++) {
+                                source.read();
+                            }
+                        } catch (IOException e) {
+                            // The write fails either way
+                        }
+                        return false;
+                    }
+
+                });
+
+        assertFalse(pipeline.run());
+        assertTrue(pipeline.getStageStats().get(1).getItemCount() < 100000);
+    }
+
+    @Test
+    public void run_malformedFeed_fails() {
+        RecipeSyncPipeline pipeline = new RecipeSyncPipeline(
+                new ByteArrayInputStream("{\"id\":1}".getBytes(UTF_8)),
+                new RecipeSyncPipeline.RecipeSink() {
+
+                    @Override
+                    public boolean write(@NonNull RecipeBulkWriter.RecipeSource source) {
+                        try {
+                            while (source.read() != null) {
+                                // Drain the feed
+                            }
+                            return true;
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    }
+
+                });
+
+        assertFalse(pipeline.run());
+    }
+
+    /**
+     * Creates a feed of the given number of recipes that is generated as it is read, so it is
+     * never held in memory as a whole.
+     */
+    private static InputStream createFeed(final int recipeCount) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+
+            private int position = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return position <= recipeCount;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String json;
+                if (position == -1) {
+                    json = "[";
+                } else if (position == recipeCount) {
+                    json = "]";
+                } else {
+                    json = (position == 0 ? "" : ",") + createRecipeJson(position + 1);
+                }
+
+                position++;
+                return new ByteArrayInputStream(json.getBytes(UTF_8));
+            }
+
+        });
+    }
+
+    private static String createRecipeJson(int id) {
+        return "{\"id\":" + id + ",\"name\":\"Recipe " + id + "\","
+                + "\"ingredients\":[{\"quantity\":2,\"measure\":\"CUP\",\"ingredient\":\"Flour\"}],"
+                + "\"steps\":[{\"id\":0,\"shortDescription\":\"Recipe Introduction\","
+                + "\"description\":\"Introduction\",\"videoURL\":\"\",\"thumbnailURL\":\"\"}],"
+                + "\"servings\":8,\"image\":\"\"}";
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.provider.RecipeContentProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class reads the seed catalog from the app's merged assets, as they are packaged in
+ * the APK, to ensure the committed asset parses into recipes and installs into an empty
+ * database.
+ * <p>
+ * It runs under Robolectric, so the recipes are written through the generated content provider
+ * into a real SQLite database on the host.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SeedCatalogInstallerTest {
+
+    private ContentResolver contentResolver;
+
+    @Before
+    public void setUp() {
+        Robolectric.setupContentProvider(
+                com.example.android.baking.provider.generated.RecipeContentProvider.class,
+                RecipeContentProvider.AUTHORITY);
+
+        contentResolver = RuntimeEnvironment.application.getContentResolver();
+    }
+
+    @Test
+    public void readSeedCatalog_parsesBundledAsset() {
+        List<Recipe> recipes = SeedCatalogInstaller.readSeedCatalog(RuntimeEnvironment.application);
+
+        assertNotNull(recipes);
+        assertFalse(recipes.isEmpty());
+
+        Set<Integer> recipeIds = new HashSet<>();
+        for (Recipe recipe : recipes) {
+            assertTrue(recipeIds.add(recipe.getId()));
+            assertNotNull(recipe.getName());
+            assertFalse(recipe.getIngredients().isEmpty());
+            assertFalse(recipe.getSteps().isEmpty());
+        }
+    }
+
+    @Test
+    public void install_writesEveryRecipeOfBundledAsset() {
+        List<Recipe> recipes = SeedCatalogInstaller.readSeedCatalog(RuntimeEnvironment.application);
+        assertNotNull(recipes);
+
+        int ingredientCount = 0;
+        int stepCount = 0;
+        for (Recipe recipe : recipes) {
+            ingredientCount += recipe.getIngredients().size();
+            stepCount += recipe.getSteps().size();
+        }
+
+        assertTrue(SeedCatalogInstaller.install(RuntimeEnvironment.application));
+
+        assertEquals(recipes.size(), count(RecipeContentProvider.Recipes.RECIPE_LIST));
+        assertEquals(ingredientCount, count(RecipeContentProvider.Ingredients.INGREDIENT_LIST));
+        assertEquals(stepCount, count(RecipeContentProvider.Steps.STEP_LIST));
+    }
+
+    private int count(Uri uri) {
+        Cursor cursor = contentResolver.query(uri, null, null, null, null);
+        assertNotNull(cursor);
+
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
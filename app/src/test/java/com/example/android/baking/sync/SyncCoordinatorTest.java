@@ -0,0 +1,426 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.sync;
+
+import android.os.CancellationSignal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class ensures {@link SyncCoordinator} merges overlapping sync requests into a single
+ * run, backs off between retries of failed syncs, and stops canceled syncs without retrying once
+ * no caller is waiting on them.
+ * <p>
+ * It runs under Robolectric, since every sync is given a framework {@link CancellationSignal}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SyncCoordinatorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void calculateBackoffMillis_doublesWithJitterUpToCap() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100; i++) {
+            long firstBackoff = SyncCoordinator.calculateBackoffMillis(1, random);
+            assertTrue(firstBackoff >= SyncCoordinator.INITIAL_BACKOFF_MILLIS / 2);
+            assertTrue(firstBackoff <= SyncCoordinator.INITIAL_BACKOFF_MILLIS);
+
+            long thirdBackoff = SyncCoordinator.calculateBackoffMillis(3, random);
+            assertTrue(thirdBackoff >= SyncCoordinator.INITIAL_BACKOFF_MILLIS * 2);
+            assertTrue(thirdBackoff <= SyncCoordinator.INITIAL_BACKOFF_MILLIS * 4);
+
+            long cappedBackoff = SyncCoordinator.calculateBackoffMillis(100, random);
+            assertTrue(cappedBackoff >= SyncCoordinator.MAX_BACKOFF_MILLIS / 2);
+            assertTrue(cappedBackoff <= SyncCoordinator.MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    @Test
+    public void requestSync_whileSyncing_joinsRunInProgress() throws InterruptedException {
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSync = new CountDownLatch(1);
+        final AtomicInteger syncCount = new AtomicInteger();
+
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                syncCount.incrementAndGet();
+                syncStarted.countDown();
+                awaitQuietly(releaseSync);
+                return true;
+            }
+
+        }, executor, new Random(42));
+
+        final CountDownLatch syncFinished = new CountDownLatch(3);
+        SyncCoordinator.OnSyncFinishedListener listener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSuccessful) {
+                        assertTrue(isSuccessful);
+                        syncFinished.countDown();
+                    }
+
+                };
+
+        coordinator.requestSync(listener);
+        assertTrue(syncStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        coordinator.requestSync(listener);
+        coordinator.requestSync(listener);
+        assertEquals(SyncCoordinator.State.SYNCING, coordinator.getState());
+
+        releaseSync.countDown();
+
+        assertTrue(syncFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, syncCount.get());
+        assertEquals(SyncCoordinator.State.IDLE, coordinator.getState());
+    }
+
+    @Test
+    public void requestSync_afterFailure_retriesImmediately() throws InterruptedException {
+        final AtomicInteger syncCount = new AtomicInteger();
+
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                // Only the first attempt fails
+                return syncCount.incrementAndGet() > 1;
+            }
+
+        }, executor, new Random(42));
+
+        final CountDownLatch firstAttempt = new CountDownLatch(1);
+        coordinator.requestSync(new SyncCoordinator.OnSyncFinishedListener() {
+
+            @Override
+            public void onSyncFinished(boolean isSuccessful) {
+                firstAttempt.countDown();
+            }
+
+        });
+
+        assertTrue(firstAttempt.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SyncCoordinator.State.WAITING_TO_RETRY, coordinator.getState());
+        assertEquals(1, executor.getQueue().size());
+
+        final CountDownLatch secondAttempt = new CountDownLatch(1);
+        coordinator.requestSync(new SyncCoordinator.OnSyncFinishedListener() {
+
+            @Override
+            public void onSyncFinished(boolean isSuccessful) {
+                assertTrue(isSuccessful);
+                secondAttempt.countDown();
+            }
+
+        });
+
+        assertTrue(secondAttempt.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, syncCount.get());
+        assertEquals(SyncCoordinator.State.IDLE, coordinator.getState());
+    }
+
+    @Test
+    public void requestSync_retriedByCaller_failsWithoutRetrying() throws InterruptedException {
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                return false;
+            }
+
+        }, executor, new Random(42));
+
+        final CountDownLatch attemptFinished = new CountDownLatch(1);
+        coordinator.requestSync(new SyncCoordinator.OnSyncFinishedListener() {
+
+            @Override
+            public void onSyncFinished(boolean isSuccessful) {
+                attemptFinished.countDown();
+            }
+
+        }, true);
+
+        assertTrue(attemptFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SyncCoordinator.State.FAILED, coordinator.getState());
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    @Test
+    public void cancelSync_stopsSyncWithoutNotifyingOrRetrying() throws InterruptedException {
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final CountDownLatch syncCanceled = new CountDownLatch(1);
+
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+
+                    @Override
+                    public void onCancel() {
+                        syncCanceled.countDown();
+                    }
+
+                });
+
+                syncStarted.countDown();
+                awaitQuietly(syncCanceled);
+                return false;
+            }
+
+        }, executor, new Random(42));
+
+        final AtomicInteger notificationCount = new AtomicInteger();
+        SyncCoordinator.OnSyncFinishedListener listener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSuccessful) {
+                        notificationCount.incrementAndGet();
+                    }
+
+                };
+
+        coordinator.requestSync(listener);
+        assertTrue(syncStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(coordinator.cancelSync(listener));
+        assertFalse(coordinator.cancelSync(listener));
+
+        // The canceled run settles once the executor has run everything queued
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals(0, notificationCount.get());
+        assertEquals(SyncCoordinator.State.IDLE, coordinator.getState());
+    }
+
+    @Test
+    public void requestSync_afterCancelWhileAttemptRuns_startsFreshRun()
+            throws InterruptedException {
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSync = new CountDownLatch(1);
+        final AtomicInteger syncCount = new AtomicInteger();
+
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                syncCount.incrementAndGet();
+                syncStarted.countDown();
+                awaitQuietly(releaseSync);
+                return !cancellationSignal.isCanceled();
+            }
+
+        }, executor, new Random(42));
+
+        SyncCoordinator.OnSyncFinishedListener canceledListener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSuccessful) {
+                    }
+
+                };
+
+        final AtomicBoolean isSuccessful = new AtomicBoolean();
+        final CountDownLatch syncFinished = new CountDownLatch(1);
+        SyncCoordinator.OnSyncFinishedListener laterListener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSyncSuccessful) {
+                        isSuccessful.set(isSyncSuccessful);
+                        syncFinished.countDown();
+                    }
+
+                };
+
+        coordinator.requestSync(canceledListener);
+        assertTrue(syncStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(coordinator.cancelSync(canceledListener));
+
+        // The canceled attempt is still running when the next request arrives
+        coordinator.requestSync(laterListener);
+        releaseSync.countDown();
+
+        assertTrue(syncFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(isSuccessful.get());
+        assertEquals(2, syncCount.get());
+        assertEquals(SyncCoordinator.State.IDLE, coordinator.getState());
+    }
+
+    @Test
+    public void cancelSync_withOtherCallersJoined_keepsSyncRunning() throws InterruptedException {
+        final CountDownLatch syncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSync = new CountDownLatch(1);
+        final AtomicBoolean isCanceled = new AtomicBoolean();
+
+        SyncCoordinator coordinator = new SyncCoordinator(new SyncCoordinator.SyncAction() {
+
+            @Override
+            public boolean sync(CancellationSignal cancellationSignal) {
+                syncStarted.countDown();
+                awaitQuietly(releaseSync);
+
+                isCanceled.set(cancellationSignal.isCanceled());
+                return !cancellationSignal.isCanceled();
+            }
+
+        }, executor, new Random(42));
+
+        SyncCoordinator.OnSyncFinishedListener canceledListener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSuccessful) {
+                        fail("A caller that stopped waiting must not be notified");
+                    }
+
+                };
+
+        final CountDownLatch syncFinished = new CountDownLatch(1);
+        SyncCoordinator.OnSyncFinishedListener joinedListener =
+                new SyncCoordinator.OnSyncFinishedListener() {
+
+                    @Override
+                    public void onSyncFinished(boolean isSuccessful) {
+                        assertTrue(isSuccessful);
+                        syncFinished.countDown();
+                    }
+
+                };
+
+        coordinator.requestSync(canceledListener);
+        assertTrue(syncStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        coordinator.requestSync(joinedListener);
+
+        assertFalse(coordinator.cancelSync(canceledListener));
+        releaseSync.countDown();
+
+        assertTrue(syncFinished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(isCanceled.get());
+    }
+
+    @Test
+    public void stateListener_isNotifiedWithoutHoldingLock() throws InterruptedException {
+        final SyncCoordinator coordinator = new SyncCoordinator(
+                new SyncCoordinator.SyncAction() {
+
+                    @Override
+                    public boolean sync(CancellationSignal cancellationSignal) {
+                        return true;
+                    }
+
+                }, executor, new Random(42));
+
+        final CountDownLatch idleNotified = new CountDownLatch(1);
+        coordinator.addOnSyncStateChangedListener(
+                new SyncCoordinator.OnSyncStateChangedListener() {
+
+                    @Override
+                    public void onSyncStateChanged(SyncCoordinator.State state) {
+                        // Reading the state from another thread would deadlock under the lock
+                        final CountDownLatch stateRead = new CountDownLatch(1);
+                        new Thread(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                coordinator.getState();
+                                stateRead.countDown();
+                            }
+
+                        }).start();
+
+                        awaitQuietly(stateRead);
+                        assertEquals(0, stateRead.getCount());
+
+                        if (state == SyncCoordinator.State.IDLE) idleNotified.countDown();
+                    }
+
+                });
+
+        coordinator.requestSync(null);
+
+        assertTrue(idleNotified.await(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This test class ensures a {@link CatalogSnapshot} reads back exactly the catalog it was written
+ * from, and that invalid snapshot files are ignored rather than read.
+ */
+public class CatalogSnapshotTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("catalog", ".snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void write_thenOpen_readsRecipesInIdOrder() throws IOException {
+        CatalogSnapshot.write(file, Arrays.asList(createRecipe(3, "Cheesecake"),
+                createRecipe(1, "Nutella Pie"), createRecipe(2, "Brownies")));
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.getRecipeCount());
+        assertEquals(1, snapshot.getRecipeId(0));
+        assertEquals("Nutella Pie", snapshot.getRecipeName(0));
+        assertEquals(3, snapshot.getRecipeId(2));
+        assertEquals("Cheesecake", snapshot.getRecipeName(2));
+        assertEquals(1, snapshot.findRecipe(2));
+        assertEquals(-1, snapshot.findRecipe(4));
+    }
+
+    @Test
+    public void getRecipe_readsFullRecipeGraph() throws IOException {
+        Recipe written = createRecipe(2, "Brownies");
+        written.setImage(null);
+        written.getSteps().get(1).setVideoUrl("");
+        CatalogSnapshot.write(file, Arrays.asList(createRecipe(1, "Nutella Pie"), written));
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertNotNull(snapshot);
+        Recipe read = snapshot.getRecipe(2);
+
+        assertNotNull(read);
+        assertEquals("Brownies", read.getName());
+        assertEquals(8, read.getServings());
+        assertNull(read.getImage());
+        assertEquals(2, read.getIngredients().size());
+        assertEquals("Bittersweet chocolate (60-70% cacao)",
+                read.getIngredients().get(1).getIngredient());
+        assertEquals(350, read.getIngredients().get(1).getQuantity());
+        assertEquals("G", read.getIngredients().get(1).getMeasure());
+        assertEquals(2, read.getSteps().size());
+        assertEquals("Starting prep", read.getSteps().get(1).getShortDescription());
+        assertEquals("", read.getSteps().get(1).getVideoUrl());
+        assertNull(snapshot.getRecipe(5));
+    }
+
+    @Test
+    public void write_emptyCatalog_opensEmptySnapshot() throws IOException {
+        CatalogSnapshot.write(file, Collections.<Recipe>emptyList());
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+
+        assertNotNull(snapshot);
+        assertEquals(0, snapshot.getRecipeCount());
+        assertNull(snapshot.getRecipe(1));
+    }
+
+    @Test
+    public void open_invalidOrMissingFile_returnsNull() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        } finally {
+            outputStream.close();
+        }
+
+        assertNull(CatalogSnapshot.open(file));
+        assertNull(CatalogSnapshot.open(new File(file.getPath() + ".missing")));
+    }
+
+    private static Recipe createRecipe(int id, String name) {
+        Ingredient sugar = new Ingredient();
+        sugar.setQuantity(2);
+        sugar.setMeasure("CUP");
+        sugar.setIngredient("Granulated sugar");
+
+        Ingredient chocolate = new Ingredient();
+        chocolate.setQuantity(350);
+        chocolate.setMeasure("G");
+        chocolate.setIngredient("Bittersweet chocolate (60-70% cacao)");
+
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Step step = new Step();
+            step.setId(i);
+            step.setShortDescription(i == 0 ? "Recipe Introduction" : "Starting prep");
+            step.setDescription("Step " + i + " of " + name);
+            step.setVideoUrl("https://example.com/" + id + "/" + i + ".mp4");
+            step.setThumbnailUrl("");
+            steps.add(step);
+        }
+
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName(name);
+        recipe.setServings(8);
+        recipe.setImage("");
+        recipe.setIngredients(new ArrayList<>(Arrays.asList(sugar, chocolate)));
+        recipe.setSteps(steps);
+        return recipe;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.database.Cursor;
+
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.StepColumns;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This benchmark measures the per-row cost of mapping steps with a {@link CursorMapper} on the
+ * host, against looking up the column indices for every row, and prints the results. It only
+ * runs when host benchmarks are asked for with -PhostBenchmarks.
+ */
+public class CursorMapperBenchmarkTest {
+
+    private static final int BENCHMARK_ROWS = 100000;
+    private static final int BENCHMARK_ITERATIONS = 10;
+
+    @Test
+    public void stepMapper_perRowCost() {
+        FakeCursor cursor = new FakeCursor(CursorMapperTest.STEP_COLUMNS);
+        for (int i = 0; i < BENCHMARK_ROWS; i++) {
+            cursor.addRow((long) i, (long) i / 7, (long) i % 7, "Step " + i,
+                    "Description of step " + i, "", "");
+        }
+
+        List<Step> expectedSteps = mapWithLookupPerRow(cursor);
+        assertEquals(expectedSteps, mapWithMapper(cursor));
+
+        long lookupPerRowNanos = 0;
+        long mapperNanos = 0;
+
+        // The first iteration only warms up the JIT and isn't measured
+        for (int iteration = 0; iteration <= BENCHMARK_ITERATIONS; iteration++) {
+            long startTime = System.nanoTime();
+            mapWithLookupPerRow(cursor);
+            long lookupEndTime = System.nanoTime();
+            mapWithMapper(cursor);
+            long mapperEndTime = System.nanoTime();
+
+            if (iteration > 0) {
+                lookupPerRowNanos += lookupEndTime - startTime;
+                mapperNanos += mapperEndTime - lookupEndTime;
+            }
+        }
+
+        long rows = (long) BENCHMARK_ROWS * BENCHMARK_ITERATIONS;
+        System.out.println("Mapped " + BENCHMARK_ROWS + " step rows " + BENCHMARK_ITERATIONS
+                + " times: " + (lookupPerRowNanos / rows) + " ns per row looking up columns for "
+                + "every row, " + (mapperNanos / rows) + " ns per row with CursorMapper");
+    }
+
+    private static List<Step> mapWithMapper(Cursor cursor) {
+        List<Step> steps = new ArrayList<>(cursor.getCount());
+        CursorMapper<Step> mapper = CursorMapper.forSteps();
+
+        mapper.bind(cursor);
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            steps.add(mapper.map(cursor));
+        }
+
+        return steps;
+    }
+
+    private static List<Step> mapWithLookupPerRow(Cursor cursor) {
+        List<Step> steps = new ArrayList<>(cursor.getCount());
+
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Step step = new Step();
+
+            step.setId(cursor.getInt(cursor.getColumnIndex(StepColumns.STEP_ID)));
+            step.setShortDescription(
+                    cursor.getString(cursor.getColumnIndex(StepColumns.SHORT_DESCRIPTION)));
+            step.setDescription(cursor.getString(cursor.getColumnIndex(StepColumns.DESCRIPTION)));
+            step.setVideoUrl(cursor.getString(cursor.getColumnIndex(StepColumns.VIDEO_URL)));
+            step.setThumbnailUrl(
+                    cursor.getString(cursor.getColumnIndex(StepColumns.THUMBNAIL_URL)));
+
+            steps.add(step);
+        }
+
+        return steps;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+import com.example.android.baking.provider.IngredientColumns;
+import com.example.android.baking.provider.RecipeColumns;
+import com.example.android.baking.provider.StepColumns;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This test class ensures the cursor mappers map rows correctly for any cursor shape.
+ */
+public class CursorMapperTest {
+
+    static final String[] STEP_COLUMNS = {StepColumns.ID, StepColumns.RECIPE_ID,
+            StepColumns.STEP_ID, StepColumns.SHORT_DESCRIPTION, StepColumns.DESCRIPTION,
+            StepColumns.VIDEO_URL, StepColumns.THUMBNAIL_URL};
+
+    @Test
+    public void stepMapper_mapsEveryColumn() {
+        FakeCursor cursor = new FakeCursor(STEP_COLUMNS)
+                .addRow(1L, 7L, 3L, "Short", "Long", "video", null);
+        CursorMapper<Step> mapper = CursorMapper.forSteps();
+
+        mapper.bind(cursor);
+        cursor.moveToFirst();
+        Step step = mapper.map(cursor);
+
+        assertEquals(7, mapper.getRecipeId(cursor));
+        assertEquals(3, step.getId());
+        assertEquals("Short", step.getShortDescription());
+        assertEquals("Long", step.getDescription());
+        assertEquals("video", step.getVideoUrl());
+        assertNull(step.getThumbnailUrl());
+    }
+
+    @Test
+    public void recipeMapper_readsMissingColumnsAsDefaults() {
+        FakeCursor cursor = new FakeCursor(RecipeColumns.ID, RecipeColumns.RECIPE_ID,
+                RecipeColumns.NAME)
+                .addRow(10L, 2L, "Brownies");
+        CursorMapper<Recipe> mapper = CursorMapper.forRecipes();
+
+        mapper.bind(cursor);
+        cursor.moveToFirst();
+        Recipe recipe = mapper.map(cursor);
+
+        assertEquals(2, mapper.getRecipeId(cursor));
+        assertEquals(2, recipe.getId());
+        assertEquals("Brownies", recipe.getName());
+        assertEquals(0, recipe.getServings());
+        assertNull(recipe.getImage());
+    }
+
+    @Test
+    public void mapper_resolvesIndicesAgainForDifferentCursorShape() {
+        CursorMapper<Ingredient> mapper = CursorMapper.forIngredients();
+
+        FakeCursor fullCursor = new FakeCursor(IngredientColumns.RECIPE_ID,
+                IngredientColumns.QUANTITY, IngredientColumns.MEASURE, IngredientColumns.NAME)
+                .addRow(1L, 2L, "CUP", "Flour");
+        mapper.bind(fullCursor);
+        fullCursor.moveToFirst();
+        assertEquals("Flour", mapper.map(fullCursor).getIngredient());
+
+        FakeCursor projectedCursor = new FakeCursor(IngredientColumns.NAME,
+                IngredientColumns.RECIPE_ID)
+                .addRow("Sugar", 4L);
+        mapper.bind(projectedCursor);
+        projectedCursor.moveToFirst();
+        Ingredient ingredient = mapper.map(projectedCursor);
+
+        assertEquals(4, mapper.getRecipeId(projectedCursor));
+        assertEquals("Sugar", ingredient.getIngredient());
+        assertNull(ingredient.getMeasure());
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is an in-memory {@link Cursor} over a fixed set of rows, used to exercise cursor
+ * reading code in host-side unit tests without a database.
+ */
+class FakeCursor implements Cursor {
+
+    private final String[] columnNames;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private int position = -1;
+    private boolean isClosed;
+
+    FakeCursor(String... columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * Adds a row holding the given values, in the same order as the cursor's columns.
+     *
+     * @param values The column values of the row
+     * @return This cursor, so that rows can be chained
+     */
+    FakeCursor addRow(Object... values) {
+        if (values.length != columnNames.length) {
+            throw new IllegalArgumentException("Expected " + columnNames.length + " values");
+        }
+
+        rows.add(values);
+        return this;
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        if (position < 0) {
+            this.position = -1;
+            return false;
+        }
+
+        if (position >= rows.size()) {
+            this.position = rows.size();
+            return false;
+        }
+
+        this.position = position;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(rows.size() - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(position - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isLast() {
+        return position == rows.size() - 1 && !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return rows.isEmpty() || position == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return rows.isEmpty() || position == rows.size();
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        return Arrays.asList(columnNames).indexOf(columnName);
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index == -1) {
+            throw new IllegalArgumentException("Column '" + columnName + "' does not exist");
+        }
+
+        return index;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columnNames[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        return (byte[]) getValue(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = getValue(columnIndex);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public void copyStringToBuffer(int columnIndex, CharArrayBuffer buffer) {
+        String value = getString(columnIndex);
+        buffer.data = value == null ? new char[0] : value.toCharArray();
+        buffer.sizeCopied = buffer.data.length;
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return (short) getLong(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = getValue(columnIndex);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = getValue(columnIndex);
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        Object value = getValue(columnIndex);
+
+        if (value == null) return FIELD_TYPE_NULL;
+        if (value instanceof byte[]) return FIELD_TYPE_BLOB;
+        if (value instanceof Float || value instanceof Double) return FIELD_TYPE_FLOAT;
+        if (value instanceof Number) return FIELD_TYPE_INTEGER;
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return getValue(columnIndex) == null;
+    }
+
+    @Override
+    @Deprecated
+    public void deactivate() {
+    }
+
+    @Override
+    @Deprecated
+    public boolean requery() {
+        return !isClosed;
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public void registerContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void unregisterContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void setNotificationUri(ContentResolver contentResolver, Uri uri) {
+    }
+
+    @Override
+    public Uri getNotificationUri() {
+        return null;
+    }
+
+    @Override
+    public boolean getWantsAllOnMoveCalls() {
+        return false;
+    }
+
+    @Override
+    public void setExtras(Bundle extras) {
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return null;
+    }
+
+    @Override
+    public Bundle respond(Bundle extras) {
+        return null;
+    }
+
+    private Object getValue(int columnIndex) {
+        if (position < 0 || position >= rows.size()) {
+            throw new IllegalStateException("Cursor is not positioned on a row");
+        }
+
+        return rows.get(position)[columnIndex];
+    }
+
+}
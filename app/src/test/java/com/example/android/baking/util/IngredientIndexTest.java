@@ -0,0 +1,167 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures {@link IngredientIndex} answers ingredient queries correctly and stays
+ * correct as recipes are added, changed and removed.
+ */
+public class IngredientIndexTest {
+
+    private IngredientIndex index;
+
+    @Before
+    public void setUp() {
+        index = new IngredientIndex();
+        index.put(createRecipe(1, "Unsalted butter, melted", "Sugar", "Eggs"));
+        index.put(createRecipe(2, "sugar", "Flour", "eggs"));
+        index.put(createRecipe(3, "Salt", "Flour"));
+    }
+
+    @Test
+    public void normalize_dropsPreparationNotesAndPunctuation() {
+        assertEquals("unsalted butter", IngredientIndex.normalize("Unsalted Butter, melted"));
+        assertEquals("cream cheese", IngredientIndex.normalize("cream cheese (softened)"));
+        assertEquals("graham cracker crumbs", IngredientIndex.normalize(" Graham-Cracker crumbs"));
+    }
+
+    @Test
+    public void findRecipesWithAll_intersectsPostings() {
+        assertEquals(Arrays.asList(1, 2), index.findRecipesWithAll(Arrays.asList("SUGAR", "eggs")));
+        assertEquals(Collections.singletonList(2),
+                index.findRecipesWithAll(Arrays.asList("sugar", "flour")));
+        assertTrue(index.findRecipesWithAll(Arrays.asList("sugar", "saffron")).isEmpty());
+    }
+
+    @Test
+    public void findRecipesWithAny_unitesPostings() {
+        assertEquals(Arrays.asList(1, 3),
+                index.findRecipesWithAny(Arrays.asList("unsalted butter", "salt")));
+    }
+
+    @Test
+    public void findRecipesWithAtLeast_ranksByMatchCount() {
+        List<Integer> recipeIds =
+                index.findRecipesWithAtLeast(Arrays.asList("flour", "eggs", "sugar", "salt"), 2);
+
+        assertEquals(Arrays.asList(2, 1, 3), recipeIds);
+    }
+
+    @Test
+    public void update_reindexesOnlyChangedRecipes() {
+        List<Recipe> storedRecipes = Arrays.asList(
+                createRecipe(1, "Unsalted butter, melted", "Sugar", "Eggs"),
+                createRecipe(2, "sugar", "Flour", "eggs"),
+                createRecipe(3, "Salt", "Flour"));
+        List<Recipe> fetchedRecipes = Arrays.asList(
+                createRecipe(2, "sugar", "Flour", "Milk"),
+                createRecipe(3, "Salt", "Flour"),
+                createRecipe(4, "Milk", "Eggs"));
+
+        index.update(RecipeDiff.compute(storedRecipes, fetchedRecipes));
+
+        assertEquals(Arrays.asList(2, 4), index.findRecipesWithAny(Collections.singleton("milk")));
+        assertEquals(Collections.singletonList(4),
+                index.findRecipesWithAll(Collections.singleton("eggs")));
+        assertTrue(index.findRecipesWithAll(Collections.singleton("unsalted butter")).isEmpty());
+        assertFalse(index.getIngredientNames().contains("unsalted butter"));
+    }
+
+    @Test
+    public void remove_dropsRecipeFromEveryPosting() {
+        index.remove(2);
+
+        assertEquals(Collections.singletonList(1),
+                index.findRecipesWithAll(Arrays.asList("sugar", "eggs")));
+        assertEquals(Collections.singletonList(3),
+                index.findRecipesWithAny(Collections.singleton("flour")));
+    }
+
+    @Test
+    public void put_indexesSparseRecipeIds() {
+        index.put(createRecipe(Integer.MAX_VALUE, "Flour", "Saffron"));
+        index.put(createRecipe(1_000_000, "Saffron", "Eggs"));
+
+        assertEquals(Arrays.asList(2, 3, Integer.MAX_VALUE),
+                index.findRecipesWithAny(Collections.singleton("flour")));
+        assertEquals(Collections.singletonList(1_000_000),
+                index.findRecipesWithAll(Arrays.asList("saffron", "eggs")));
+        assertEquals(Arrays.asList(2, 1_000_000, Integer.MAX_VALUE),
+                index.findRecipesWithAtLeast(Arrays.asList("saffron", "eggs", "flour"), 2));
+    }
+
+    private static Recipe createRecipe(int recipeId, String... ingredientNames) {
+        List<Ingredient> ingredients = new ArrayList<>();
+
+        for (String ingredientName : ingredientNames) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setQuantity(1);
+            ingredient.setMeasure("CUP");
+            ingredient.setIngredient(ingredientName);
+            ingredients.add(ingredient);
+        }
+
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        recipe.setName("Recipe " + recipeId);
+        recipe.setIngredients(ingredients);
+        recipe.setSteps(new ArrayList<Step>());
+
+        return recipe;
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import com.example.android.baking.model.Ingredient;
+import com.example.android.baking.model.Recipe;
+import com.example.android.baking.model.Step;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures {@link RecipeDiff} only reports the rows that actually changed between
+ * the stored and fetched recipes.
+ */
+public class RecipeDiffTest {
+
+    @Test
+    public void identicalCatalogs_produceEmptyDiff() {
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(4), createCatalog(4));
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getIngredientsInserted());
+        assertEquals(0, diff.getStepsInserted());
+    }
+
+    @Test
+    public void emptyDatabase_insertsEveryRecipe() {
+        List<Recipe> fetchedRecipes = createCatalog(3);
+
+        RecipeDiff diff = RecipeDiff.compute(Collections.<Recipe>emptyList(), fetchedRecipes);
+
+        assertEquals(fetchedRecipes, diff.getInsertedRecipes());
+        assertEquals(6, diff.getIngredientsInserted());
+        assertEquals(9, diff.getStepsInserted());
+        assertTrue(diff.getInsertedSteps().isEmpty());
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(diff.getChangedRecipeIds()));
+    }
+
+    @Test
+    public void missingRecipe_isDeleted() {
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(3), createCatalog(2));
+
+        assertEquals(1, diff.getDeletedRecipes().size());
+        assertEquals(3, diff.getDeletedRecipes().get(0).getId());
+        assertEquals(2, diff.getIngredientsDeleted());
+        assertEquals(3, diff.getStepsDeleted());
+        assertTrue(diff.getInsertedRecipes().isEmpty());
+    }
+
+    @Test
+    public void renamedRecipe_isUpdatedWithoutTouchingChildren() {
+        List<Recipe> fetchedRecipes = createCatalog(3);
+        fetchedRecipes.get(1).setName("Renamed");
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(3), fetchedRecipes);
+
+        assertEquals(1, diff.getUpdatedRecipes().size());
+        assertEquals("Renamed", diff.getUpdatedRecipes().get(0).getName());
+        assertTrue(diff.getReplacedIngredientRecipes().isEmpty());
+        assertEquals(0, diff.getStepsUpdated());
+        assertEquals(Collections.singletonList(2), new ArrayList<>(diff.getChangedRecipeIds()));
+    }
+
+    @Test
+    public void changedIngredient_replacesIngredientsOfThatRecipeOnly() {
+        List<Recipe> fetchedRecipes = createCatalog(3);
+        fetchedRecipes.get(2).getIngredients().get(0).setQuantity(42);
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(3), fetchedRecipes);
+
+        assertEquals(1, diff.getReplacedIngredientRecipes().size());
+        assertEquals(3, diff.getReplacedIngredientRecipes().get(0).getId());
+        assertEquals(2, diff.getIngredientsDeleted());
+        assertEquals(2, diff.getIngredientsInserted());
+        assertTrue(diff.getUpdatedRecipes().isEmpty());
+    }
+
+    @Test
+    public void steps_areMatchedOnStepId() {
+        List<Recipe> fetchedRecipes = createCatalog(2);
+        List<Step> steps = fetchedRecipes.get(0).getSteps();
+        steps.get(1).setDescription("Changed");
+        steps.remove(2);
+        steps.add(createStep(7));
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(2), fetchedRecipes);
+
+        assertEquals(1, diff.getStepsInserted());
+        assertEquals(7, diff.getInsertedSteps().get(0).getStep().getId());
+        assertEquals(1, diff.getStepsUpdated());
+        assertEquals(1, diff.getUpdatedSteps().get(0).getStep().getId());
+        assertEquals(1, diff.getStepsDeleted());
+        assertEquals(2, diff.getDeletedSteps().get(0).getStep().getId());
+        assertEquals(1, diff.getDeletedSteps().get(0).getRecipeId());
+    }
+
+    @Test
+    public void reorderedSteps_produceEmptyDiff() {
+        List<Recipe> fetchedRecipes = createCatalog(1);
+        Collections.reverse(fetchedRecipes.get(0).getSteps());
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(1), fetchedRecipes);
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void modifiedRecipes_includeInsertedAndChangedButNotDeleted() {
+        List<Recipe> fetchedRecipes = createCatalog(4);
+        fetchedRecipes.remove(0);
+        fetchedRecipes.get(0).getSteps().get(0).setShortDescription("Changed");
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(3), fetchedRecipes);
+
+        List<Integer> modifiedRecipeIds = new ArrayList<>();
+        for (Recipe recipe : diff.getModifiedRecipes()) {
+            modifiedRecipeIds.add(recipe.getId());
+        }
+
+        assertEquals(Arrays.asList(2, 4), modifiedRecipeIds);
+        assertEquals("Changed",
+                diff.getModifiedRecipes().iterator().next().getSteps().get(0).getShortDescription());
+    }
+
+    @Test
+    public void changes_onlyCompareTheChangedRecipes() {
+        List<Recipe> storedRecipes = createCatalog(3).subList(1, 3);
+        List<Recipe> changedRecipes = createCatalog(4).subList(1, 4);
+        changedRecipes.get(0).setName("Renamed");
+
+        RecipeDiff diff = RecipeDiff.computeChanges(storedRecipes, changedRecipes,
+                Arrays.asList(3, 5));
+
+        assertEquals(1, diff.getUpdatedRecipes().size());
+        assertEquals(4, diff.getInsertedRecipes().get(0).getId());
+        assertTrue(diff.getDeletedRecipes().isEmpty());
+        assertEquals(Arrays.asList(2, 4), new ArrayList<>(diff.getChangedRecipeIds()));
+        assertEquals(1 + 1 + 2 + 3, diff.getChangedRowCount());
+    }
+
+    @Test
+    public void rowCounts_splitChangedRowsByOperation() {
+        List<Recipe> fetchedRecipes = createCatalog(4);
+        fetchedRecipes.remove(2);
+        fetchedRecipes.get(0).setName("Renamed");
+        fetchedRecipes.get(1).getIngredients().get(0).setQuantity(42);
+
+        RecipeDiff diff = RecipeDiff.compute(createCatalog(3), fetchedRecipes);
+
+        // Recipe 4 and its children, plus the replaced ingredients of recipe 2
+        assertEquals(1 + 2 + 3 + 2, diff.getRowsInserted());
+        assertEquals(1, diff.getRowsUpdated());
+        // Recipe 3 and its children, plus the replaced ingredients of recipe 2
+        assertEquals(1 + 2 + 3 + 2, diff.getRowsDeleted());
+        assertEquals(diff.getRowsInserted() + diff.getRowsUpdated() + diff.getRowsDeleted(),
+                diff.getChangedRowCount());
+    }
+
+    @Test
+    public void applyTo_patchesTheGivenCatalog() {
+        List<Recipe> changedRecipes = createCatalog(5).subList(3, 5);
+        changedRecipes.get(0).setName("Renamed");
+
+        RecipeDiff diff = RecipeDiff.computeChanges(createCatalog(4).subList(0, 4),
+                changedRecipes, Collections.singletonList(2));
+
+        List<Recipe> patchedRecipes = diff.applyTo(createCatalog(4));
+
+        List<Integer> patchedRecipeIds = new ArrayList<>();
+        for (Recipe recipe : patchedRecipes) {
+            patchedRecipeIds.add(recipe.getId());
+        }
+
+        assertEquals(Arrays.asList(1, 3, 4, 5), patchedRecipeIds);
+        assertEquals("Renamed", patchedRecipes.get(2).getName());
+    }
+
+    private static List<Recipe> createCatalog(int recipeCount) {
+        List<Recipe> recipes = new ArrayList<>();
+
+        for (int recipeId = 1; recipeId <= recipeCount; recipeId++) {
+            Recipe recipe = new Recipe();
+            recipe.setId(recipeId);
+            recipe.setName("Recipe " + recipeId);
+            recipe.setServings(8);
+            recipe.setImage("");
+
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setQuantity(i + 1);
+                ingredient.setMeasure("CUP");
+                ingredient.setIngredient("Ingredient " + i);
+                ingredients.add(ingredient);
+            }
+            recipe.setIngredients(ingredients);
+
+            List<Step> steps = new ArrayList<>();
+            for (int stepId = 0; stepId < 3; stepId++) {
+                steps.add(createStep(stepId));
+            }
+            recipe.setSteps(steps);
+
+            recipes.add(recipe);
+        }
+
+        return recipes;
+    }
+
+    private static Step createStep(int stepId) {
+        Step step = new Step();
+        step.setId(stepId);
+        step.setShortDescription("Step " + stepId);
+        step.setDescription("Description " + stepId);
+        step.setVideoUrl("");
+        step.setThumbnailUrl("");
+        return step;
+    }
+
+}
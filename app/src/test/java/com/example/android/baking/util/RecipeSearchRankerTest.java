@@ -0,0 +1,156 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class ensures {@link RecipeSearchRanker} ranks search matches by relevance and pages
+ * through them without losing or repeating any recipe.
+ * <p>
+ * The matchinfo() statistics are those SQLite returns for a catalog of 10 recipes, queried for a
+ * single term over the name, ingredients and steps columns.
+ */
+public class RecipeSearchRankerTest {
+
+    private static final String[] COLUMNS = {"docid", "match_info"};
+
+    @Test
+    public void readMatchInfo_decodesNativeOrderIntegers() {
+        int[] matchInfo = {1, 3, 10, 2, 4, 30, 2, 4, 30, 1, 1, 1, 0, 3, 2, 0, 5, 5};
+
+        assertArrayEquals(matchInfo, RecipeSearchRanker.readMatchInfo(blob(matchInfo)));
+    }
+
+    @Test
+    public void score_ranksNameMatchesAboveStepMatches() {
+        double nameScore = RecipeSearchRanker.score(singleTermMatch(1, 0, 0));
+        double stepScore = RecipeSearchRanker.score(singleTermMatch(0, 0, 1));
+
+        assertTrue(nameScore > stepScore);
+    }
+
+    @Test
+    public void score_ranksMoreHitsAboveFewerHits() {
+        double twoHitScore = RecipeSearchRanker.score(singleTermMatch(0, 2, 0));
+        double oneHitScore = RecipeSearchRanker.score(singleTermMatch(0, 1, 0));
+
+        assertTrue(twoHitScore > oneHitScore);
+    }
+
+    @Test
+    public void rankPage_ordersByRelevanceThenRecipeId() {
+        FakeCursor cursor = createMatches();
+
+        List<Integer> recipeIds = RecipeSearchRanker.rankPage(cursor, 0, 1, 10, 0);
+
+        assertEquals(Arrays.asList(4, 2, 7, 1, 3, 9), recipeIds);
+    }
+
+    @Test
+    public void rankPage_pagesThroughEveryRecipeOnce() {
+        FakeCursor cursor = createMatches();
+
+        assertEquals(Arrays.asList(4, 2), RecipeSearchRanker.rankPage(cursor, 0, 1, 2, 0));
+        assertEquals(Arrays.asList(7, 1), RecipeSearchRanker.rankPage(cursor, 0, 1, 2, 2));
+        assertEquals(Arrays.asList(3, 9), RecipeSearchRanker.rankPage(cursor, 0, 1, 2, 4));
+        assertEquals(Collections.<Integer>emptyList(),
+                RecipeSearchRanker.rankPage(cursor, 0, 1, 2, 6));
+    }
+
+    @Test
+    public void rankPage_returnsPartialLastPage() {
+        FakeCursor cursor = createMatches();
+
+        assertEquals(Arrays.asList(1, 3, 9), RecipeSearchRanker.rankPage(cursor, 0, 1, 5, 3));
+    }
+
+    /**
+     * Creates a cursor of matches, in the recipe ID order SQLite returns them in, whose relevance
+     * order is 4, 2, 7, 1, 3 then 9. Recipes 9 and 3 tie, so recipe 3 ranks first.
+     */
+    private static FakeCursor createMatches() {
+        return new FakeCursor(COLUMNS)
+                .addRow(1, blob(singleTermMatch(0, 2, 0)))
+                .addRow(3, blob(singleTermMatch(0, 0, 1)))
+                .addRow(2, blob(singleTermMatch(1, 1, 0)))
+                .addRow(4, blob(singleTermMatch(2, 1, 0)))
+                .addRow(7, blob(singleTermMatch(1, 0, 0)))
+                .addRow(9, blob(singleTermMatch(0, 0, 1)));
+    }
+
+    /**
+     * Builds the matchinfo() statistics of a single term query, for a recipe with the given number
+     * of hits in each column. The term is found in 6 of the 10 recipes of the catalog, and every
+     * recipe has the average length in each column.
+     */
+    private static int[] singleTermMatch(int nameHits, int ingredientHits, int stepHits) {
+        return new int[]{
+                1, 3, 10,
+                2, 4, 30,
+                2, 4, 30,
+                nameHits, 3, 3,
+                ingredientHits, 4, 3,
+                stepHits, 4, 4
+        };
+    }
+
+    /**
+     * Encodes the given statistics the way SQLite returns matchinfo(), in the device byte order.
+     */
+    private static byte[] blob(int[] matchInfo) {
+        ByteBuffer buffer = ByteBuffer.allocate(matchInfo.length * 4)
+                .order(ByteOrder.nativeOrder());
+        buffer.asIntBuffer().put(matchInfo);
+        return buffer.array();
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * PROJECT LICENSE
+ *
+ * This project was submitted by Brandon Ingram as part of the Android Developer
+ * Nanodegree Program at Udacity.
+ *
+ * As part of Udacity Honor code, your submissions must be your own work, hence
+ * submitting this project as yours will cause you to break the Udacity Honor Code
+ * and the suspension of your account.
+ *
+ * Me, the author of the project, allow you to check the code as a reference, but if
+ * you submit it, it's your own responsibility if you get expelled.
+ *
+ * Copyright (c) 2018 Brandon Ingram
+ *
+ * Besides the above notice, the following license applies and this license notice
+ * must be included in all works derived from this project.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.example.android.baking.util;
+
+import com.example.android.baking.model.Recipe;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class ensures {@link RecipeStreamReader} reads every recipe of a feed in order, one
+ * at a time, and rejects feeds that aren't an array of recipes.
+ */
+public class RecipeStreamReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void read_returnsEachRecipeThenNull() throws IOException {
+        RecipeStreamReader reader = createReader("[" + createRecipeJson(1) + ","
+                + createRecipeJson(2) + "]");
+
+        Recipe first = reader.read();
+        assertEquals(1, first.getId());
+        assertEquals("Recipe 1", first.getName());
+        assertEquals(2, first.getIngredients().size());
+        assertEquals("CUP", first.getIngredients().get(0).getMeasure());
+        assertEquals("https://example.com/1.mp4", first.getSteps().get(0).getVideoUrl());
+
+        assertEquals(2, reader.read().getId());
+        assertNull(reader.read());
+        assertNull(reader.read());
+        assertEquals(2, reader.getRecipeCount());
+
+        reader.close();
+    }
+
+    @Test
+    public void read_emptyFeed_returnsNull() throws IOException {
+        RecipeStreamReader reader = createReader("[]");
+
+        assertNull(reader.read());
+        assertEquals(0, reader.getRecipeCount());
+
+        reader.close();
+    }
+
+    @Test
+    public void constructor_rejectsFeedThatIsNotAnArray() {
+        try {
+            createReader(createRecipeJson(1));
+            fail("Expected the feed to be rejected");
+        } catch (IOException expected) {
+            // The feed must be an array of recipes
+        }
+    }
+
+    @Test
+    public void read_generatedLargeFeed_readsEveryRecipeInOrder() throws IOException {
+        final int recipeCount = 20000;
+
+        // The feed is generated as it is read, so it is never held in memory as a whole
+        RecipeStreamReader reader = new RecipeStreamReader(new SequenceInputStream(
+                new Enumeration<InputStream>() {
+
+                    private int position = -1;
+
+                    @Override
+                    public boolean hasMoreElements() {
+                        return position <= recipeCount;
+                    }
+
+                    @Override
+                    public InputStream nextElement() {
+                        String json;
+                        if (position == -1) {
+                            json = "[";
+                        } else if (position == recipeCount) {
+                            json = "]";
+                        } else {
+                            json = (position == 0 ? "" : ",") + createRecipeJson(position + 1);
+                        }
+
+                        position++;
+                        return new ByteArrayInputStream(json.getBytes(UTF_8));
+                    }
+
+                }));
+
+        int expectedId = 1;
+        Recipe recipe = reader.read();
+        while (recipe != null) {
+            assertEquals(expectedId++, recipe.getId());
+            recipe = reader.read();
+        }
+
+        assertEquals(recipeCount, reader.getRecipeCount());
+        reader.close();
+    }
+
+    private static RecipeStreamReader createReader(String json) throws IOException {
+        return new RecipeStreamReader(new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+
+    private static String createRecipeJson(int id) {
+        return "{\"id\":" + id + ",\"name\":\"Recipe " + id + "\","
+                + "\"ingredients\":[{\"quantity\":2,\"measure\":\"CUP\",\"ingredient\":\"Flour\"},"
+                + "{\"quantity\":1,\"measure\":\"TSP\",\"ingredient\":\"Salt\"}],"
+                + "\"steps\":[{\"id\":0,\"shortDescription\":\"Recipe Introduction\","
+                + "\"description\":\"Introduction\",\"videoURL\":\"https://example.com/" + id
+                + ".mp4\",\"thumbnailURL\":\"\"}],"
+                + "\"servings\":8,\"image\":\"\"}";
+    }
+
+}